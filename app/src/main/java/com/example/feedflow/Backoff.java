@@ -0,0 +1,41 @@
+package com.example.feedflow;
+
+import java.util.Random;
+
+// Exponential reconnect backoff with "equal jitter": each delay is half the current
+// cap plus a random part of the other half, so a row of feeders that dropped at
+// the same moment does not retry in lockstep.
+public class Backoff {
+
+    private final long initialMs;
+    private final long maxMs;
+    private final Random random;
+    private int attempt = 0;
+
+    public Backoff(long initialMs, long maxMs) {
+        this(initialMs, maxMs, new Random());
+    }
+
+    public Backoff(long initialMs, long maxMs, Random random) {
+        this.initialMs = initialMs;
+        this.maxMs = maxMs;
+        this.random = random;
+    }
+
+    public synchronized long next() {
+        long cap = initialMs << Math.min(attempt, 20);
+        if (cap > maxMs || cap <= 0) cap = maxMs;
+        attempt++;
+
+        long half = cap / 2;
+        return half + (long) (random.nextDouble() * (cap - half));
+    }
+
+    public synchronized void reset() {
+        attempt = 0;
+    }
+
+    public synchronized int getAttempt() {
+        return attempt;
+    }
+}
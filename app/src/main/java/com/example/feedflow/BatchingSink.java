@@ -0,0 +1,193 @@
+package com.example.feedflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Buffers records and hands them to a Committer in batches, when maxBatch records
+// have accumulated or the oldest one has waited maxDelayMs, whichever comes first.
+//
+// Memory is bounded: at most 'capacity' records are held, counting both the
+// buffer and batches whose commit has not completed. A producer that finds the
+// sink full waits up to maxBlockMs (pushing back on whoever feeds it) and the
+// record is dropped and counted only if no room frees up in that time.
+//
+// Plain Java so the policy can be unit tested without Firestore.
+public class BatchingSink<T> {
+
+    public interface Committer<T> {
+        // Commit asynchronously and call done exactly once, on any thread
+        void commit(List<T> batch, Done done);
+    }
+
+    public interface Done {
+        void onComplete(boolean success);
+    }
+
+    private final Committer<T> committer;
+    private final int maxBatch;
+    private final long maxDelayMs;
+    private final int capacity;
+    private final long maxBlockMs;
+    private final ScheduledExecutorService timer;
+
+    private List<T> buffer;
+    private long oldestAt;          // when the first record of the buffer arrived
+    private boolean timerArmed;
+    private int inFlight = 0;       // records in batches still committing
+    private boolean closed;
+
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final LatencyHistogram recordAge = new LatencyHistogram();
+    private long committedCount = 0;
+    private long batchCount = 0;
+    private long droppedCount = 0;
+    private long failedCount = 0;
+
+    public BatchingSink(Committer<T> committer, int maxBatch, long maxDelayMs, int capacity, long maxBlockMs) {
+        this.committer = committer;
+        this.maxBatch = maxBatch;
+        this.maxDelayMs = maxDelayMs;
+        this.capacity = capacity;
+        this.maxBlockMs = maxBlockMs;
+        this.buffer = new ArrayList<>(maxBatch);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // False if the record was dropped because the sink stayed full
+    public boolean offer(T record) {
+        List<T> ready = null;
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + maxBlockMs;
+            while (!closed && buffer.size() + inFlight >= capacity) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    droppedCount++;
+                    return false;
+                }
+                try {
+                    wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount++;
+                    return false;
+                }
+            }
+            if (closed) {
+                droppedCount++;
+                return false;
+            }
+
+            if (buffer.isEmpty()) oldestAt = System.currentTimeMillis();
+            buffer.add(record);
+
+            if (buffer.size() >= maxBatch) {
+                ready = takeBatch();
+            } else if (!timerArmed) {
+                timerArmed = true;
+                timer.schedule(this::flush, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) commit(ready);
+        return true;
+    }
+
+    // Commits whatever is buffered now
+    public void flush() {
+        List<T> ready;
+        synchronized (this) {
+            timerArmed = false;
+            if (buffer.isEmpty()) return;
+            ready = takeBatch();
+        }
+        commit(ready);
+    }
+
+    // Flushes the buffer and refuses further records
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        flush();
+        timer.shutdown();
+    }
+
+    // Flushes and waits until every record offered so far has finished committing.
+    // False on timeout, e.g. while offline.
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        flush();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            while (!buffer.isEmpty() || inFlight > 0) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) return false;
+                wait(wait);
+            }
+            return true;
+        }
+    }
+
+    private List<T> takeBatch() {
+        List<T> batch = buffer;
+        buffer = new ArrayList<>(maxBatch);
+        inFlight += batch.size();
+        recordAge.record(System.currentTimeMillis() - oldestAt);
+        return batch;
+    }
+
+    private void commit(List<T> batch) {
+        long start = System.currentTimeMillis();
+        int size = batch.size();
+        committer.commit(batch, success -> {
+            synchronized (this) {
+                inFlight -= size;
+                commitLatency.record(System.currentTimeMillis() - start);
+                batchCount++;
+                if (success) committedCount += size;
+                else failedCount += size;
+                notifyAll();
+            }
+        });
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    // Commit call to server acknowledgement, per batch
+    public LatencyHistogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    // How long the oldest record of each batch waited in the buffer
+    public LatencyHistogram getRecordAge() {
+        return recordAge;
+    }
+
+    public synchronized int getPendingCount() {
+        return buffer.size() + inFlight;
+    }
+
+    public synchronized long getCommittedCount() {
+        return committedCount;
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+}
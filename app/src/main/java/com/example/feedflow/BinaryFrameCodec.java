@@ -0,0 +1,165 @@
+package com.example.feedflow;
+
+// Compact binary framing for the ESP32 link, used once both sides agree on it
+// during the connect handshake (see BluetoothSerial). Old firmware keeps talking text.
+//
+//   +------+-----+------+---------+-------------+---------+
+//   | SYNC | LEN | TYPE | SEQ     | PAYLOAD     | CRC16   |
+//   | 0xA5 | u8  | u8   | u16 LE  | LEN bytes   | u16 LE  |
+//   +------+-----+------+---------+-------------+---------+
+//
+// The CRC is CRC-16/CCITT-FALSE over LEN, TYPE, SEQ and PAYLOAD.
+// All multi-byte fields are little endian, the ESP32's native order.
+public final class BinaryFrameCodec {
+
+    public static final int SYNC = 0xA5;
+    public static final int HEADER_SIZE = 5;     // sync, len, type, seq
+    public static final int CRC_SIZE = 2;
+    public static final int MAX_PAYLOAD = 64;
+    public static final int MAX_FRAME_SIZE = HEADER_SIZE + MAX_PAYLOAD + CRC_SIZE;
+
+    // Handshake lines, exchanged in text mode right after the socket opens
+    public static final String HANDSHAKE_REQUEST = "PROTO?\n";
+    public static final String HANDSHAKE_BINARY = "PROTO:BIN1";
+
+    // Frame types
+    public static final int TYPE_TELEMETRY = 0x01;
+    public static final int TYPE_TEMPERATURE = 0x02;
+    public static final int TYPE_FEED = 0x03;
+    public static final int TYPE_ACK = 0x04;          // command ack, not telemetry
+    public static final int TYPE_PROGRESS = 0x05;
+    public static final int TYPE_FEED_DONE = 0x06;
+
+    // Payload sizes
+    public static final int TELEMETRY_SIZE = 8;    // i16 temp c°C, i32 weight g, u8 servo, u8 flags
+    public static final int TEMPERATURE_SIZE = 2;  // i16 temp c°C
+    public static final int FEED_SIZE = 6;         // i32 dispensed g, u16 remaining 0.1 %
+    public static final int ACK_SIZE = 2;          // u16 command sequence id
+    public static final int PROGRESS_SIZE = 11;    // i32 dispensed g, i32 target g, u8 motor, u16 command seq
+    public static final int FEED_DONE_SIZE = 6;    // i32 dispensed g, u16 command seq
+
+    private static final int FLAG_FEEDING = 0x01;
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC_TABLE[i] = crc & 0xFFFF;
+        }
+    }
+
+    private BinaryFrameCodec() {}
+
+    public static int crc16(byte[] buf, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc = ((crc << 8) ^ CRC_TABLE[((crc >>> 8) ^ buf[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    // ------------------------------------------------------------
+    // Encoding: writes a whole frame into out and returns its size
+    // ------------------------------------------------------------
+    public static int encode(int type, int seq, byte[] payload, int offset, int length, byte[] out) {
+        if (length > MAX_PAYLOAD) throw new IllegalArgumentException("Payload too large: " + length);
+
+        out[0] = (byte) SYNC;
+        out[1] = (byte) length;
+        out[2] = (byte) type;
+        writeU16(out, 3, seq);
+        System.arraycopy(payload, offset, out, HEADER_SIZE, length);
+
+        int crc = crc16(out, 1, HEADER_SIZE - 1 + length);
+        writeU16(out, HEADER_SIZE + length, crc);
+        return HEADER_SIZE + length + CRC_SIZE;
+    }
+
+    public static int writeTelemetry(TelemetryFrame frame, byte[] out, int offset) {
+        writeU16(out, offset, Math.round(frame.temperature * 100f));
+        writeI32(out, offset + 2, Math.round(frame.weight * 1000f));
+        out[offset + 6] = (byte) frame.servo;
+        out[offset + 7] = (byte) (frame.feeding ? FLAG_FEEDING : 0);
+        return TELEMETRY_SIZE;
+    }
+
+    // ------------------------------------------------------------
+    // Decoding: fills the frame from a payload, false if it does not fit the type
+    // ------------------------------------------------------------
+    public static boolean decode(int type, int seq, byte[] buf, int offset, int length, TelemetryFrame out) {
+        switch (type) {
+            case TYPE_TELEMETRY:
+                if (length < TELEMETRY_SIZE) return false;
+                out.type = TelemetryFrame.TYPE_READING;
+                out.temperature = readI16(buf, offset) / 100f;
+                out.weight = readI32(buf, offset + 2) / 1000f;
+                out.servo = buf[offset + 6] & 0xFF;
+                out.feeding = (buf[offset + 7] & FLAG_FEEDING) != 0;
+                break;
+            case TYPE_TEMPERATURE:
+                if (length < TEMPERATURE_SIZE) return false;
+                out.type = TelemetryFrame.TYPE_TEMPERATURE;
+                out.temperature = readI16(buf, offset) / 100f;
+                break;
+            case TYPE_FEED:
+                if (length < FEED_SIZE) return false;
+                out.type = TelemetryFrame.TYPE_FEED;
+                out.dispensed = readI32(buf, offset) / 1000f;
+                out.remaining = readU16(buf, offset + 4) / 10f;
+                break;
+            case TYPE_PROGRESS:
+                if (length < PROGRESS_SIZE) return false;
+                out.type = TelemetryFrame.TYPE_PROGRESS;
+                out.dispensed = readI32(buf, offset) / 1000f;
+                out.target = readI32(buf, offset + 4) / 1000f;
+                out.motor = buf[offset + 8] & 0xFF;
+                out.commandSeq = readU16(buf, offset + 9);
+                break;
+            case TYPE_FEED_DONE:
+                if (length < FEED_DONE_SIZE) return false;
+                out.type = TelemetryFrame.TYPE_FEED_DONE;
+                out.dispensed = readI32(buf, offset) / 1000f;
+                out.motor = TelemetryFrame.MOTOR_STOPPED;
+                out.commandSeq = readU16(buf, offset + 4);
+                break;
+            default:
+                return false;
+        }
+        out.seq = seq;
+        return true;
+    }
+
+    // ------------------------------------------------------------
+    // Little endian helpers
+    // ------------------------------------------------------------
+    public static void writeU16(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) value;
+        buf[offset + 1] = (byte) (value >>> 8);
+    }
+
+    public static void writeI32(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) value;
+        buf[offset + 1] = (byte) (value >>> 8);
+        buf[offset + 2] = (byte) (value >>> 16);
+        buf[offset + 3] = (byte) (value >>> 24);
+    }
+
+    public static int readU16(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF) | (buf[offset + 1] & 0xFF) << 8;
+    }
+
+    public static int readI16(byte[] buf, int offset) {
+        return (short) readU16(buf, offset);
+    }
+
+    public static int readI32(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF)
+                | (buf[offset + 1] & 0xFF) << 8
+                | (buf[offset + 2] & 0xFF) << 16
+                | (buf[offset + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.feedflow;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reassembles BinaryFrameCodec frames from an arbitrary byte stream.
+// Frames with a bad length or CRC are counted and dropped, and the reader
+// re-synchronises on the next SYNC byte instead of mis-parsing what follows.
+public class BinaryFrameReader {
+
+    public interface FrameListener {
+        // Payload slice is only valid during the call
+        void onFrame(int type, int seq, byte[] payload, int offset, int length);
+    }
+
+    private final byte[] frame = new byte[BinaryFrameCodec.MAX_FRAME_SIZE];
+    private final byte[] readBuffer;
+    private final FrameListener listener;
+    private int count = 0;
+
+    private long frameCount = 0;
+    private long crcErrorCount = 0;
+    private long skippedBytes = 0;
+
+    public BinaryFrameReader(int readBufferSize, FrameListener listener) {
+        this.readBuffer = new byte[readBufferSize];
+        this.listener = listener;
+    }
+
+    // Returns the number of bytes read, or -1 at end of stream
+    public int readFrom(InputStream in) throws IOException {
+        int n = in.read(readBuffer, 0, readBuffer.length);
+        if (n > 0) feed(readBuffer, 0, n);
+        return n;
+    }
+
+    public void feed(byte[] src, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = src[i];
+            if (count == 0 && (b & 0xFF) != BinaryFrameCodec.SYNC) {
+                skippedBytes++;
+                continue;
+            }
+            frame[count++] = b;
+            if (count >= 2) drain();
+        }
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getCrcErrorCount() {
+        return crcErrorCount;
+    }
+
+    public long getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    // Deliver or reject whatever complete frames are buffered
+    private void drain() {
+        while (count >= 2) {
+            int length = frame[1] & 0xFF;
+            if (length > BinaryFrameCodec.MAX_PAYLOAD) {
+                crcErrorCount++;
+                dropUntilSync(1);
+                continue;
+            }
+
+            int size = BinaryFrameCodec.HEADER_SIZE + length + BinaryFrameCodec.CRC_SIZE;
+            if (count < size) return;
+
+            int expected = BinaryFrameCodec.readU16(frame, size - BinaryFrameCodec.CRC_SIZE);
+            int actual = BinaryFrameCodec.crc16(frame, 1, size - 1 - BinaryFrameCodec.CRC_SIZE);
+
+            if (expected == actual) {
+                frameCount++;
+                if (listener != null) {
+                    listener.onFrame(frame[2] & 0xFF, BinaryFrameCodec.readU16(frame, 3),
+                            frame, BinaryFrameCodec.HEADER_SIZE, length);
+                }
+                skippedBytes -= size;   // consumed, not skipped
+                dropUntilSync(size);
+            } else {
+                crcErrorCount++;
+                dropUntilSync(1);
+            }
+        }
+    }
+
+    // Discard bytes before the next SYNC at or after 'from' and shift the rest down
+    private void dropUntilSync(int from) {
+        int next = from;
+        while (next < count && (frame[next] & 0xFF) != BinaryFrameCodec.SYNC) next++;
+        skippedBytes += next;
+        count -= next;
+        if (count > 0) System.arraycopy(frame, next, frame, 0, count);
+    }
+}
@@ -42,6 +42,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class BluetoothSerial extends Context {
 
@@ -53,10 +57,52 @@ public class BluetoothSerial extends Context {
     private InputStream inputStream;
     private ConnectionListener connectionListener;
 
-    private Thread readThread;
-    private volatile boolean reading;
+    // Connection state machine, driven by one link thread per connect() call
+    public enum State {DISCONNECTED, CONNECTING, CONNECTED, RECONNECTING}
+
+    private volatile State state = State.DISCONNECTED;
+    private volatile boolean wanted;          // keep reconnecting until disconnect()
+    private volatile String macAddress;
+    private volatile String deviceId = FeederIds.LEGACY_DOC_ID;
+    private volatile Thread linkThread;
+
+    // Shared with the other links of a pool: one timer thread, one page/connect at a time
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore connectGate;
+    private ScheduledFuture<?> watchdog;
+
+    private final Backoff backoff = new Backoff(INITIAL_BACKOFF_MS, MAX_BACKOFF_MS);
+    private volatile long silenceTimeoutMs = DEFAULT_SILENCE_TIMEOUT_MS;
+    private volatile long lastActivityAt;
+    private long connectedAt;
+    private boolean firstFrameSeen;
+
+    // Time from the start of an outage to an open socket, and from open socket to first frame
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+    private final LatencyHistogram firstFrameLatency = new LatencyHistogram();
+
+    // Every outbound byte goes through this single writer
+    private final CommandPipeline commands = new CommandPipeline(this::writeLine, ACK_TIMEOUT_MS, MAX_COMMAND_ATTEMPTS);
+
+    // Text lines until the firmware accepts the binary handshake
+    private final LineFramer lineFramer = new LineFramer(READ_BUFFER_SIZE, this::onLineReceived);
+    private final BinaryFrameReader frameReader = new BinaryFrameReader(READ_BUFFER_SIZE, this::onFrameReceived);
+    private final TelemetryDecoder textDecoder = new TelemetryDecoder();
+    private final TelemetryFrame frame = new TelemetryFrame();
+    private volatile boolean binaryProtocol;
+    private boolean switchToBinary;
+    private long handshakeDeadline;
 
     private static final UUID BT_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+    private static final int READ_BUFFER_SIZE = 1024;
+    private static final long HANDSHAKE_TIMEOUT_MS = 2000;
+    private static final byte[] HANDSHAKE_BINARY = BinaryFrameCodec.HANDSHAKE_BINARY.getBytes();
+    private static final long INITIAL_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long DEFAULT_SILENCE_TIMEOUT_MS = 15_000;
+    private static final long WATCHDOG_PERIOD_MS = 1000;
+    private static final long ACK_TIMEOUT_MS = 1500;
+    private static final int MAX_COMMAND_ATTEMPTS = 3;
     private DataCallback callback;
 
     public InputStream getInputStream() {
@@ -600,28 +646,24 @@ public class BluetoothSerial extends Context {
         return false;
     }
 
-    public void send(byte[] bytes) {
-            try {
-                if (outputStream != null) {
-                    outputStream.write(bytes);     // send raw bytes
-                    outputStream.flush();          // ensure data is pushed
-                    Log.d("BT_SERIAL", "Sent: " + new String(bytes));
-                } else {
-                    Log.e("BT_SERIAL", "OutputStream is null — cannot send");
-                }
-            } catch (Exception e) {
-                Log.e("BT_SERIAL", "Send error", e);
-            }
-    }
-
     public interface DataCallback {
-        void onDataReceived(byte[] data);
-        void onConnectionFailed(Exception e);
-        void onDisconnected();
+        // Decoded sample from either protocol; the frame is reused, copy what you keep
+        void onTelemetry(TelemetryFrame frame);
+
+        // Text lines that are not telemetry. Slice into the reader's buffer:
+        // copy anything that must outlive the call
+        default void onDataReceived(byte[] buffer, int offset, int length) {}
+
+        default void onConnected() {}
+        default void onConnectionFailed(Exception e) {}   // one failed attempt, a retry follows
+        default void onDisconnected() {}
+        default void onStateChanged(State state) {}
     }
 
-    public BluetoothSerial(Context context) {
+    public BluetoothSerial(Context context, ScheduledExecutorService scheduler, Semaphore connectGate) {
         this.context = context;
+        this.scheduler = scheduler;
+        this.connectGate = connectGate;
         btAdapter = BluetoothAdapter.getDefaultAdapter();
     }
 
@@ -629,111 +671,336 @@ public class BluetoothSerial extends Context {
         this.callback = callback;
     }
 
-    public void connect(String macAddress) {
-        new Thread(() -> {
+    // ------------------------------------------------------------
+    // Connection state machine
+    //
+    //   DISCONNECTED -> CONNECTING -> CONNECTED -> RECONNECTING -> CONNECTED ...
+    //
+    // connect() starts one link thread that opens the socket, reads until the link
+    // fails or goes silent, then backs off and tries again until disconnect().
+    // ------------------------------------------------------------
+    public synchronized void connect(String macAddress) {
+        if (wanted && macAddress.equals(this.macAddress)) return;   // already on it
+        if (wanted) disconnect();
+
+        this.macAddress = macAddress;
+        this.deviceId = FeederIds.docIdFor(macAddress);
+        wanted = true;
+        backoff.reset();
+
+        commands.start();
+        linkThread = new Thread(this::runLink, "bt-link");
+        linkThread.start();
+
+        watchdog = scheduler.scheduleAtFixedRate(this::checkSilence,
+                WATCHDOG_PERIOD_MS, WATCHDOG_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Reconnect proactively when nothing arrives for this long (0 disables)
+    public void setSilenceTimeout(long millis) {
+        silenceTimeoutMs = millis;
+    }
+
+    private void runLink() {
+        long outageStart = System.currentTimeMillis();
+        setState(State.CONNECTING);
+
+        while (isCurrentLink()) {
+            boolean wasConnected = false;
+            BluetoothSocket socket = null;
             try {
-                btDevice = btAdapter.getRemoteDevice(macAddress);
-                if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
-                    // TODO: Consider calling
-                    //    ActivityCompat#requestPermissions
-                    // here to request the missing permissions, and then overriding
-                    //   public void onRequestPermissionsResult(int requestCode, String[] permissions,
-                    //                                          int[] grantResults)
-                    // to handle the case where the user grants the permission. See the documentation
-                    // for ActivityCompat#requestPermissions for more details.
-                    return;
+                // The adapter pages one device at a time; a fair gate gives every link its turn
+                connectGate.acquire();
+                try {
+                    socket = openSocket();
+                } finally {
+                    connectGate.release();
                 }
-                btSocket = btDevice.createRfcommSocketToServiceRecord(BT_UUID);
-                btAdapter.cancelDiscovery();
-                btSocket.connect();
 
+                long now = System.currentTimeMillis();
+                connectLatency.record(now - outageStart);
+                connectedAt = now;
+                lastActivityAt = now;
+                firstFrameSeen = false;
+                backoff.reset();
+                wasConnected = true;
+
+                setState(State.CONNECTED);
+                if (callback != null) callback.onConnected();
 
-                outputStream = btSocket.getOutputStream();
-                inputStream = btSocket.getInputStream();
+                // Offer the binary protocol; old firmware ignores this and keeps sending text
+                commands.post(BinaryFrameCodec.HANDSHAKE_REQUEST);
 
-                startReading();
+                readLoop();
             } catch (Exception e) {
-                Log.e("BT_SERIAL", "Connection failed", e);
-                if (callback != null) callback.onConnectionFailed(e);
+                if (isCurrentLink()) {
+                    Log.e("BT_SERIAL", wasConnected ? "Lost connection while reading" : "Connection failed", e);
+                    if (!wasConnected && callback != null) callback.onConnectionFailed(e);
+                }
             }
-        }).start();
-    }
-    
-    private void startReading() {
-        reading = true;
-        readThread = new Thread(() -> {
-            StringBuilder sb = new StringBuilder();
-            byte[] buffer = new byte[1024];
-            int bytes;
 
-            try {
-                while (reading && inputStream != null) {
-                    try {
-                        bytes = inputStream.read(buffer);  // ← will throw if ESP32 disconnects
-
-                        if (bytes > 0) {
-                            String part = new String(buffer, 0, bytes);
-                            sb.append(part);
-
-                            int index;
-                            while ((index = sb.indexOf("\n")) != -1) {
-                                String line = sb.substring(0, index).trim();
-                                sb.delete(0, index + 1);
-
-                                if (!line.isEmpty() && callback != null) {
-                                    callback.onDataReceived(line.getBytes());
-                                }
-                            }
-                        }
-
-                    } catch (Exception ex) {
-                        Log.e("BT_SERIAL", "Lost connection while reading", ex);
-
-                        if (connectionListener != null) {
-                            connectionListener.onDisconnected();   // Notify Activity
-                        }
-
-                        break;  // exit reading loop
-                    }
+            boolean current = isCurrentLink();   // false after disconnect() or a newer connect()
+            if (current) closeSocket();
+            else close(socket);   // btSocket may already be a newer link's
+
+            if (wasConnected) {
+                outageStart = System.currentTimeMillis();
+                if (callback != null) callback.onDisconnected();
+                if (connectionListener != null) {
+                    connectionListener.onDisconnected();   // Notify Activity
                 }
+            }
+            if (!current) break;
 
-            } finally {
-                disconnect();  // cleanup
+            setState(State.RECONNECTING);
+            long delay = backoff.next();
+            Log.d("BT_SERIAL", "Reconnecting to " + macAddress + " in " + delay + " ms (attempt " + backoff.getAttempt() + ")");
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                break;
             }
-        });
+        }
+
+    }
+
+    private boolean isCurrentLink() {
+        return wanted && linkThread == Thread.currentThread();
+    }
+
+    private BluetoothSocket openSocket() throws IOException {
+        if (btAdapter == null) throw new IOException("Bluetooth not supported");
 
-        readThread.start();
+        btDevice = btAdapter.getRemoteDevice(macAddress);
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED) {
+            throw new IOException("BLUETOOTH_CONNECT permission not granted");
+        }
+
+        BluetoothSocket socket = btDevice.createRfcommSocketToServiceRecord(BT_UUID);
+        btAdapter.cancelDiscovery();
+        btSocket = socket;   // disconnect() closes it to abort a blocking connect
+        try {
+            socket.connect();
+            if (!isCurrentLink()) throw new IOException("Connect cancelled");
+        } catch (IOException e) {
+            close(socket);   // no one else closes it once this is not the current link
+            throw e;
+        }
+
+        outputStream = socket.getOutputStream();
+        inputStream = socket.getInputStream();
+        return socket;
     }
 
+    private void readLoop() throws IOException {
+        InputStream in = inputStream;
+        binaryProtocol = false;
+        switchToBinary = false;
+        handshakeDeadline = System.currentTimeMillis() + HANDSHAKE_TIMEOUT_MS;
+        lineFramer.reset();
+        frameReader.reset();
 
-    public synchronized void send(String msg) {
         try {
-            if (outputStream != null) {
-                outputStream.write(msg.getBytes());
+            while (isCurrentLink()) {
+                // ← will throw if ESP32 disconnects or the watchdog closes the socket
+                int bytes = binaryProtocol
+                        ? frameReader.readFrom(in)
+                        : lineFramer.readFrom(in);
+                if (bytes < 0) {
+                    throw new IOException("Stream closed by remote device");
+                }
+
+                if (switchToBinary) {
+                    switchToBinary = false;
+                    binaryProtocol = true;
+                    lineFramer.drainTo(frameReader::feed);  // bytes after the handshake line
+                    Log.i("BT_SERIAL", "Firmware accepted binary protocol");
+                } else if (handshakeDeadline != 0 && System.currentTimeMillis() > handshakeDeadline) {
+                    handshakeDeadline = 0;
+                    if (!binaryProtocol) Log.i("BT_SERIAL", "No handshake reply, using text protocol");
+                }
             }
-        } catch (Exception e) {
-            Log.e("BT_SERIAL", "Send error", e);
+        } finally {
+            if (lineFramer.getOverflowCount() > 0 || textDecoder.getMalformedCount() > 0
+                    || frameReader.getCrcErrorCount() > 0) {
+                Log.w("BT_SERIAL", "Dropped: " + lineFramer.getOverflowCount() + " oversized lines, "
+                        + textDecoder.getMalformedCount() + " malformed lines, "
+                        + frameReader.getCrcErrorCount() + " corrupt frames");
+            }
+        }
+    }
+
+    // Watchdog: a silent link is as good as a dead one, drop it and let runLink reconnect
+    private void checkSilence() {
+        long timeout = silenceTimeoutMs;
+        if (state != State.CONNECTED || timeout <= 0) return;
+
+        long silentFor = System.currentTimeMillis() - lastActivityAt;
+        if (silentFor > timeout) {
+            Log.w("BT_SERIAL", "No data for " + silentFor + " ms, reconnecting");
+            closeSocket();
+        }
+    }
+
+    private void onActivity() {
+        long now = System.currentTimeMillis();
+        lastActivityAt = now;
+        if (!firstFrameSeen) {
+            firstFrameSeen = true;
+            firstFrameLatency.record(now - connectedAt);
         }
     }
 
+    private void setState(State newState) {
+        if (state == newState) return;
+        state = newState;
+        Log.d("BT_SERIAL", "State: " + newState);
+        if (callback != null) callback.onStateChanged(newState);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getMacAddress() {
+        return macAddress;
+    }
+
+    public String getDeviceId() {
+        return deviceId;
+    }
+
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    public LatencyHistogram getFirstFrameLatency() {
+        return firstFrameLatency;
+    }
+
+    // ------------------------------------------------------------
+    // Read thread dispatch
+    // ------------------------------------------------------------
+    private void onLineReceived(byte[] buffer, int offset, int length) {
+        onActivity();
+        if (matches(buffer, offset, length, HANDSHAKE_BINARY)) {
+            switchToBinary = true;
+            lineFramer.stop();
+            return;
+        }
+        if (commands.onLine(buffer, offset, length)) return;
+
+        if (textDecoder.decode(buffer, offset, length, frame)) {
+            frame.timestamp = System.currentTimeMillis();
+            frame.deviceId = deviceId;
+            if (callback != null) callback.onTelemetry(frame);
+        } else if (callback != null) {
+            callback.onDataReceived(buffer, offset, length);
+        }
+    }
+
+    private void onFrameReceived(int type, int seq, byte[] payload, int offset, int length) {
+        onActivity();
+        if (type == BinaryFrameCodec.TYPE_ACK) {
+            if (length >= BinaryFrameCodec.ACK_SIZE) commands.onAck(BinaryFrameCodec.readU16(payload, offset));
+            return;
+        }
+        if (BinaryFrameCodec.decode(type, seq, payload, offset, length, frame)) {
+            frame.timestamp = System.currentTimeMillis();
+            frame.deviceId = deviceId;
+            if (callback != null) callback.onTelemetry(frame);
+        }
+    }
+
+    private static boolean matches(byte[] buffer, int offset, int length, byte[] expected) {
+        if (length != expected.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (buffer[offset + i] != expected[i]) return false;
+        }
+        return true;
+    }
+
+    public boolean isBinaryProtocol() {
+        return binaryProtocol;
+    }
+
+    public long getMalformedCount() {
+        return textDecoder.getMalformedCount();
+    }
+
+    public long getCorruptFrameCount() {
+        return frameReader.getCrcErrorCount();
+    }
+
+    // ------------------------------------------------------------
+    // Outbound commands
+    // ------------------------------------------------------------
+
+    // Acked command, e.g. sendCommand("FEED_NOW", "5", listener) -> "FEED_NOW:5;SEQ:n"
+    public CommandPipeline.Command sendCommand(String name, String argument, CommandPipeline.Listener listener) {
+        Log.d("BT_SERIAL", "Queued: " + name + ":" + argument);
+        return commands.submit(name, argument, listener);
+    }
+
+    // Raw text, no ack
+    public void send(String msg) {
+        commands.post(msg);
+    }
+
+    public CommandPipeline getCommands() {
+        return commands;
+    }
+
+    // Writer thread only
+    private void writeLine(byte[] buffer, int offset, int length) throws IOException {
+        OutputStream out = outputStream;
+        if (out == null) throw new IOException("Not connected");
+        out.write(buffer, offset, length);
+        out.flush();
+    }
+
     public void disconnect() {
-        reading = false;
-        if (readThread != null) {
-            readThread.interrupt();
-            readThread = null;
+        Thread thread;
+        synchronized (this) {
+            wanted = false;
+            thread = linkThread;
+            linkThread = null;
+            if (watchdog != null) {
+                watchdog.cancel(false);
+                watchdog = null;
+            }
+        }
+        closeSocket();                              // unblocks a pending read or connect
+        if (thread != null) thread.interrupt();    // cuts a backoff sleep short
+        commands.stop();
+        setState(State.DISCONNECTED);
+
+        if (connectLatency.getCount() > 0) {
+            Log.i("BT_SERIAL", "Time to connect: " + connectLatency + ", to first frame: " + firstFrameLatency);
+        }
+        if (commands.getRoundTrip().getCount() > 0 || commands.getFailedCount() > 0) {
+            Log.i("BT_SERIAL", "Command round trip: " + commands.getRoundTrip() + ", retries="
+                    + commands.getRetryCount() + " failed=" + commands.getFailedCount());
         }
+    }
+
+    private void closeSocket() {
+        BluetoothSocket socket = btSocket;
+        btSocket = null;
+        outputStream = null;
+        inputStream = null;
+        close(socket);
+    }
+
+    private static void close(@Nullable BluetoothSocket socket) {
         try {
-            if (btSocket != null) {
-                btSocket.close();
-                btSocket = null;
-            }
-            if (callback != null) callback.onDisconnected();
+            if (socket != null) socket.close();
         } catch (Exception e) {
             Log.e("BT_SERIAL", "Disconnect error", e);
         }
     }
 
     public boolean isConnected() {
-        return btSocket != null && btSocket.isConnected();
+        return state == State.CONNECTED;
     }
 }
@@ -0,0 +1,482 @@
+package com.example.feedflow;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.content.pm.ServiceInfo;
+import android.os.Binder;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+
+// Owns the Bluetooth links to the ESP32 feeders for the whole process.
+// Screens bind, attach a DataCallback while visible and detach when they go away;
+// the sockets and their read threads keep running across navigation.
+//
+// Connection pool: up to MAX_LINKS feeders at once, one BluetoothSerial each with
+// its own framer and reader. Every link publishes onto the one TelemetryBus with
+// frames stamped by device, so recorders write to FeedFlow/<deviceId>.
+// The links share one watchdog timer and a fair connect gate, so a feeder that keeps
+// failing cannot starve the others of the adapter. The last feeder connected is the
+// "primary" one: screens follow it and see only its connection events.
+public class BluetoothService extends Service {
+
+    private static final String CHANNEL_ID = "bluetooth_channel";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final int PERSISTENCE_QUEUE_SIZE = 512;
+    private static final int ALERT_QUEUE_SIZE = 64;
+    private static final int STORE_QUEUE_SIZE = 512;
+    private static final int MAX_LINKS = 7;   // active devices in one classic Bluetooth piconet
+
+    private final IBinder binder = new LocalBinder();
+    private final CopyOnWriteArrayList<BluetoothSerial.DataCallback> listeners = new CopyOnWriteArrayList<>();
+
+    private final TelemetryBus bus = new TelemetryBus();
+    private TelemetryBus.QueueChannel persistenceLane;
+    private TelemetryRecorder recorder;
+    private TelemetryJournal journal;
+    private JournalUploader uploader;
+    private TelemetryBus.QueueChannel alertLane;
+    private TelemetryBus.QueueChannel storeLane;
+    private LocalStoreWriter storeWriter;
+    private final LiveHistory liveHistory = new LiveHistory();
+
+    private final Map<String, BluetoothSerial> links = new LinkedHashMap<>();
+    private final ScheduledExecutorService linkTimer = Executors.newSingleThreadScheduledExecutor();
+    private final Semaphore connectGate = new Semaphore(1, true);
+    private final CopyOnWriteArrayList<TelemetryBus.LatestChannel> primaryChannels = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Runnable> primaryListeners = new CopyOnWriteArrayList<>();
+    private volatile String primaryAddress;
+
+    public class LocalBinder extends Binder {
+        public BluetoothService getService() {
+            return BluetoothService.this;
+        }
+    }
+
+    // Keeps the service (and the link) alive after the starting activity finishes
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, BluetoothService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        recorder = new TelemetryRecorder(db);
+        persistenceLane = bus.subscribeQueue("persistence", PERSISTENCE_QUEUE_SIZE, openJournal());
+        alertLane = bus.subscribeQueue("alerts", ALERT_QUEUE_SIZE, new FeedAlertMonitor(db));
+        storeWriter = new LocalStoreWriter(TelemetryStore.get(this));
+        storeLane = bus.subscribeQueue("store", STORE_QUEUE_SIZE, storeWriter);
+        bus.subscribeDirect(liveHistory);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        createNotificationChannel();
+        int type = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE : 0;
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(), type);
+        return START_STICKY;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        super.onTaskRemoved(rootIntent);
+        stopSelf();
+    }
+
+    @Override
+    public void onDestroy() {
+        disconnectAll();
+        linkTimer.shutdownNow();
+        listeners.clear();
+        if (persistenceLane.getOverflowCount() > 0 || alertLane.getOverflowCount() > 0
+                || storeLane.getOverflowCount() > 0) {
+            Log.w("BT_SERVICE", "Bus overflow: persistence=" + persistenceLane.getOverflowCount()
+                    + " alerts=" + alertLane.getOverflowCount() + " store=" + storeLane.getOverflowCount());
+        }
+        bus.close();
+        Log.i("BT_SERVICE", "Chunk sample filter: " + recorder.getSampleFilter());
+        storeWriter.close();
+        if (uploader != null) {
+            uploader.stop();
+            Log.i("BT_SERVICE", "Journal: uploaded " + uploader.getUploadedCount() + ", backlog "
+                    + journal.getBacklog() + ", dropped " + journal.getDroppedCount()
+                    + ", corrupt " + journal.getCorruptCount() + ". Upload lag " + uploader.getCatchUpLag());
+            journal.close();
+        }
+        recorder.close();
+        super.onDestroy();
+    }
+
+    // Every frame goes to the on-disk journal first; the uploader drains it to the
+    // recorder, so readings survive being offline for hours and app restarts.
+    // Without a journal the lane writes straight to the recorder.
+    private TelemetryBus.Subscriber openJournal() {
+        try {
+            journal = new TelemetryJournal(new File(getFilesDir(), "journal"));
+        } catch (IOException e) {
+            Log.e("BT_SERVICE", "Journal unavailable, uploading directly", e);
+            return recorder;
+        }
+        if (journal.getBacklog() > 0) Log.i("BT_SERVICE", "Journal backlog: " + journal.getBacklog());
+        uploader = new JournalUploader(journal, recorder);
+        return frame -> {
+            try {
+                journal.append(frame);
+            } catch (IOException e) {
+                Log.e("BT_SERVICE", "Journal append failed", e);
+            }
+        };
+    }
+
+    // ------------------------------------------------------------
+    // Connection pool, shared by every screen
+    // ------------------------------------------------------------
+
+    // Adds the feeder to the pool (or keeps its link) and makes it primary.
+    // Idempotent while that link is up or reconnecting. False when the pool is full.
+    public boolean connect(String macAddress) {
+        BluetoothSerial serial;
+        synchronized (this) {
+            serial = links.get(macAddress);
+            if (serial == null) {
+                if (links.size() >= MAX_LINKS) {
+                    Log.w("BT_SERVICE", "Pool full (" + MAX_LINKS + "), not connecting " + macAddress);
+                    return false;
+                }
+                serial = new BluetoothSerial(this, linkTimer, connectGate);
+                serial.setCallbacks(new LinkCallback(macAddress));
+                links.put(macAddress, serial);
+            }
+        }
+        setPrimary(macAddress);
+
+        if (serial.getState() == BluetoothSerial.State.DISCONNECTED) {
+            Log.d("BT_SERVICE", "Connecting to " + macAddress + " (" + getLinkCount() + " links)");
+            serial.connect(macAddress);
+        }
+        return true;
+    }
+
+    // Drops the feeder from the pool
+    public void disconnect(String macAddress) {
+        BluetoothSerial serial;
+        synchronized (this) {
+            serial = links.remove(macAddress);
+        }
+        if (serial != null) serial.disconnect();
+    }
+
+    public void disconnectAll() {
+        List<BluetoothSerial> all;
+        synchronized (this) {
+            all = new ArrayList<>(links.values());
+            links.clear();
+        }
+        for (BluetoothSerial serial : all) serial.disconnect();
+    }
+
+    public synchronized int getLinkCount() {
+        return links.size();
+    }
+
+    public synchronized List<String> getDeviceAddresses() {
+        return new ArrayList<>(links.keySet());
+    }
+
+    @Nullable
+    public synchronized BluetoothSerial getSerial(String macAddress) {
+        return links.get(macAddress);
+    }
+
+    // ------------------------------------------------------------
+    // Primary feeder, the one the screens show
+    // ------------------------------------------------------------
+    private void setPrimary(String macAddress) {
+        boolean changed = !macAddress.equals(primaryAddress);
+        primaryAddress = macAddress;
+        String deviceId = FeederIds.docIdFor(macAddress);
+        for (TelemetryBus.LatestChannel channel : primaryChannels) channel.setDeviceFilter(deviceId);
+        if (!changed) return;
+        Executor main = ContextCompat.getMainExecutor(this);
+        for (Runnable listener : primaryListeners) main.execute(listener);
+    }
+
+    // Runs on the main thread whenever another feeder becomes primary, so screens
+    // reading the primary feeder's history can query it again
+    public void addPrimaryListener(Runnable listener) {
+        primaryListeners.addIfAbsent(listener);
+    }
+
+    public void removePrimaryListener(Runnable listener) {
+        primaryListeners.remove(listener);
+    }
+
+    public boolean isConnected() {
+        BluetoothSerial serial = getSerial();
+        return serial != null && serial.isConnected();
+    }
+
+    public BluetoothSerial.State getState() {
+        BluetoothSerial serial = getSerial();
+        return serial != null ? serial.getState() : BluetoothSerial.State.DISCONNECTED;
+    }
+
+    @Nullable
+    public String getDeviceAddress() {
+        return primaryAddress;
+    }
+
+    // Firestore document of the primary feeder
+    public String getDeviceId() {
+        return FeederIds.docIdFor(primaryAddress);
+    }
+
+    @Nullable
+    public BluetoothSerial getSerial() {
+        String address = primaryAddress;
+        return address != null ? getSerial(address) : null;
+    }
+
+    // Sends FEED_NOW to the primary feeder. The feed session is created here when
+    // the feeder acks, whether or not a screen is still listening; 'listener' is for
+    // the UI only. Returns false when no feeder is connected.
+    public boolean feedNow(int amountKg, CommandPipeline.Listener listener) {
+        BluetoothSerial serial = getSerial();
+        if (serial == null) return false;
+        String deviceId = getDeviceId();
+        Log.d("BT_SEND", "Sending: FEED_NOW:" + amountKg);
+        serial.sendCommand("FEED_NOW", String.valueOf(amountKg), new CommandPipeline.Listener() {
+            @Override
+            public void onAcked(CommandPipeline.Command command, long roundTripMs) {
+                Log.d("BT_SEND", "FEED_NOW acked in " + roundTripMs + " ms (attempt " + command.getAttempts() + ")");
+                FeedSessions.start(FirebaseFirestore.getInstance(), deviceId, command.getSeq(), amountKg);
+                listener.onAcked(command, roundTripMs);
+            }
+
+            @Override
+            public void onFailed(CommandPipeline.Command command) {
+                listener.onFailed(command);
+            }
+        });
+        return true;
+    }
+
+    public TelemetryBus getBus() {
+        return bus;
+    }
+
+    // Last hour or so of readings per feeder, in memory
+    public LiveHistory getLiveHistory() {
+        return liveHistory;
+    }
+
+    // Latest-value channel that follows the primary feeder
+    public TelemetryBus.LatestChannel subscribePrimary(Executor executor, TelemetryBus.Subscriber subscriber) {
+        TelemetryBus.LatestChannel channel = bus.subscribeLatest(executor, subscriber);
+        channel.setDeviceFilter(getDeviceId());
+        primaryChannels.add(channel);
+        return channel;
+    }
+
+    public void unsubscribe(TelemetryBus.LatestChannel channel) {
+        primaryChannels.remove(channel);
+        bus.unsubscribe(channel);
+    }
+
+    public void attach(BluetoothSerial.DataCallback listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void detach(BluetoothSerial.DataCallback listener) {
+        listeners.remove(listener);
+    }
+
+    // Frames from every link go out on the bus; connection events of the
+    // primary link go to whoever is attached
+    private class LinkCallback implements BluetoothSerial.DataCallback {
+
+        private final String macAddress;
+
+        LinkCallback(String macAddress) {
+            this.macAddress = macAddress;
+        }
+
+        private boolean isPrimary() {
+            return macAddress.equals(primaryAddress);
+        }
+
+        @Override
+        public void onTelemetry(TelemetryFrame frame) {
+            bus.publish(frame);
+        }
+
+        @Override
+        public void onDataReceived(byte[] buffer, int offset, int length) {
+            if (!isPrimary()) return;
+            for (BluetoothSerial.DataCallback l : listeners) l.onDataReceived(buffer, offset, length);
+        }
+
+        @Override
+        public void onConnected() {
+            if (!isPrimary()) return;
+            for (BluetoothSerial.DataCallback l : listeners) l.onConnected();
+        }
+
+        @Override
+        public void onConnectionFailed(Exception e) {
+            if (!isPrimary()) return;
+            for (BluetoothSerial.DataCallback l : listeners) l.onConnectionFailed(e);
+        }
+
+        @Override
+        public void onDisconnected() {
+            if (!isPrimary()) return;
+            for (BluetoothSerial.DataCallback l : listeners) l.onDisconnected();
+        }
+
+        @Override
+        public void onStateChanged(BluetoothSerial.State state) {
+            if (!isPrimary()) return;
+            for (BluetoothSerial.DataCallback l : listeners) l.onStateChanged(state);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Foreground notification
+    // ------------------------------------------------------------
+    private void createNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(
+                    CHANNEL_ID,
+                    "Feeder connection",
+                    NotificationManager.IMPORTANCE_LOW
+            );
+            channel.setDescription("Keeps the feeder connected while the app is open");
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            if (manager != null) {
+                manager.createNotificationChannel(channel);
+            }
+        }
+    }
+
+    private Notification buildNotification() {
+        Intent intent = new Intent(this, HomeActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+                this, 0, intent, PendingIntent.FLAG_IMMUTABLE
+        );
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_bluetooth)
+                .setContentTitle("FeedFlow")
+                .setContentText("Connected to feeder")
+                .setOngoing(true)
+                .setContentIntent(pendingIntent)
+                .build();
+    }
+
+    // ------------------------------------------------------------
+    // Binding helper for activities and fragments.
+    // onTelemetry is delivered on the main thread through a conflating
+    // bus channel that follows the primary feeder; connection events
+    // arrive on the Bluetooth threads. onBound and onPrimaryChanged run
+    // on the main thread.
+    // ------------------------------------------------------------
+    public static class Binding implements ServiceConnection {
+
+        private final BluetoothSerial.DataCallback callback;
+        private Runnable onBound;
+        private Runnable onPrimaryChanged;
+        private volatile BluetoothService service;
+        private TelemetryBus.LatestChannel channel;
+        private boolean bound;
+
+        public Binding(BluetoothSerial.DataCallback callback) {
+            this.callback = callback;
+        }
+
+        // Runs on the main thread each time the service becomes available
+        public Binding setOnBound(Runnable onBound) {
+            this.onBound = onBound;
+            return this;
+        }
+
+        // Runs on the main thread when another feeder becomes primary while bound
+        public Binding setOnPrimaryChanged(Runnable onPrimaryChanged) {
+            this.onPrimaryChanged = onPrimaryChanged;
+            return this;
+        }
+
+        public void bind(Context context) {
+            if (bound) return;
+            bound = context.bindService(new Intent(context, BluetoothService.class), this, Context.BIND_AUTO_CREATE);
+        }
+
+        public void unbind(Context context) {
+            if (!bound) return;
+            if (service != null) {
+                service.detach(callback);
+                service.unsubscribe(channel);
+                if (onPrimaryChanged != null) service.removePrimaryListener(onPrimaryChanged);
+            }
+            service = null;
+            channel = null;
+            bound = false;
+            context.unbindService(this);
+        }
+
+        @Nullable
+        public BluetoothService getService() {
+            return service;
+        }
+
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            service = ((LocalBinder) binder).getService();
+            service.attach(callback);
+            channel = service.subscribePrimary(
+                    ContextCompat.getMainExecutor(service), callback::onTelemetry);
+            if (onPrimaryChanged != null) service.addPrimaryListener(onPrimaryChanged);
+            if (onBound != null) onBound.run();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.feedflow;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Single writer for everything that goes to the ESP32.
+//
+// Commands are written by one thread, in submission order. Those that need an ack
+// carry a sequence id ("FEED_NOW:5;SEQ:12") and are re-sent with the same id until
+// the firmware answers "ACK:12" or the attempts run out. Only one acked command is
+// in flight at a time, which keeps the device-side order identical to ours.
+//
+// Firmware contract: it remembers the id of the last command it executed and acks
+// a command carrying that id again without running it, so a lost ack never feeds
+// twice. Ids are u16 (1..65535, 0 means none) and must therefore not repeat across
+// links or app restarts: each pipeline starts at a random id and counts up from it,
+// so a new link never re-sends the id the device last executed (1 in 65535 chance).
+//
+// Posted text without an id goes out right away, even while an ack is pending.
+// Setting-style commands may coalesce: a newer value replaces one still queued.
+// FEED_NOW never coalesces, two taps are two feeds.
+public class CommandPipeline {
+
+    public interface Transport {
+        // Writes and flushes one whole command line
+        void write(byte[] buffer, int offset, int length) throws IOException;
+    }
+
+    public interface Listener {
+        // Called on the reader thread for acks, on the writer thread for failures
+        void onAcked(Command command, long roundTripMs);
+
+        default void onFailed(Command command) {}
+    }
+
+    public enum Status {QUEUED, SENT, ACKED, FAILED}
+
+    public static final class Command {
+        private final String name;
+        private String argument;
+        private final boolean needsAck;
+        private final boolean coalesce;
+        private final Listener listener;
+
+        private volatile Status status = Status.QUEUED;
+        private int seq = -1;
+        private int attempts = 0;
+        private long submittedAt;
+        private long sentAt;
+
+        Command(String name, String argument, boolean needsAck, boolean coalesce, Listener listener) {
+            this.name = name;
+            this.argument = argument;
+            this.needsAck = needsAck;
+            this.coalesce = coalesce;
+            this.listener = listener;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public synchronized String getArgument() {
+            return argument;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public synchronized int getSeq() {
+            return seq;
+        }
+
+        public synchronized int getAttempts() {
+            return attempts;
+        }
+    }
+
+    private static final int MAX_LINE = 128;
+    private static final byte[] ACK_PREFIX = {'A', 'C', 'K', ':'};
+
+    private final Transport transport;
+    private final long ackTimeoutMs;
+    private final int maxAttempts;
+
+    private final ArrayDeque<Command> queue = new ArrayDeque<>();
+    private Command inFlight;
+    private int nextSeq;
+    private volatile Thread writer;
+
+    private final byte[] line = new byte[MAX_LINE];   // writer thread only
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+
+    private long ackedCount = 0;
+    private long failedCount = 0;
+    private long retryCount = 0;
+    private long coalescedCount = 0;
+    private long writeErrorCount = 0;
+
+    public CommandPipeline(Transport transport, long ackTimeoutMs, int maxAttempts) {
+        this(transport, ackTimeoutMs, maxAttempts, new Random().nextInt(0xFFFF) + 1);
+    }
+
+    // firstSeq: the id of the first acked command, 1..65535 (tests)
+    public CommandPipeline(Transport transport, long ackTimeoutMs, int maxAttempts, int firstSeq) {
+        if (firstSeq < 1 || firstSeq > 0xFFFF) throw new IllegalArgumentException("firstSeq " + firstSeq);
+        this.transport = transport;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.nextSeq = firstSeq;
+    }
+
+    public synchronized void start() {
+        if (writer != null) return;
+        writer = new Thread(this::run, "bt-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Stops the writer and fails whatever has not been acked yet
+    public void stop() {
+        List<Command> dropped = new ArrayList<>();
+        synchronized (this) {
+            if (writer == null) return;
+            if (inFlight != null) dropped.add(inFlight);
+            dropped.addAll(queue);
+            inFlight = null;
+            queue.clear();
+            writer.interrupt();
+            writer = null;
+            notifyAll();
+        }
+        for (Command command : dropped) fail(command);
+    }
+
+    // ------------------------------------------------------------
+    // Submission, from any thread
+    // ------------------------------------------------------------
+    public Command submit(String name, String argument, Listener listener) {
+        return enqueue(new Command(name, argument, true, false, listener));
+    }
+
+    // Latest value wins while the previous one is still waiting to be written
+    public Command submitCoalescing(String name, String argument, Listener listener) {
+        return enqueue(new Command(name, argument, true, true, listener));
+    }
+
+    // Fire and forget: no sequence id, no ack (handshake, legacy commands)
+    public Command post(String text) {
+        return enqueue(new Command(text, null, false, false, null));
+    }
+
+    private synchronized Command enqueue(Command command) {
+        if (command.coalesce) {
+            for (Command queued : queue) {
+                if (queued.coalesce && queued.name.equals(command.name)) {
+                    synchronized (queued) {
+                        queued.argument = command.argument;
+                    }
+                    coalescedCount++;
+                    return queued;
+                }
+            }
+        }
+        command.submittedAt = System.currentTimeMillis();
+        queue.add(command);
+        notifyAll();
+        return command;
+    }
+
+    // ------------------------------------------------------------
+    // Acks, from the reader thread
+    // ------------------------------------------------------------
+
+    // True if the line was an ack and has been consumed
+    public boolean onLine(byte[] buffer, int offset, int length) {
+        if (length <= ACK_PREFIX.length) return false;
+        for (int i = 0; i < ACK_PREFIX.length; i++) {
+            if (buffer[offset + i] != ACK_PREFIX[i]) return false;
+        }
+
+        int seq = 0;
+        for (int i = offset + ACK_PREFIX.length; i < offset + length; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || seq > 0xFFFF) return false;
+            seq = seq * 10 + digit;
+        }
+        onAck(seq);
+        return true;
+    }
+
+    public void onAck(int seq) {
+        Command acked;
+        long rtt;
+        synchronized (this) {
+            if (inFlight == null || inFlight.seq != seq) return;   // late duplicate of an older ack
+            acked = inFlight;
+            inFlight = null;
+            rtt = System.currentTimeMillis() - acked.sentAt;
+            roundTrip.record(rtt);
+            ackedCount++;
+            notifyAll();
+        }
+        acked.status = Status.ACKED;
+        if (acked.listener != null) acked.listener.onAcked(acked, rtt);
+    }
+
+    // ------------------------------------------------------------
+    // Writer thread
+    // ------------------------------------------------------------
+    private boolean isWriter() {
+        return writer == Thread.currentThread();   // a stop() and start() retire the old thread
+    }
+
+    private void run() {
+        while (isWriter()) {
+            Command next;
+            try {
+                next = takeNext();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (next == null) continue;
+
+            if (next.status == Status.FAILED) {
+                fail(next);
+            } else {
+                transmit(next);
+            }
+        }
+    }
+
+    // The next command to write, or one that just ran out of attempts (status FAILED)
+    private synchronized Command takeNext() throws InterruptedException {
+        while (isWriter()) {
+            long now = System.currentTimeMillis();
+
+            if (inFlight != null) {
+                long wait = inFlight.sentAt + ackTimeoutMs - now;
+                Command head = queue.peek();
+                if (wait > 0 && head != null && !head.needsAck) {
+                    // Posted text does not need the ack slot (e.g. the handshake after a reconnect)
+                    queue.poll();
+                    markSent(head, now);
+                    return head;
+                }
+                if (wait > 0) {
+                    wait(wait);
+                    continue;
+                }
+                Command expired = inFlight;
+                if (expired.attempts >= maxAttempts) {
+                    inFlight = null;
+                    expired.status = Status.FAILED;
+                    return expired;
+                }
+                retryCount++;
+                markSent(expired, now);
+                return expired;
+            }
+
+            Command command = queue.poll();
+            if (command == null) {
+                wait();
+                continue;
+            }
+            if (command.needsAck) {
+                synchronized (command) {
+                    command.seq = nextSeq;
+                }
+                nextSeq = nextSeq % 0xFFFF + 1;   // u16, 0 means "no id"
+                inFlight = command;
+            }
+            markSent(command, now);
+            return command;
+        }
+        return null;
+    }
+
+    private void markSent(Command command, long now) {
+        synchronized (command) {
+            command.attempts++;
+        }
+        command.sentAt = now;
+        command.status = Status.SENT;
+    }
+
+    private void transmit(Command command) {
+        int length = encode(command);
+        try {
+            transport.write(line, 0, length);
+        } catch (IOException e) {
+            // Link is down: an acked command times out and is re-sent after the reconnect
+            synchronized (this) {
+                writeErrorCount++;
+            }
+        }
+    }
+
+    private int encode(Command command) {
+        int n = put(command.name, 0);
+        String argument = command.getArgument();
+        if (argument != null) {
+            line[n++] = ':';
+            n = put(argument, n);
+        }
+        if (command.needsAck) {
+            n = put(";SEQ:", n);
+            n = put(Integer.toString(command.getSeq()), n);
+        }
+        if (n == 0 || line[n - 1] != '\n') line[n++] = '\n';
+        return n;
+    }
+
+    private int put(String text, int at) {
+        for (int i = 0; i < text.length() && at < MAX_LINE - 1; i++) {
+            line[at++] = (byte) text.charAt(i);
+        }
+        return at;
+    }
+
+    private void fail(Command command) {
+        command.status = Status.FAILED;
+        synchronized (this) {
+            failedCount++;
+        }
+        if (command.listener != null) command.listener.onFailed(command);
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    // Last attempt to ack, per acked command
+    public LatencyHistogram getRoundTrip() {
+        return roundTrip;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size() + (inFlight != null ? 1 : 0);
+    }
+
+    public synchronized long getAckedCount() {
+        return ackedCount;
+    }
+
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    public synchronized long getWriteErrorCount() {
+        return writeErrorCount;
+    }
+}
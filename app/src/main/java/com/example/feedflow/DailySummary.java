@@ -0,0 +1,123 @@
+package com.example.feedflow;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Per-day summary documents, FeedFlow/<deviceId>/daily/<yyyy-MM-dd> (phone's time zone):
+//
+//   slots.<15 min bucket start>   {min, max, sum, count, inBand, below, above}
+//   feeds.<completion time>       kg dispensed by that feed
+//
+// Every 15 min bucket and every finished feed is merged in under its own key, so
+// the day builds up incrementally and a replayed bucket or feed overwrites its own
+// entry instead of being counted twice. fold() turns one document into the day's
+// temperature min / max / mean, minutes in / below / above the optimal band and
+// total kg, so a week is exactly 7 document reads.
+public class DailySummary {
+
+    public static final String COLLECTION = "daily";
+    public static final double OPTIMAL_MIN = 25.0;
+    public static final double OPTIMAL_MAX = 30.0;
+
+    // Minutes in / below / above the band, per feeder and 15 min bucket
+    private final Map<String, int[]> bandMinutes = new HashMap<>();
+
+    public static final class Day {
+        public float min = Float.NaN;
+        public float max = Float.NaN;
+        public double sum;
+        public long count;
+        public long minutesInBand;
+        public long minutesBelow;
+        public long minutesAbove;
+        public double kgDispensed;
+        public int feeds;
+
+        public double mean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        public long minutes() {
+            return minutesInBand + minutesBelow + minutesAbove;
+        }
+    }
+
+    public static String dayId(long time, TimeZone zone) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        format.setTimeZone(zone);
+        return format.format(new Date(time));
+    }
+
+    // Classifies a closed 1 min rollup into its 15 min bucket
+    public void onMinute(RollupAggregator.Rollup minute) {
+        if (minute.temperature.count == 0) return;
+        long quarter = minute.start - Math.floorMod(minute.start, RollupAggregator.QUARTER_MS);
+        String key = minute.deviceId + "|" + quarter;
+        int[] minutes = bandMinutes.get(key);
+        if (minutes == null) {
+            minutes = new int[3];
+            bandMinutes.put(key, minutes);
+        }
+        double mean = minute.temperature.mean();
+        if (mean < OPTIMAL_MIN) minutes[1]++;
+        else if (mean > OPTIMAL_MAX) minutes[2]++;
+        else minutes[0]++;
+    }
+
+    // The slot entry of a closed 15 min rollup, with the band minutes collected for it
+    public Map<String, Object> slotEntry(RollupAggregator.Rollup quarter) {
+        int[] minutes = bandMinutes.remove(quarter.deviceId + "|" + quarter.start);
+        if (minutes == null) minutes = new int[3];
+
+        Map<String, Object> slot = new HashMap<>();
+        slot.put("min", (double) quarter.temperature.min);
+        slot.put("max", (double) quarter.temperature.max);
+        slot.put("sum", quarter.temperature.sum);
+        slot.put("count", (long) quarter.temperature.count);
+        slot.put("inBand", (long) minutes[0]);
+        slot.put("below", (long) minutes[1]);
+        slot.put("above", (long) minutes[2]);
+        return slot;
+    }
+
+    // Folds a daily document's fields (as read from Firestore) into the day's totals
+    public static Day fold(Map<String, Object> document) {
+        Day day = new Day();
+        Object slots = document.get("slots");
+        if (slots instanceof Map) {
+            for (Object value : ((Map<?, ?>) slots).values()) {
+                if (!(value instanceof Map)) continue;
+                Map<?, ?> slot = (Map<?, ?>) value;
+                long count = number(slot.get("count")).longValue();
+                if (count == 0) continue;
+
+                float min = number(slot.get("min")).floatValue();
+                float max = number(slot.get("max")).floatValue();
+                if (day.count == 0 || min < day.min) day.min = min;
+                if (day.count == 0 || max > day.max) day.max = max;
+                day.sum += number(slot.get("sum")).doubleValue();
+                day.count += count;
+                day.minutesInBand += number(slot.get("inBand")).longValue();
+                day.minutesBelow += number(slot.get("below")).longValue();
+                day.minutesAbove += number(slot.get("above")).longValue();
+            }
+        }
+
+        Object feeds = document.get("feeds");
+        if (feeds instanceof Map) {
+            for (Object kg : ((Map<?, ?>) feeds).values()) {
+                day.kgDispensed += number(kg).doubleValue();
+                day.feeds++;
+            }
+        }
+        return day;
+    }
+
+    private static Number number(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+}
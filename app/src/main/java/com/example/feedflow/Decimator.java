@@ -0,0 +1,156 @@
+package com.example.feedflow;
+
+// Downsamples a series (x ascending) to about the chart's pixel width, so what
+// the chart holds and draws is bounded by the screen, not by the data.
+//
+//   MIN_MAX  per pixel column, the lowest and highest point in time order; a
+//            spike is never lost (raw samples)
+//   LTTB     Largest-Triangle-Three-Buckets: 'pixels' points keeping the visual
+//            shape of the line (aggregated series)
+//
+// Only the window [fromX, toX] is decimated, plus one point on each side so the
+// line runs to the edges; zooming re-decimates the visible window. Output goes
+// to reused arrays read with x(i) / y(i). Not thread safe.
+public class Decimator {
+
+    public enum Mode { MIN_MAX, LTTB }
+
+    public interface Source {
+        int size();
+
+        float x(int index);
+
+        float y(int index);
+    }
+
+    private float[] outX = new float[0];
+    private float[] outY = new float[0];
+    private int size;
+
+    // Decimates the window into the output and returns the number of points
+    public int decimate(Source source, Mode mode, float fromX, float toX, int pixels) {
+        size = 0;
+        int lo = Math.max(0, lowerBound(source, fromX) - 1);
+        int hi = Math.min(source.size(), upperBound(source, toX) + 1);
+        int n = hi - lo;
+        if (n <= 0) return 0;
+        pixels = Math.max(pixels, 3);
+        ensureCapacity(Math.min(n, 2 * pixels + 2));
+
+        if (n <= (mode == Mode.LTTB ? pixels : 2 * pixels)) {
+            for (int i = lo; i < hi; i++) emit(source, i);
+        } else if (mode == Mode.LTTB) {
+            lttb(source, lo, hi, pixels);
+        } else {
+            minMax(source, lo, hi, fromX, toX, pixels);
+        }
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float x(int index) {
+        return outX[index];
+    }
+
+    public float y(int index) {
+        return outY[index];
+    }
+
+    private void minMax(Source source, int lo, int hi, float fromX, float toX, int pixels) {
+        float width = (toX - fromX) / pixels;
+        int i = lo;
+        while (i < hi) {
+            // Column of point i; the points outside the window get a column of their own
+            long column = (long) Math.floor((source.x(i) - fromX) / width);
+            int min = i, max = i;
+            int j = i + 1;
+            while (j < hi && (long) Math.floor((source.x(j) - fromX) / width) == column) {
+                if (source.y(j) < source.y(min)) min = j;
+                if (source.y(j) > source.y(max)) max = j;
+                j++;
+            }
+            emit(source, Math.min(min, max));
+            if (min != max) emit(source, Math.max(min, max));
+            i = j;
+        }
+    }
+
+    private void lttb(Source source, int lo, int hi, int threshold) {
+        int n = hi - lo;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = lo;
+        emit(source, a);
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // Average of the next bucket, the third corner of the triangle
+            int nextStart = lo + (int) Math.floor((bucket + 1) * every) + 1;
+            int nextEnd = Math.min(lo + (int) Math.floor((bucket + 2) * every) + 1, hi);
+            double avgX = 0, avgY = 0;
+            for (int k = nextStart; k < nextEnd; k++) {
+                avgX += source.x(k);
+                avgY += source.y(k);
+            }
+            int count = Math.max(nextEnd - nextStart, 1);
+            avgX /= count;
+            avgY /= count;
+
+            int start = lo + (int) Math.floor(bucket * every) + 1;
+            int end = lo + (int) Math.floor((bucket + 1) * every) + 1;
+            double ax = source.x(a), ay = source.y(a);
+            double maxArea = -1;
+            int chosen = start;
+            for (int k = start; k < end; k++) {
+                double area = Math.abs((ax - avgX) * (source.y(k) - ay) - (ax - source.x(k)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = k;
+                }
+            }
+            emit(source, chosen);
+            a = chosen;
+        }
+        emit(source, hi - 1);
+    }
+
+    private void emit(Source source, int index) {
+        if (size == outX.length) ensureCapacity(size * 2 + 2);
+        outX[size] = source.x(index);
+        outY[size] = source.y(index);
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (outX.length >= capacity) return;
+        float[] x = new float[capacity];
+        float[] y = new float[capacity];
+        System.arraycopy(outX, 0, x, 0, size);
+        System.arraycopy(outY, 0, y, 0, size);
+        outX = x;
+        outY = y;
+    }
+
+    // First index with x >= value
+    private static int lowerBound(Source source, float value) {
+        int lo = 0, hi = source.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (source.x(mid) < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index with x > value
+    private static int upperBound(Source source, float value) {
+        int lo = 0, hi = source.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (source.x(mid) <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
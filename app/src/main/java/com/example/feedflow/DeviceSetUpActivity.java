@@ -3,7 +3,6 @@ package com.example.feedflow;
 import android.Manifest;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -11,6 +10,8 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -23,27 +24,22 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 public class DeviceSetUpActivity extends AppCompatActivity {
 
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 1;
+    private static final long DISCOVERY_TIMEOUT_MS = 12_000;   // enough for one inquiry cycle
+    private static final long LIST_REFRESH_MS = 300;           // batch bursts of ACTION_FOUND
 
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
+    private BluetoothService.Binding btBinding;   // the service owns the socket and its retries
 
     private int retryCount = 0;
     private final int MAX_RETRIES = 3;
-
-    private OnBluetoothDataReceived dataCallback;
-    private volatile boolean stopReading = false;
+    private boolean awaitingConnection = false;
 
     private String connectedDeviceAddress;
     private String connectedDeviceName;
@@ -52,10 +48,12 @@ public class DeviceSetUpActivity extends AppCompatActivity {
     private Button confirmButton;
     private FrameLayout loadingOverlay;
 
-    // UUID for HC-05 / HC-06 / ESP32 SPP
-    private static final UUID SPP_UUID =
-            UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
-
+    // Everything seen so far; the spinner shows shownDevices after "Select Device"
+    private final DiscoveryRegistry registry = new DiscoveryRegistry();
+    private final List<DiscoveryRegistry.Device> shownDevices = new ArrayList<>();
+    private ArrayAdapter<String> deviceAdapter;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private boolean refreshPending = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -79,6 +77,29 @@ public class DeviceSetUpActivity extends AppCompatActivity {
         loadPairedDevices();
         startDeviceDiscovery();
 
+        BluetoothService.start(this);
+        btBinding = new BluetoothService.Binding(new BluetoothSerial.DataCallback() {
+            @Override
+            public void onTelemetry(TelemetryFrame frame) {
+                // Nothing to show here, Home picks the stream up
+            }
+
+            @Override
+            public void onConnectionFailed(Exception e) {
+                Log.e("BT_CONNECT", "Attempt failed: " + e.getMessage());
+                runOnUiThread(() -> onAttemptFailed());
+            }
+
+            @Override
+            public void onStateChanged(BluetoothSerial.State state) {
+                if (state == BluetoothSerial.State.CONNECTED) {
+                    runOnUiThread(() -> onDeviceConnected());
+                }
+            }
+        }).setOnBound(() -> {
+            if (awaitingConnection) connectViaService();
+        });
+
         confirmButton.setOnClickListener(v -> connectToSelectedDevice());
     }
 
@@ -105,44 +126,40 @@ public class DeviceSetUpActivity extends AppCompatActivity {
 
                 if (device == null) return;
 
-                String deviceInfo = device.getName() + " - " + device.getAddress();
+                short rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+                boolean changed = registry.onSighting(
+                        device.getAddress(),
+                        device.getName(),
+                        rssi,
+                        device.getBondState() == BluetoothDevice.BOND_BONDED,
+                        System.currentTimeMillis()
+                );
 
-                ArrayAdapter<String> adapter =
-                        (ArrayAdapter<String>) deviceSpinner.getAdapter();
+                if (changed) scheduleListRefresh();
 
-                if (adapter != null && adapter.getPosition(deviceInfo) == -1) {
-                    adapter.add(deviceInfo);
-                    adapter.notifyDataSetChanged();
-                }
+            } else if (BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(intent.getAction())) {
+                handler.removeCallbacks(stopDiscovery);
+                Log.d("BT_DISCOVERY", "Discovery finished, " + registry.size() + " devices");
             }
         }
     };
 
 
-    // ------------------------------------------------------------------
-    // CALLBACK INTERFACE
-    // ------------------------------------------------------------------
-
-    public interface OnBluetoothDataReceived {
-        void onDataReceived(String data);
-    }
-
-    public void setDataCallback(OnBluetoothDataReceived callback) {
-        this.dataCallback = callback;
-    }
-
-
     @Override
     protected void onStart() {
         super.onStart();
         IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_FOUND);
+        filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_FINISHED);
         registerReceiver(discoveryReceiver, filter);
+        btBinding.bind(this);
     }
 
     @Override
     protected void onStop() {
         super.onStop();
         unregisterReceiver(discoveryReceiver);
+        stopDiscovery.run();
+        btBinding.unbind(this);
     }
 
 
@@ -189,8 +206,15 @@ public class DeviceSetUpActivity extends AppCompatActivity {
 
     private void loadPairedDevices() {
 
-        List<String> devicesList = new ArrayList<>();
-        devicesList.add("Select Device");
+        deviceAdapter = new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_item,
+                new ArrayList<>()
+        );
+        deviceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        deviceAdapter.setNotifyOnChange(false);
+        deviceAdapter.add("Select Device");
+        deviceSpinner.setAdapter(deviceAdapter);
 
         if (ActivityCompat.checkSelfPermission(
                 this, Manifest.permission.BLUETOOTH_CONNECT
@@ -198,20 +222,53 @@ public class DeviceSetUpActivity extends AppCompatActivity {
             return;
         }
 
-        Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
+        // Bonded devices come from a binder call: keep it off the main thread
+        new Thread(() -> {
+            Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
+            long now = System.currentTimeMillis();
 
-        for (BluetoothDevice device : pairedDevices) {
-            devicesList.add(device.getName() + " - " + device.getAddress());
-        }
+            for (BluetoothDevice device : pairedDevices) {
+                registry.onSighting(device.getAddress(), device.getName(),
+                        DiscoveryRegistry.NO_RSSI, true, now);
+            }
 
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(
-                this,
-                android.R.layout.simple_spinner_item,
-                devicesList
-        );
+            runOnUiThread(this::scheduleListRefresh);
+        }).start();
+    }
 
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        deviceSpinner.setAdapter(adapter);
+
+    // ------------------------------------------------------------------
+    // DEVICE LIST
+    // ------------------------------------------------------------------
+
+    private void scheduleListRefresh() {
+        if (refreshPending) return;
+        refreshPending = true;
+        handler.postDelayed(this::refreshDeviceList, LIST_REFRESH_MS);
+    }
+
+    // One adapter rebuild and one notify per batch, keeping the user's selection
+    private void refreshDeviceList() {
+
+        refreshPending = false;
+
+        int position = deviceSpinner.getSelectedItemPosition();
+        String selectedAddress = position > 0 && position <= shownDevices.size()
+                ? shownDevices.get(position - 1).getAddress() : null;
+
+        shownDevices.clear();
+        shownDevices.addAll(registry.snapshot());
+
+        deviceAdapter.clear();
+        deviceAdapter.add("Select Device");
+        int selection = 0;
+        for (int i = 0; i < shownDevices.size(); i++) {
+            DiscoveryRegistry.Device device = shownDevices.get(i);
+            deviceAdapter.add(device.getLabel());
+            if (device.getAddress().equals(selectedAddress)) selection = i + 1;
+        }
+        deviceAdapter.notifyDataSetChanged();
+        deviceSpinner.setSelection(selection);
     }
 
 
@@ -221,26 +278,21 @@ public class DeviceSetUpActivity extends AppCompatActivity {
 
     private void connectToSelectedDevice() {
 
-        String selected = (String) deviceSpinner.getSelectedItem();
+        int position = deviceSpinner.getSelectedItemPosition();
 
-        if (selected == null || selected.equals("Select Device")) {
+        if (position <= 0 || position > shownDevices.size()) {
             Toast.makeText(this,
                     "Please select a device",
                     Toast.LENGTH_SHORT).show();
             return;
         }
 
-        int lastDash = selected.lastIndexOf("-");
+        DiscoveryRegistry.Device selected = shownDevices.get(position - 1);
+        connectedDeviceName = selected.getName() != null ? selected.getName() : selected.getAddress();
+        connectedDeviceAddress = selected.getAddress();
 
-        if (lastDash == -1) {
-            Toast.makeText(this,
-                    "Invalid device format",
-                    Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        connectedDeviceName = selected.substring(0, lastDash).trim();
-        connectedDeviceAddress = selected.substring(lastDash + 1).trim();
+        // The choice is made: discovery would only slow down the RFCOMM connect
+        stopDiscovery.run();
 
         if (ActivityCompat.checkSelfPermission(
                 this, Manifest.permission.BLUETOOTH_CONNECT
@@ -253,125 +305,84 @@ public class DeviceSetUpActivity extends AppCompatActivity {
         loadingOverlay.setVisibility(View.VISIBLE);
 
         retryCount = 0;
-        connectWithRetry();
+        awaitingConnection = true;
+        connectViaService();
     }
 
 
     // ------------------------------------------------------------------
     // CONNECTION RETRY LOGIC
     // ------------------------------------------------------------------
+    // BluetoothService retries with backoff on its own; this screen only
+    // counts failed attempts and gives up after MAX_RETRIES.
 
-    private void connectWithRetry() {
-
-        new Thread(() -> {
-            try {
-                BluetoothDevice device =
-                        bluetoothAdapter.getRemoteDevice(connectedDeviceAddress);
-
-                if (ActivityCompat.checkSelfPermission(
-                        this, Manifest.permission.BLUETOOTH_CONNECT
-                ) != PackageManager.PERMISSION_GRANTED) {
-                    return;
-                }
-
-                bluetoothSocket =
-                        device.createRfcommSocketToServiceRecord(SPP_UUID);
-
-                bluetoothAdapter.cancelDiscovery();
-                bluetoothSocket.connect();
+    private void connectViaService() {
 
-                runOnUiThread(() -> {
-                    Toast.makeText(this,
-                            "Connected to " + connectedDeviceName,
-                            Toast.LENGTH_SHORT).show();
-                    loadingOverlay.setVisibility(View.GONE);
-                });
+        BluetoothService service = btBinding.getService();
+        if (service == null) return;   // setOnBound calls back once bound
 
-                readSensorData();
-
-                Intent intent = new Intent(
-                        DeviceSetUpActivity.this,
-                        HomeActivity.class
-                );
-                intent.putExtra("DEVICE_NAME", connectedDeviceName);
-                intent.putExtra("DEVICE_ADDRESS", connectedDeviceAddress);
-                startActivity(intent);
-                finish();
-
-            } catch (IOException e) {
-
-                retryCount++;
-
-                if (retryCount <= MAX_RETRIES) {
-                    runOnUiThread(() -> Toast.makeText(
-                            this,
-                            "Retrying connection... (" + retryCount + ")",
-                            Toast.LENGTH_SHORT
-                    ).show());
-
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ignored) {
-                    }
-
-                    connectWithRetry();
-
-                } else {
-                    runOnUiThread(() -> {
-                        Toast.makeText(
-                                this,
-                                "Bluetooth connection failed. Please try again.",
-                                Toast.LENGTH_LONG
-                        ).show();
-                        loadingOverlay.setVisibility(View.GONE);
-                        confirmButton.setEnabled(true);
-                        confirmButton.setText("Retry");
-                    });
-                }
-            }
+        if (!service.connect(connectedDeviceAddress)) {
+            awaitingConnection = false;
+            Toast.makeText(this,
+                    "Too many feeders connected. Disconnect one first.",
+                    Toast.LENGTH_LONG).show();
+            loadingOverlay.setVisibility(View.GONE);
+            confirmButton.setEnabled(true);
+            return;
+        }
 
-        }).start();
+        // Already in the pool and up: connect() only made it the primary feeder
+        if (service.isConnected()) onDeviceConnected();
     }
 
+    private void onAttemptFailed() {
 
-    // ------------------------------------------------------------------
-    // READ INCOMING DATA
-    // ------------------------------------------------------------------
-
-    private void readSensorData() {
-
-        stopReading = false;
+        if (!awaitingConnection) return;
 
-        new Thread(() -> {
+        retryCount++;
 
-            try {
-                InputStream inputStream = bluetoothSocket.getInputStream();
-                BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(inputStream)
-                );
+        if (retryCount <= MAX_RETRIES) {
+            Toast.makeText(
+                    this,
+                    "Retrying connection... (" + retryCount + ")",
+                    Toast.LENGTH_SHORT
+            ).show();
 
-                String line;
+        } else {
+            awaitingConnection = false;
 
-                while (!stopReading && (line = reader.readLine()) != null) {
+            BluetoothService service = btBinding.getService();
+            if (service != null) service.disconnect(connectedDeviceAddress);
 
-                    String finalLine = line;
+            Toast.makeText(
+                    this,
+                    "Bluetooth connection failed. Please try again.",
+                    Toast.LENGTH_LONG
+            ).show();
+            loadingOverlay.setVisibility(View.GONE);
+            confirmButton.setEnabled(true);
+            confirmButton.setText("Retry");
+        }
+    }
 
-                    runOnUiThread(() -> {
-                        Log.d("BT_DATA", finalLine);
+    private void onDeviceConnected() {
 
-                        if (dataCallback != null) {
-                            dataCallback.onDataReceived(finalLine);
-                        }
-                    });
-                }
+        if (!awaitingConnection) return;
+        awaitingConnection = false;
 
-            } catch (IOException e) {
-                if (!stopReading) {
-                    Log.e("BT_READ", "Failed to read data", e);
-                }
-            }
+        Toast.makeText(this,
+                "Connected to " + connectedDeviceName,
+                Toast.LENGTH_SHORT).show();
+        loadingOverlay.setVisibility(View.GONE);
 
-        }).start();
+        Intent intent = new Intent(
+                DeviceSetUpActivity.this,
+                HomeActivity.class
+        );
+        intent.putExtra("DEVICE_NAME", connectedDeviceName);
+        intent.putExtra("DEVICE_ADDRESS", connectedDeviceAddress);
+        startActivity(intent);
+        finish();
     }
 
 
@@ -428,25 +439,23 @@ public class DeviceSetUpActivity extends AppCompatActivity {
         }
 
         bluetoothAdapter.startDiscovery();
+        handler.postDelayed(stopDiscovery, DISCOVERY_TIMEOUT_MS);
 
         Toast.makeText(this,
                 "Scanning for devices...",
                 Toast.LENGTH_SHORT).show();
     }
 
-
-    // ------------------------------------------------------------------
-    // CLEANUP
-    // ------------------------------------------------------------------
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        try {
-            if (bluetoothSocket != null) {
-                bluetoothSocket.close();
-            }
-        } catch (IOException ignored) {
+    private final Runnable stopDiscovery = () -> {
+        handler.removeCallbacks(this.stopDiscovery);
+        if (bluetoothAdapter == null) return;
+        if (ActivityCompat.checkSelfPermission(
+                this, Manifest.permission.BLUETOOTH_SCAN
+        ) != PackageManager.PERMISSION_GRANTED) {
+            return;
         }
-    }
+        if (bluetoothAdapter.isDiscovering()) {
+            bluetoothAdapter.cancelDiscovery();
+        }
+    };
 }
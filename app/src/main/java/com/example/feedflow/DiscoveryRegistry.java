@@ -0,0 +1,146 @@
+package com.example.feedflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Devices seen during setup, keyed by MAC address.
+// Repeated ACTION_FOUND broadcasts for the same device merge into one entry that
+// keeps a smoothed RSSI and the last time it was heard. The ranked list puts
+// likely FeedFlow feeders first, then the strongest signals, and is only re-sorted
+// when something that affects the order changed.
+public class DiscoveryRegistry {
+
+    public static final int NO_RSSI = Short.MIN_VALUE;
+
+    // Advertised name prefixes of our feeder firmware, compared case-insensitively
+    private static final String[] FEEDER_PREFIXES = {"feedflow", "esp32"};
+
+    public static final class Device {
+        private final String address;
+        private String name;
+        private int rssi = NO_RSSI;
+        private boolean bonded;
+        private boolean feeder;
+        private long lastSeen;
+        private int sightings;
+
+        Device(String address) {
+            this.address = address;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getRssi() {
+            return rssi;
+        }
+
+        public boolean isBonded() {
+            return bonded;
+        }
+
+        public boolean isFeeder() {
+            return feeder;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        public int getSightings() {
+            return sightings;
+        }
+
+        public String getLabel() {
+            String label = (name != null ? name : "Unknown") + " - " + address;
+            return rssi != NO_RSSI ? label + " (" + rssi + " dBm)" : label;
+        }
+    }
+
+    private static final Comparator<Device> RANKING = (a, b) -> {
+        if (a.feeder != b.feeder) return a.feeder ? -1 : 1;
+        if (a.rssi != b.rssi) return Integer.compare(b.rssi, a.rssi);   // NO_RSSI sorts last
+        if (a.bonded != b.bonded) return a.bonded ? -1 : 1;
+        return a.address.compareTo(b.address);                         // stable order
+    };
+
+    private final Map<String, Device> byAddress = new HashMap<>();
+    private final List<Device> ranked = new ArrayList<>();
+    private boolean dirty = false;
+
+    // Returns true when the ranked list changed and the UI should refresh
+    public synchronized boolean onSighting(String address, String name, int rssi, boolean bonded, long now) {
+        Device device = byAddress.get(address);
+        boolean changed = false;
+
+        if (device == null) {
+            device = new Device(address);
+            byAddress.put(address, device);
+            ranked.add(device);
+            changed = true;
+        }
+
+        if (name != null && !name.equals(device.name)) {
+            device.name = name;
+            device.feeder = isFeederName(name);
+            changed = true;
+        }
+        if (bonded && !device.bonded) {
+            device.bonded = true;
+            changed = true;
+        }
+        if (rssi != NO_RSSI) {
+            // Light smoothing, single readings swing by 10 dB
+            int smoothed = device.rssi == NO_RSSI ? rssi : (device.rssi + rssi) / 2;
+            if (smoothed != device.rssi) {
+                device.rssi = smoothed;
+                changed = true;
+            }
+        }
+
+        device.lastSeen = now;
+        device.sightings++;
+        if (changed) dirty = true;
+        return changed;
+    }
+
+    public synchronized Device get(String address) {
+        return byAddress.get(address);
+    }
+
+    // Ranked copy, safe to hand to the UI
+    public synchronized List<Device> snapshot() {
+        if (dirty) {
+            Collections.sort(ranked, RANKING);
+            dirty = false;
+        }
+        return new ArrayList<>(ranked);
+    }
+
+    public synchronized int size() {
+        return byAddress.size();
+    }
+
+    public synchronized void clear() {
+        byAddress.clear();
+        ranked.clear();
+        dirty = false;
+    }
+
+    static boolean isFeederName(String name) {
+        if (name == null) return false;
+        for (String prefix : FEEDER_PREFIXES) {
+            if (name.regionMatches(true, 0, prefix, 0, prefix.length())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.feedflow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Feed conversion ratio over any time range, from two inputs:
+//
+//   feeds  kg dispensed per finished FeedLogs session, by completion time
+//   notes  pond notes: dead fish counted, and optionally a biomass estimate (kg of
+//          stock) and a sampled average fish weight (g)
+//
+// Over [from, to) the biomass gain is measured between the first and the last
+// biomass estimate in the range, and
+//
+//   FCR = feed between them / (biomass gain + kg of fish that died between them)
+//
+// A dead fish weighs the note's average weight, or the latest one noted before it;
+// adding, editing or removing a weight re-weighs the deaths up to the next weight.
+//
+// Every input is kept in a time-ordered ledger with running (prefix) sums, so a
+// feed or note newer than the rest is added in O(1) and a range is answered with
+// two binary searches, without going through the logs again. Edits and inputs
+// older than the newest one cost one pass over the ledger. Not thread safe.
+public class FcrEngine {
+
+    private static final double DAY_MS = 24.0 * RollupAggregator.HOUR_MS;
+
+    private final Ledger feeds = new Ledger();
+    private final Ledger deadFish = new Ledger();
+    private final Ledger deadKg = new Ledger();
+    private final Ledger biomass = new Ledger();
+    private final Ledger fishWeight = new Ledger();   // kg per fish
+    private final Map<String, Long> noteTimes = new HashMap<>();
+
+    public static final class Result {
+        public double feedKg;
+        public double feedPerDay;
+        public double deadFish;
+        public double deadKg;
+        public double gainKg = Double.NaN;   // NaN without two biomass estimates
+        public double fcr = Double.NaN;      // NaN unless the stock gained weight
+
+        public boolean hasFcr() {
+            return !Double.isNaN(fcr);
+        }
+    }
+
+    // A finished feed; a session seen again is ignored
+    public boolean addFeed(String sessionId, long at, double kg) {
+        return feeds.add(sessionId, at, kg);
+    }
+
+    // Adds or replaces a feed, for a session that was updated after it finished
+    public void putFeed(String sessionId, long at, double kg) {
+        feeds.remove(sessionId);
+        feeds.add(sessionId, at, kg);
+    }
+
+    public void removeFeed(String sessionId) {
+        feeds.remove(sessionId);
+    }
+
+    // Adds or replaces a note. NaN for biomassKg / avgWeightG when not noted.
+    public void putNote(String noteId, long at, int dead, double biomassKg, double avgWeightG) {
+        removeNote(noteId);
+        noteTimes.put(noteId, at);
+        if (!Double.isNaN(biomassKg) && biomassKg > 0) biomass.add(noteId, at, biomassKg);
+        if (dead > 0) deadFish.add(noteId, at, dead);
+        if (!Double.isNaN(avgWeightG) && avgWeightG > 0) {
+            fishWeight.add(noteId, at, avgWeightG / 1000);
+            reweighDeaths(at);   // this note's deaths included
+        } else if (dead > 0) {
+            int weight = fishWeight.lastBefore(at + 1);
+            if (weight >= 0) deadKg.add(noteId, at, dead * fishWeight.value(weight));
+        }
+    }
+
+    public void removeNote(String noteId) {
+        Long at = noteTimes.remove(noteId);
+        if (at == null) return;
+        biomass.remove(noteId);
+        deadFish.remove(noteId);
+        deadKg.remove(noteId);
+        if (fishWeight.remove(noteId)) reweighDeaths(at);
+    }
+
+    // Recomputes the dead kg of the deaths noted from 'at' up to the next weight,
+    // the ones that take their weight from the note at 'at' (or from the one before
+    // it once that note is gone)
+    private void reweighDeaths(long at) {
+        int next = fishWeight.firstFrom(at + 1);
+        long to = next >= 0 ? fishWeight.time(next) : Long.MAX_VALUE;
+        int first = deadFish.firstFrom(at);
+        if (first < 0) return;
+        for (int i = first; i < deadFish.size && deadFish.time(i) < to; i++) {
+            String id = deadFish.id(i);
+            long time = deadFish.time(i);
+            deadKg.remove(id);
+            int weight = fishWeight.lastBefore(time + 1);
+            if (weight >= 0) deadKg.add(id, time, deadFish.value(i) * fishWeight.value(weight));
+        }
+    }
+
+    public int feedCount() {
+        return feeds.size;
+    }
+
+    public int noteCount() {
+        return noteTimes.size();
+    }
+
+    public Result range(long from, long to) {
+        Result result = new Result();
+        result.feedKg = feeds.sum(from, to);
+        result.feedPerDay = to > from ? result.feedKg / ((to - from) / DAY_MS) : 0;
+        result.deadFish = deadFish.sum(from, to);
+        result.deadKg = deadKg.sum(from, to);
+
+        int first = biomass.firstFrom(from);
+        int last = biomass.lastBefore(to);
+        if (first < 0 || last <= first) return result;
+        long start = biomass.time(first);
+        long end = biomass.time(last);
+        result.gainKg = biomass.value(last) - biomass.value(first);
+
+        double gain = result.gainKg + deadKg.sum(start, end);
+        if (gain > 0) result.fcr = feeds.sum(start, end) / gain;
+        return result;
+    }
+
+    // Entries in time order (equal times in arrival order) with prefix sums:
+    // sums[i] is the total of values[0..i]
+    private static final class Ledger {
+        private String[] ids = new String[64];
+        private long[] times = new long[64];
+        private double[] values = new double[64];
+        private double[] sums = new double[64];
+        private final Map<String, Long> index = new HashMap<>();   // id -> time
+        int size;
+
+        boolean add(String id, long at, double value) {
+            if (index.containsKey(id)) return false;
+            index.put(id, at);
+            if (size == times.length) grow();
+
+            int i = upperBound(at);
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(times, i, times, i + 1, size - i);
+            System.arraycopy(values, i, values, i + 1, size - i);
+            ids[i] = id;
+            times[i] = at;
+            values[i] = value;
+            size++;
+            resum(i);   // one entry when appended
+            return true;
+        }
+
+        boolean remove(String id) {
+            Long at = index.remove(id);
+            if (at == null) return false;
+            int i = lowerBound(at);
+            while (!id.equals(ids[i])) i++;
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(times, i + 1, times, i, size - i - 1);
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+            ids[size] = null;
+            resum(i);
+            return true;
+        }
+
+        // Total of the entries in [from, to)
+        double sum(long from, long to) {
+            int lo = lowerBound(from);
+            int hi = lowerBound(to);
+            if (hi <= lo) return 0;
+            return sums[hi - 1] - (lo > 0 ? sums[lo - 1] : 0);
+        }
+
+        // First entry at or after 'from', -1 if none
+        int firstFrom(long from) {
+            int i = lowerBound(from);
+            return i < size ? i : -1;
+        }
+
+        // Last entry before 'to', -1 if none
+        int lastBefore(long to) {
+            return lowerBound(to) - 1;
+        }
+
+        String id(int i) {
+            return ids[i];
+        }
+
+        long time(int i) {
+            return times[i];
+        }
+
+        double value(int i) {
+            return values[i];
+        }
+
+        private void resum(int from) {
+            for (int i = from; i < size; i++) sums[i] = (i > 0 ? sums[i - 1] : 0) + values[i];
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+        }
+
+        // First index with time >= at
+        private int lowerBound(long at) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < at) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // First index with time > at
+        private int upperBound(long at) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] <= at) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.feedflow;
+
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Alerting lane of the TelemetryBus. Raises "Low Feed Level" once when the hopper
+// drops below the threshold and re-arms only after it has been refilled, per feeder.
+public class FeedAlertMonitor implements TelemetryBus.Subscriber {
+
+    private static final float LOW_FEED_PERCENT = 25f;
+    private static final float REARM_PERCENT = 30f;
+
+    private final FirebaseFirestore db;
+    private final Set<String> lowFeedRaised = new HashSet<>();   // deviceIds, drain thread only
+
+    public FeedAlertMonitor(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public void onFrame(TelemetryFrame frame) {
+        if (frame.type != TelemetryFrame.TYPE_FEED) return;
+
+        if (frame.remaining < LOW_FEED_PERCENT) {
+            if (lowFeedRaised.add(frame.deviceId)) {
+                addAlertToFirestore(frame.deviceId, "Low Feed Level", "Feed storage is below 25%. Refill needed.");
+            }
+        } else if (frame.remaining >= REARM_PERCENT) {
+            lowFeedRaised.remove(frame.deviceId);
+        }
+    }
+
+    private void addAlertToFirestore(String deviceId, String title, String description) {
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("device", deviceId);
+        alert.put("title", title);
+        alert.put("description", description);
+        alert.put("time", new SimpleDateFormat("hh:mm a", Locale.getDefault()).format(new Date()));
+        alert.put("status", "Warning");
+
+        db.collection("alerts").add(alert);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.feedflow;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One FeedLogs document per feed, FeedFlow/<deviceId>/FeedLogs/<session id>:
+//
+//   status      Started -> Dispensing -> Done
+//   target      kg asked for;  dispensed  kg so far, never decreases
+//   commandSeq  FEED_NOW sequence number the device echoes in PROG / DONE frames
+//   startedAt, updatedAt, completedAt, day (yyyy-MM-dd)
+//
+// The session is created by BluetoothService.feedNow when the feeder acknowledges
+// FEED_NOW and is updated in a transaction on progress and completion, so a late
+// progress frame cannot move a finished session back. Sessions started in this
+// process are found by command sequence in memory, others by an indexed query
+// (see firestore.indexes.json) over sessions started in the last SESSION_MAX_AGE_MS.
+// A feed the device ran although its ack was lost has no session: its completion
+// creates one (recovered: true), so it still counts as fed.
+public final class FeedSessions {
+
+    public static final String COLLECTION = "FeedLogs";
+    public static final String STARTED = "Started";
+    public static final String DISPENSING = "Dispensing";
+    public static final String DONE = "Done";
+
+    private static final long PROGRESS_INTERVAL_MS = 10_000;   // progress writes per session
+    private static final long SESSION_MAX_AGE_MS = 6 * RollupAggregator.HOUR_MS;   // no feed runs longer
+
+    // "<deviceId>|<commandSeq>" -> session of a feed that has not finished yet
+    private static final Map<String, DocumentReference> open = new ConcurrentHashMap<>();
+    private static final Map<String, Long> lastProgressAt = new ConcurrentHashMap<>();
+    private static final Map<String, Float> targets = new ConcurrentHashMap<>();   // from progress frames
+
+    private FeedSessions() {
+    }
+
+    // Feeds still running, newest first (status + startedAt index)
+    public static Query inProgress(FirebaseFirestore db, String deviceId) {
+        return sessions(db, deviceId)
+                .whereIn("status", Arrays.asList(STARTED, DISPENSING))
+                .orderBy("startedAt", Query.Direction.DESCENDING);
+    }
+
+    // Feeds finished since 'since' (status + completedAt index); sum "dispensed" for kg fed
+    public static Query doneSince(FirebaseFirestore db, String deviceId, long since) {
+        return sessions(db, deviceId)
+                .whereEqualTo("status", DONE)
+                .whereGreaterThanOrEqualTo("completedAt", new Date(since))
+                .orderBy("completedAt", Query.Direction.ASCENDING);
+    }
+
+    // Creates the session of an acknowledged FEED_NOW
+    public static DocumentReference start(FirebaseFirestore db, String deviceId, int commandSeq, float targetKg) {
+        DocumentReference session = sessions(db, deviceId).document();
+        long now = System.currentTimeMillis();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", STARTED);
+        data.put("target", (double) targetKg);
+        data.put("dispensed", 0.0);
+        data.put("commandSeq", commandSeq);
+        data.put("startedAt", new Date(now));
+        data.put("updatedAt", new Date(now));
+        data.put("day", DailySummary.dayId(now, TimeZone.getDefault()));
+
+        open.put(key(deviceId, commandSeq), session);
+        session.set(data)
+                .addOnSuccessListener(unused -> Log.d("FIRESTORE", "Feed session started: " + session.getId()))
+                .addOnFailureListener(e -> Log.e("FIRESTORE", "Error starting feed session", e));
+        return session;
+    }
+
+    // Device progress: at most one write per session every PROGRESS_INTERVAL_MS
+    public static void onProgress(FirebaseFirestore db, TelemetryFrame frame) {
+        if (frame.commandSeq < 0) return;
+        String key = key(frame.deviceId, frame.commandSeq);
+        if (frame.target > 0) targets.put(key, frame.target);
+        Long last = lastProgressAt.get(key);
+        if (last != null && frame.timestamp - last < PROGRESS_INTERVAL_MS) return;
+        lastProgressAt.put(key, frame.timestamp);
+
+        double dispensed = frame.dispensed;
+        long at = frame.timestamp;
+        find(db, frame.deviceId, frame.commandSeq, at, session -> db.runTransaction(tx -> {
+            DocumentSnapshot current = tx.get(session);
+            if (!current.exists() || DONE.equals(current.getString("status"))) return null;
+            Map<String, Object> update = new HashMap<>();
+            update.put("status", DISPENSING);
+            update.put("dispensed", Math.max(dispensed, number(current.getDouble("dispensed"))));
+            update.put("updatedAt", new Date(at));
+            tx.update(session, update);
+            return null;
+        }).addOnFailureListener(e -> Log.w("FIRESTORE", "Feed progress not saved", e)),
+                () -> Log.w("FIRESTORE", "No open feed session for command " + frame.commandSeq));
+    }
+
+    // Device completion. If the transaction cannot run (offline), the terminal state
+    // is merged through the batched writer instead, which Firestore queues locally.
+    public static void onDone(FirebaseFirestore db, FirestoreBatchWriter writer, TelemetryFrame frame) {
+        String key = key(frame.deviceId, frame.commandSeq);
+        lastProgressAt.remove(key);
+        Float target = targets.remove(key);
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("status", DONE);
+        update.put("dispensed", (double) frame.dispensed);
+        update.put("completedAt", new Date(frame.timestamp));
+        update.put("updatedAt", new Date(frame.timestamp));
+
+        String deviceId = frame.deviceId;
+        int commandSeq = frame.commandSeq;
+        long at = frame.timestamp;
+        float dispensed = frame.dispensed;
+        find(db, deviceId, commandSeq, at, session -> db.runTransaction(tx -> {
+            DocumentSnapshot current = tx.get(session);
+            Date startedAt = current.getDate("startedAt");
+            Map<String, Object> done = new HashMap<>(update);
+            if (startedAt != null) done.put("durationMs", frame.timestamp - startedAt.getTime());
+            tx.set(session, done, SetOptions.merge());
+            return null;
+        }).addOnSuccessListener(unused -> {
+            open.remove(key);
+            Log.d("FIRESTORE", "Feed session done: " + session.getId());
+        }).addOnFailureListener(e -> {
+            open.remove(key);
+            writer.merge(session, update);
+        }), () -> recover(db, writer, deviceId, commandSeq, at, dispensed, target, update));
+    }
+
+    // DONE without a session (the FEED_NOW ack was lost): records the feed unless
+    // this completion is already recorded (a journal replay). The id is derived from
+    // the frame, so a replay racing this write overwrites it.
+    private static void recover(FirebaseFirestore db, FirestoreBatchWriter writer, String deviceId,
+                                int commandSeq, long at, float dispensed, @Nullable Float target,
+                                Map<String, Object> update) {
+        sessions(db, deviceId)
+                .whereEqualTo("commandSeq", commandSeq)
+                .whereEqualTo("completedAt", new Date(at))
+                .limit(1)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (!snapshots.isEmpty()) return;
+                    Map<String, Object> data = new HashMap<>(update);
+                    data.put("target", (double) (target != null ? target : dispensed));
+                    data.put("commandSeq", commandSeq);
+                    data.put("startedAt", new Date(at));
+                    data.put("day", DailySummary.dayId(at, TimeZone.getDefault()));
+                    data.put("recovered", true);
+                    writer.merge(sessions(db, deviceId).document("done_" + at + "_" + commandSeq), data);
+                    Log.w("FIRESTORE", "Feed " + commandSeq + " had no session, recorded from its completion");
+                })
+                .addOnFailureListener(e -> Log.e("FIRESTORE", "Feed session lookup failed", e));
+    }
+
+    // The open session of this feed, from memory or, after a restart, the newest
+    // unfinished session with this command sequence started shortly before 'at'
+    private static void find(FirebaseFirestore db, String deviceId, int commandSeq, long at,
+                             Found found, Runnable notFound) {
+        DocumentReference session = open.get(key(deviceId, commandSeq));
+        if (session != null) {
+            found.onFound(session);
+            return;
+        }
+        sessions(db, deviceId)
+                .whereEqualTo("commandSeq", commandSeq)
+                .whereIn("status", Arrays.asList(STARTED, DISPENSING))
+                .whereGreaterThanOrEqualTo("startedAt", new Date(at - SESSION_MAX_AGE_MS))
+                .orderBy("startedAt", Query.Direction.DESCENDING)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(snapshots -> {
+                    if (snapshots.isEmpty()) {
+                        notFound.run();
+                        return;
+                    }
+                    DocumentReference ref = snapshots.getDocuments().get(0).getReference();
+                    open.put(key(deviceId, commandSeq), ref);
+                    found.onFound(ref);
+                })
+                .addOnFailureListener(e -> Log.e("FIRESTORE", "Feed session lookup failed", e));
+    }
+
+    private static CollectionReference sessions(FirebaseFirestore db, String deviceId) {
+        return db.collection("FeedFlow").document(deviceId).collection(COLLECTION);
+    }
+
+    private interface Found {
+        void onFound(DocumentReference session);
+    }
+
+    private static String key(String deviceId, int commandSeq) {
+        return deviceId + "|" + commandSeq;
+    }
+
+    private static double number(Double value) {
+        return value != null ? value : 0;
+    }
+}
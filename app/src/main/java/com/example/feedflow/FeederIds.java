@@ -0,0 +1,20 @@
+package com.example.feedflow;
+
+import java.util.Locale;
+
+// Maps a feeder's Bluetooth MAC to its Firestore document under FeedFlow/.
+// The first feeder predates multi-feeder support and keeps its "Device001" path
+// so its history stays where the app already looks for it.
+public final class FeederIds {
+
+    public static final String LEGACY_MAC = "B4:88:08:B4:03:6A";
+    public static final String LEGACY_DOC_ID = "Device001";
+
+    private FeederIds() {}
+
+    // "B4:88:08:B4:03:6A" -> "Device001", "b4:88:08:00:00:01" -> "Device_B48808000001"
+    public static String docIdFor(String macAddress) {
+        if (macAddress == null || macAddress.equalsIgnoreCase(LEGACY_MAC)) return LEGACY_DOC_ID;
+        return "Device_" + macAddress.replace(":", "").toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,60 +1,84 @@
 package com.example.feedflow;
 
-import android.Manifest;
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
-import android.content.pm.PackageManager;
+import android.app.Activity;
+import android.content.Context;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ImageView;
+import android.widget.GridLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
+import com.github.mikephil.charting.charts.BarChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.data.BarData;
+import com.github.mikephil.charting.data.BarDataSet;
+import com.github.mikephil.charting.data.BarEntry;
+import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FeedingStatsFragment extends Fragment {
 
     private TextView tvLastUpdated, tvTodayFeed, tvFeedLevel, tvAverageFeed, tvFeedEfficiency;
-    private ImageView ivFeedGraph;
+    private GridLayout gridWeeklyFeed;
+    private BarChart feedBarChart;
+    private StripChartView stripWeight;
 
-    private FirebaseFirestore db;
-    private ArrayList<Double> feedHistory = new ArrayList<>();
-    private ArrayList<Double> feedLevelHistory = new ArrayList<>();
+    private static final long HISTORY_MS = 7 * 24 * RollupAggregator.HOUR_MS;
+    private static final long DAY_MS = 24 * RollupAggregator.HOUR_MS;
+    private static final int WEEK_DAYS = 7;
+    private static final int BAR_HISTORY_DAYS = 365;   // how far the bar chart pans back
+    private static final long FCR_RANGE_MS = 30 * DAY_MS;
 
-    // Bluetooth
-    private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
-    private static final UUID MY_UUID =
-            UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+    private FirebaseFirestore db;
+    private String deviceId;   // feeder shown: the service's primary, known once bound
+    // Weeks of daily bars (x = days since this week's first day), loaded as the
+    // chart is panned back
+    private HistoryWindows<List<BarEntry>> feedWeeks;
+    private long weekStart;
+    // Feed conversion over the last FCR_RANGE_MS, updated per feed log and note
+    private FcrEngine fcr = new FcrEngine();
+    private ListenerRegistration feedLogsListener, notesListener;
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor();
+    // Dispensed kg of the feed status frames of the last HISTORY_MS, updated per frame
+    private final RunningStats feedStats = new RunningStats(
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, HISTORY_MS, 4096);
+
+    // Live data comes from the shared connection in BluetoothService
+    private final BluetoothService.Binding btBinding = new BluetoothService.Binding(frame -> {
+        if (frame.type == TelemetryFrame.TYPE_FEED) {
+            onLiveFeedStatus(frame.dispensed, frame.remaining);
+        } else if (frame.type == TelemetryFrame.TYPE_READING && stripWeight != null) {
+            stripWeight.dataChanged();
+        }
+    }).setOnBound(this::onServiceBound).setOnPrimaryChanged(this::onServiceBound);
 
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater,
                              @Nullable ViewGroup container,
                              @Nullable Bundle savedInstanceState) {
-        return inflater.inflate(R.layout.fragment_temperature_stats, container, false);
+        return inflater.inflate(R.layout.fragment_feeding_stats, container, false);
     }
 
     @Override
@@ -66,156 +90,372 @@ public class FeedingStatsFragment extends Fragment {
         tvFeedLevel = view.findViewById(R.id.tvFeedLevel);
         tvAverageFeed = view.findViewById(R.id.tvAverageFeed);
         tvFeedEfficiency = view.findViewById(R.id.tvFeedEfficiency);
-        ivFeedGraph = view.findViewById(R.id.ivFeedGraph);
+        gridWeeklyFeed = view.findViewById(R.id.gridWeeklyFeed);
+        feedBarChart = view.findViewById(R.id.feedBarChart);
+        stripWeight = view.findViewById(R.id.stripWeight);
 
         db = FirebaseFirestore.getInstance();
+        // Loaded once the service tells which feeder is primary
+    }
 
-        connectToEsp32();
-        fetchFeedStats();
+    @Override
+    public void onDestroyView() {
+        deviceId = null;   // a new view loads again
+        super.onDestroyView();
     }
 
-    private void fetchFeedStats() {
-        db.collection("FeedFlow")
-                .document("Device001")
-                .collection("weight")
-                .orderBy("timestamp", com.google.firebase.firestore.Query.Direction.DESCENDING)
-                .limit(10)
-                .get()
-                .addOnSuccessListener(querySnapshots -> {
-                    double totalFeed = 0;
-                    int count = 0;
+    @Override
+    public void onDestroy() {
+        queryExecutor.shutdownNow();
+        super.onDestroy();
+    }
 
-                    for (com.google.firebase.firestore.QueryDocumentSnapshot doc : querySnapshots) {
-                        Double dispensed = doc.getDouble("dispensed");
-                        Double remaining = doc.getDouble("remaining");
-                        Long timestamp = doc.getLong("timestamp");
+    @Override
+    public void onStart() {
+        super.onStart();
+        btBinding.bind(requireContext());
+    }
+
+    @Override
+    public void onStop() {
+        btBinding.unbind(requireContext());
+        stopFcrListeners();
+        super.onStop();
+    }
 
-                        if (dispensed != null) {
-                            feedHistory.add(dispensed);
-                            if (remaining != null) feedLevelHistory.add(remaining);
-
-                            if (count == 0) {
-                                tvTodayFeed.setText("Feed Dispensed: " + dispensed + " kg");
-                                if (remaining != null) tvFeedLevel.setText("Feed Level: " + remaining + "%");
-                                if (timestamp != null) {
-                                    String formatted = new SimpleDateFormat("MM/dd HH:mm", Locale.getDefault())
-                                            .format(new Date(timestamp));
-                                    tvLastUpdated.setText("Last Updated: " + formatted);
-                                }
-                            }
-                            totalFeed += dispensed;
-                            count++;
+    private void stopFcrListeners() {
+        if (feedLogsListener != null) feedLogsListener.remove();
+        if (notesListener != null) notesListener.remove();
+        feedLogsListener = null;
+        notesListener = null;
+    }
+
+    // Finished feeds and pond notes of the FCR range, both of this feeder's cage:
+    // a note carries the feeder that was primary when it was recorded, and older
+    // notes without one are left out. Only the changed documents of each snapshot
+    // go into the engine, so a new feed log or note costs O(1); after a restart
+    // the documents come again and are replaced, not added twice.
+    private void listenForFcr(String device) {
+        long since = System.currentTimeMillis() - FCR_RANGE_MS;
+
+        feedLogsListener = FeedSessions.doneSince(db, device, since)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null || snapshots == null) {
+                        Log.w("FIRESTORE", "Error loading feed logs", e);
+                        return;
+                    }
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        Date completedAt = doc.getDate("completedAt");
+                        Double dispensed = doc.getDouble("dispensed");
+                        if (change.getType() == DocumentChange.Type.REMOVED
+                                || completedAt == null || dispensed == null) {
+                            fcr.removeFeed(doc.getId());
+                            continue;
                         }
+                        fcr.putFeed(doc.getId(), completedAt.getTime(), dispensed);   // MODIFIED replaces
                     }
-
-                    if (count > 0) {
-                        tvAverageFeed.setText("Average Feed: " + String.format("%.2f", totalFeed / count) + " kg");
-                    } else {
-                        tvAverageFeed.setText("Average Feed: -- kg");
+                    showFeedEfficiency();
+                });
+
+        notesListener = db.collection("notes")
+                .whereEqualTo("deviceId", device)
+                .whereGreaterThanOrEqualTo("timestamp", since)   // deviceId + timestamp index
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null || snapshots == null) {
+                        Log.w("FIRESTORE", "Error loading notes", e);
+                        return;
                     }
+                    for (DocumentChange change : snapshots.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        Long timestamp = doc.getLong("timestamp");
+                        if (change.getType() == DocumentChange.Type.REMOVED || timestamp == null) {
+                            fcr.removeNote(doc.getId());
+                            continue;
+                        }
+                        double dead = number(doc.get("deadFish"));
+                        fcr.putNote(doc.getId(), timestamp, Double.isNaN(dead) ? 0 : (int) dead,
+                                number(doc.get("biomass")), number(doc.get("avgWeight")));
+                    }
+                    showFeedEfficiency();
+                });
+    }
 
-                    tvFeedEfficiency.setText("Feed Efficiency: -- FCR");
-                })
-                .addOnFailureListener(e -> Log.w("FIRESTORE", "Error loading feed data", e));
+    private void showFeedEfficiency() {
+        if (!isAdded()) return;
+        long now = System.currentTimeMillis();
+        FcrEngine.Result result = fcr.range(now - FCR_RANGE_MS, now + 1);
+        if (result.hasFcr()) {
+            tvFeedEfficiency.setText(String.format(Locale.getDefault(),
+                    "Feed Efficiency: %.2f FCR (%.1f kg/day)", result.fcr, result.feedPerDay));
+        } else {
+            tvFeedEfficiency.setText("Feed Efficiency: -- FCR");
+        }
     }
 
-    private void connectToEsp32() {
-        bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
-        if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) return;
+    // Note fields are typed text; NaN when blank or not a number
+    private static double number(Object value) {
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value == null) return Double.NaN;
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
 
-        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.BLUETOOTH_CONNECT) != PackageManager.PERMISSION_GRANTED ||
-                ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.BLUETOOTH_SCAN) != PackageManager.PERMISSION_GRANTED) {
-            ActivityCompat.requestPermissions(requireActivity(),
-                    new String[]{Manifest.permission.BLUETOOTH_CONNECT, Manifest.permission.BLUETOOTH_SCAN}, 2001);
-            return;
+    // Bound, or another feeder became primary: the live hopper weight trace reads
+    // the primary feeder's in-memory history, and its stats, weekly bars and FCR
+    // are loaded again when the feeder changed
+    private void onServiceBound() {
+        BluetoothService service = btBinding.getService();
+        if (service == null || !isAdded() || stripWeight == null) return;
+        String primary = service.getDeviceId();
+        stripWeight.setTrace(0, service.getLiveHistory().get(primary).weight, 0xFFFFA500);
+
+        if (!primary.equals(deviceId)) {
+            deviceId = primary;
+            loadFeedStats(primary);
+            fetchWeeklyFeed(primary);
+            stopFcrListeners();
+            fcr = new FcrEngine();
+            tvFeedEfficiency.setText("Feed Efficiency: -- FCR");
         }
+        if (feedLogsListener == null) listenForFcr(primary);
+    }
 
-        Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
-        for (BluetoothDevice device : pairedDevices) {
-            if (device.getName() != null && device.getName().equals("ESP32_Feeder")) {
-                try {
-                    bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-                    bluetoothSocket.connect();
-                    startReadingData();
-                } catch (IOException e) {
-                    Log.e("BT", "Connection failed", e);
+    // Last 7 days of feed status frames from the local TelemetryStore
+    private void loadFeedStats(String device) {
+        Context context = requireContext().getApplicationContext();
+        long now = System.currentTimeMillis();
+
+        queryExecutor.execute(() -> {
+            List<TelemetryStore.FeedEvent> events = TelemetryStore.get(context)
+                    .feedEvents(device, now - HISTORY_MS, now + 1);
+
+            Activity activity = getActivity();
+            if (activity == null) return;
+            activity.runOnUiThread(() -> {
+                if (!isAdded() || !device.equals(deviceId)) return;
+                if (events.isEmpty()) {
+                    fetchFeedStats(device);   // nothing recorded on this phone yet
+                    return;
                 }
-                break;
-            }
+                showFeedStats(events);
+            });
+        });
+    }
+
+    // Events newest first
+    private void showFeedStats(List<TelemetryStore.FeedEvent> events) {
+        TelemetryStore.FeedEvent latest = events.get(0);
+        tvTodayFeed.setText("Feed Dispensed: " + latest.dispensed + " kg");
+        tvFeedLevel.setText("Feed Level: " + latest.remaining + "%");
+        tvLastUpdated.setText("Last Updated: " + new SimpleDateFormat("MM/dd HH:mm", Locale.getDefault())
+                .format(new Date(latest.timestamp)));
+
+        feedStats.reset();
+        for (int i = events.size() - 1; i >= 0; i--) {
+            TelemetryStore.FeedEvent event = events.get(i);
+            feedStats.add(event.timestamp, event.dispensed);
         }
+        showAverageFeed();
     }
 
-    private void startReadingData() {
-        new Thread(() -> {
-            try {
-                InputStream inputStream = bluetoothSocket.getInputStream();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    try {
-                        String[] parts = line.split(";");
-                        double dispensed = 0, remaining = 0;
-
-                        for (String part : parts) {
-                            if (part.startsWith("FEED:")) dispensed = Double.parseDouble(part.replace("FEED:", ""));
-                            else if (part.startsWith("REMAIN:")) remaining = Double.parseDouble(part.replace("REMAIN:", ""));
-                        }
+    private void showAverageFeed() {
+        if (feedStats.count() > 0) {
+            tvAverageFeed.setText("Average Feed: " + String.format("%.2f", feedStats.mean()) + " kg");
+        } else {
+            tvAverageFeed.setText("Average Feed: -- kg");
+        }
+    }
 
-                         double finalDispensed = dispensed;
-                        double finalRemaining = remaining;
+    // kg dispensed per day from the 7 daily summary documents, one read per day.
+    // Panning the bar chart back loads earlier weeks the same way, one week ahead
+    // of the pan; weeks far off screen are dropped.
+    private void fetchWeeklyFeed(String device) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.DAY_OF_YEAR, -(WEEK_DAYS - 1));
+        weekStart = cal.getTimeInMillis();
+        long weekMs = WEEK_DAYS * DAY_MS;
+
+        setupFeedChart();
+        feedBarChart.clear();
+        feedWeeks = new HistoryWindows<>(weekStart + weekMs, weekMs, weekStart - BAR_HISTORY_DAYS * DAY_MS,
+                (from, to, done) -> loadFeedWeek(device, from, done), this::showFeedWeeks);
+        feedWeeks.show(weekStart, weekStart + weekMs);
+    }
 
-                        requireActivity().runOnUiThread(() -> {
-                            feedHistory.add(finalDispensed);
-                            feedLevelHistory.add(finalRemaining);
+    // One week of daily documents, addressed by day id, so no query cursor is needed
+    private void loadFeedWeek(String device, long from, HistoryWindows.Callback<List<BarEntry>> done) {
+        int firstDay = (int) Math.round((from - weekStart) / (double) DAY_MS);
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(weekStart);
+        cal.add(Calendar.DAY_OF_YEAR, firstDay);   // midnight, across DST changes too
+
+        TelemetryRecorder.fetchDays(db, device, cal.getTimeInMillis(), WEEK_DAYS)
+                .addOnSuccessListener(days -> {
+                    List<BarEntry> entries = new ArrayList<>(days.size());
+                    for (int i = 0; i < days.size(); i++) {
+                        entries.add(new BarEntry(firstDay + i, (float) days.get(i).kgDispensed));
+                    }
+                    if (firstDay == 0 && isAdded() && device.equals(deviceId)) showWeekGrid(days);
+                    done.onLoaded(entries);
+                })
+                .addOnFailureListener(e -> {
+                    Log.w("FIRESTORE", "Error loading weekly feed", e);
+                    done.onLoaded(null);
+                });
+    }
 
-                            tvTodayFeed.setText("Feed Dispensed: " + finalDispensed + " kg");
-                            tvFeedLevel.setText("Feed Level: " + finalRemaining + "%");
-                            tvLastUpdated.setText("Last Updated: " + new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date()));
+    // The grid has one cell per day of the current week, oldest first
+    private void showWeekGrid(List<DailySummary.Day> days) {
+        SimpleDateFormat weekday = new SimpleDateFormat("EEE", Locale.getDefault());
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(weekStart);
+        for (int i = 0; i < days.size() && i < gridWeeklyFeed.getChildCount(); i++) {
+            String label = weekday.format(cal.getTime());
+            TextView cell = (TextView) gridWeeklyFeed.getChildAt(i);
+            cell.setText(days.get(i).feeds == 0
+                    ? label + "\n--kg"
+                    : label + "\n" + String.format(Locale.getDefault(), "%.1f", days.get(i).kgDispensed) + "kg");
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+    }
 
-                            saveFeedingDataToFirestore(finalDispensed, finalRemaining);
-                            if (finalRemaining < 25) addAlertToFirestore("Low Feed Level", "Feed storage is below 25%. Refill needed.");
-                        });
+    // The loaded weeks end to end; the viewport stays one week wide
+    private void showFeedWeeks() {
+        if (!isAdded() || feedWeeks == null) return;
+        ArrayList<BarEntry> entries = new ArrayList<>();
+        for (List<BarEntry> week : feedWeeks.loaded()) entries.addAll(week);
+        boolean first = feedBarChart.getData() == null;
+
+        BarDataSet dataSet = new BarDataSet(entries, "Feed dispensed (kg)");
+        dataSet.setColor(0xFF0288D1);
+        dataSet.setValueTextSize(10f);
+        feedBarChart.setData(new BarData(dataSet));
+        feedBarChart.getXAxis().setAxisMinimum(-BAR_HISTORY_DAYS - 0.5f);
+        feedBarChart.getXAxis().setAxisMaximum(WEEK_DAYS - 0.5f);
+        feedBarChart.setVisibleXRangeMaximum(WEEK_DAYS);
+        if (first) feedBarChart.moveViewToX(WEEK_DAYS);
+        feedBarChart.invalidate();
+    }
 
-                    } catch (Exception ignored) {}
-                }
-            } catch (IOException e) {
-                Log.e("BT", "Error reading data", e);
+    private void setupFeedChart() {
+        XAxis xAxis = feedBarChart.getXAxis();
+        xAxis.setValueFormatter(new DayAxisFormatter());
+        xAxis.setGranularity(1f);
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        feedBarChart.getAxisLeft().setAxisMinimum(0f);
+        feedBarChart.getAxisRight().setEnabled(false);
+        feedBarChart.getDescription().setEnabled(false);
+
+        feedBarChart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                showVisibleWeeks();
             }
-        }).start();
+
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                showVisibleWeeks();
+            }
+
+            @Override
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                showVisibleWeeks();
+            }
+
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {}
+
+            @Override
+            public void onChartLongPressed(MotionEvent me) {}
+
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) {}
+
+            @Override
+            public void onChartSingleTapped(MotionEvent me) {}
+
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {}
+        });
+    }
+
+    private void showVisibleWeeks() {
+        if (feedWeeks == null) return;
+        long from = weekStart + (long) Math.floor(feedBarChart.getLowestVisibleX() + 0.5f) * DAY_MS;
+        long to = weekStart + (long) Math.ceil(feedBarChart.getHighestVisibleX() + 0.5f) * DAY_MS;
+        feedWeeks.show(from, to);
     }
-    private void saveFeedingDataToFirestore(double dispensed, double remaining) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("dispensed", dispensed);
-        data.put("remaining", remaining);
-        data.put("timestamp", System.currentTimeMillis());
 
+    // x (days since this week's first day) as the weekday in the current week and
+    // as a date before it, with a reused Calendar
+    private final class DayAxisFormatter extends ValueFormatter {
+        private final SimpleDateFormat weekday = new SimpleDateFormat("EEE", Locale.getDefault());
+        private final SimpleDateFormat date = new SimpleDateFormat("d/M", Locale.getDefault());
+        private final Calendar cal = Calendar.getInstance();
+
+        @Override
+        public String getFormattedValue(float value) {
+            int day = Math.round(value);
+            cal.setTimeInMillis(weekStart);
+            cal.add(Calendar.DAY_OF_YEAR, day);
+            return (day >= 0 ? weekday : date).format(cal.getTime());
+        }
+    }
+
+    // Fallback on a phone without local history
+    private void fetchFeedStats(String device) {
         db.collection("FeedFlow")
-                .document("Device001")
+                .document(device)
                 .collection("weight")
-                .add(data)
-                .addOnFailureListener(e -> Log.e("FIRESTORE", "Failed to save feed data", e));
-    }
+                .orderBy("timestamp", com.google.firebase.firestore.Query.Direction.DESCENDING)
+                .limit(10)
+                .get()
+                .addOnSuccessListener(querySnapshots -> {
+                    if (!isAdded() || !device.equals(deviceId)) return;
+                    feedStats.reset();
 
-    private void addAlertToFirestore(String title, String description) {
-        Map<String, Object> alert = new HashMap<>();
-        alert.put("title", title);
-        alert.put("description", description);
-        alert.put("time", new SimpleDateFormat("hh:mm a", Locale.getDefault()).format(new Date()));
-        alert.put("status", "Warning");
+                    // Newest first; the stats take them oldest first and the newest is shown
+                    List<DocumentSnapshot> docs = querySnapshots.getDocuments();
+                    for (int i = docs.size() - 1; i >= 0; i--) {
+                        DocumentSnapshot doc = docs.get(i);
+                        Double dispensed = doc.getDouble("dispensed");
+                        Double remaining = doc.getDouble("remaining");
+                        Long timestamp = doc.getLong("timestamp");
+                        if (dispensed == null) continue;
+
+                        if (timestamp != null) feedStats.add(timestamp, dispensed);
+                        tvTodayFeed.setText("Feed Dispensed: " + dispensed + " kg");
+                        if (remaining != null) tvFeedLevel.setText("Feed Level: " + remaining + "%");
+                        if (timestamp != null) {
+                            String formatted = new SimpleDateFormat("MM/dd HH:mm", Locale.getDefault())
+                                    .format(new Date(timestamp));
+                            tvLastUpdated.setText("Last Updated: " + formatted);
+                        }
+                    }
 
-        db.collection("alerts").add(alert);
+                    showAverageFeed();
+                })
+                .addOnFailureListener(e -> Log.w("FIRESTORE", "Error loading feed data", e));
     }
 
-    @Override
-    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
-                                           @NonNull int[] grantResults) {
-        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (requestCode == 2001 &&
-                grantResults.length > 0 &&
-                grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-            connectToEsp32();
-        } else {
-            Log.e("BT", "Bluetooth permissions denied");
-        }
+    // Live "FEED:x;REMAIN:y" status from the shared Bluetooth link (main thread, latest only).
+    // Saving and low-feed alerts are handled by the service's bus lanes.
+    private void onLiveFeedStatus(float dispensed, float remaining) {
+        if (!isAdded()) return;
+
+        feedStats.add(System.currentTimeMillis(), dispensed);
+        showAverageFeed();
+
+        tvTodayFeed.setText("Feed Dispensed: " + dispensed + " kg");
+        tvFeedLevel.setText("Feed Level: " + remaining + "%");
+        tvLastUpdated.setText("Last Updated: " + new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date()));
     }
 }
@@ -0,0 +1,98 @@
+package com.example.feedflow;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.List;
+import java.util.Map;
+
+// Firestore side of BatchingSink: queued add()s and set()s go out as one WriteBatch
+// commit instead of one round trip and one request each.
+public class FirestoreBatchWriter {
+
+    private static final int MAX_BATCH = 100;           // Firestore allows 500 writes per batch
+    private static final long MAX_DELAY_MS = 5000;
+    private static final int CAPACITY = 2000;           // buffered plus committing
+    private static final long MAX_BLOCK_MS = 250;
+
+    private static final class Write {
+        final DocumentReference document;
+        final Object data;
+        final boolean merge;
+
+        Write(DocumentReference document, Object data, boolean merge) {
+            this.document = document;
+            this.data = data;
+            this.merge = merge;
+        }
+    }
+
+    private final FirebaseFirestore db;
+    private final BatchingSink<Write> sink;
+
+    public FirestoreBatchWriter(FirebaseFirestore db) {
+        this.db = db;
+        this.sink = new BatchingSink<>(this::commit, MAX_BATCH, MAX_DELAY_MS, CAPACITY, MAX_BLOCK_MS);
+    }
+
+    // Same effect as collection.add(data), batched
+    public void add(CollectionReference collection, Object data) {
+        set(collection.document(), data);
+    }
+
+    // Same effect as document.set(data), batched
+    public void set(DocumentReference document, Object data) {
+        offer(new Write(document, data, false));
+    }
+
+    // Same effect as document.set(data, SetOptions.merge()), batched: nested maps are
+    // merged key by key, fields not in data are kept
+    public void merge(DocumentReference document, Map<String, Object> data) {
+        offer(new Write(document, data, true));
+    }
+
+    private void offer(Write write) {
+        if (!sink.offer(write)) {
+            Log.w("FIRESTORE", "Batch writer full, dropped write to " + write.document.getPath());
+        }
+    }
+
+    public void flush() {
+        sink.flush();
+    }
+
+    // True once every write handed over so far is acknowledged by the server
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        return sink.awaitIdle(timeoutMs);
+    }
+
+    public void close() {
+        sink.close();
+        Log.i("FIRESTORE", "Batched " + sink.getCommittedCount() + " writes in " + sink.getBatchCount()
+                + " commits, dropped " + sink.getDroppedCount() + ", failed " + sink.getFailedCount()
+                + ". Commit latency " + sink.getCommitLatency() + ", buffer age " + sink.getRecordAge());
+    }
+
+    public BatchingSink<?> getSink() {
+        return sink;
+    }
+
+    private void commit(List<Write> writes, BatchingSink.Done done) {
+        WriteBatch batch = db.batch();
+        for (Write write : writes) {
+            if (write.merge) batch.set(write.document, write.data, SetOptions.merge());
+            else batch.set(write.document, write.data);
+        }
+        batch.commit()
+                .addOnSuccessListener(unused -> done.onComplete(true))
+                .addOnFailureListener(e -> {
+                    Log.e("FIRESTORE", "Batch commit failed (" + writes.size() + " writes)", e);
+                    done.onComplete(false);
+                });
+    }
+}
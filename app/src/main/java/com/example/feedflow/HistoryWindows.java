@@ -0,0 +1,117 @@
+package com.example.feedflow;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Loads a history chart in fixed time windows as it is panned back. Window k
+// covers [origin + k * windowMs, origin + (k + 1) * windowMs); window -1 is the
+// one ending at 'origin', the range first shown.
+//
+// show(from, to) loads the windows the viewport touches that are not loaded or
+// loading yet, plus one window further back so the next pan finds it ready, and
+// drops windows more than KEEP_MARGIN windows away from the viewport, so memory is
+// bounded by the viewport, not by how far the user has scrolled. Nothing before
+// 'earliest' is requested.
+//
+// All calls, and the loader's callbacks, on one thread (the main thread).
+public class HistoryWindows<T> {
+
+    public static final int KEEP_MARGIN = 2;
+
+    public interface Loader<T> {
+        // Loads [from, to) and calls done.onLoaded (null on failure) on the caller's thread
+        void load(long from, long to, Callback<T> done);
+    }
+
+    public interface Callback<T> {
+        void onLoaded(T data);
+    }
+
+    public interface Listener {
+        void onWindowsChanged();
+    }
+
+    private final long origin;
+    private final long windowMs;
+    private final long earliest;
+    private final Loader<T> loader;
+    private final Listener listener;
+    private final TreeMap<Long, T> loaded = new TreeMap<>();
+    private final Set<Long> pending = new HashSet<>();
+    private long keepFrom = Long.MIN_VALUE, keepTo = Long.MAX_VALUE;
+    private int requests;
+
+    public HistoryWindows(long origin, long windowMs, long earliest, Loader<T> loader, Listener listener) {
+        this.origin = origin;
+        this.windowMs = windowMs;
+        this.earliest = earliest;
+        this.loader = loader;
+        this.listener = listener;
+    }
+
+    // A window loaded elsewhere (the first range shown)
+    public void put(long index, T data) {
+        loaded.put(index, data);
+    }
+
+    public void show(long from, long to) {
+        long first = indexOf(from);
+        long last = indexOf(Math.max(from, to - 1));
+        keepFrom = first - KEEP_MARGIN;
+        keepTo = last + KEEP_MARGIN;
+
+        boolean evicted = false;
+        for (Long index : loaded.keySet().toArray(new Long[0])) {
+            if (index < keepFrom || index > keepTo) {
+                loaded.remove(index);
+                evicted = true;
+            }
+        }
+        for (long index = first - 1; index <= last; index++) request(index);
+        if (evicted) listener.onWindowsChanged();
+    }
+
+    // Loaded windows, oldest first
+    public Iterable<T> loaded() {
+        return loaded.values();
+    }
+
+    public int loadedCount() {
+        return loaded.size();
+    }
+
+    public boolean isLoaded(long index) {
+        return loaded.containsKey(index);
+    }
+
+    public boolean isPending(long index) {
+        return pending.contains(index);
+    }
+
+    // Loader calls made, for tests and logging
+    public int getRequestCount() {
+        return requests;
+    }
+
+    public long windowStart(long index) {
+        return origin + index * windowMs;
+    }
+
+    public long indexOf(long time) {
+        return Math.floorDiv(time - origin, windowMs);
+    }
+
+    private void request(long index) {
+        long start = windowStart(index);
+        if (start + windowMs <= earliest || loaded.containsKey(index) || !pending.add(index)) return;
+        requests++;
+        loader.load(start, start + windowMs, data -> {
+            pending.remove(index);
+            // Scrolled far away meanwhile: nothing to keep
+            if (data == null || index < keepFrom || index > keepTo) return;
+            loaded.put(index, data);
+            listener.onWindowsChanged();
+        });
+    }
+}
@@ -17,23 +17,16 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.google.firebase.firestore.FirebaseFirestore;
-
-import java.io.InputStream;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 public class HomeActivity extends AppCompatActivity {
 
     private TextView txtTemperature, txtFeedLevel, txtFeedLevelStatus, txtDeviceName, txtBtStatus, txtFeedAmount;
+    private StripChartView stripLive;
     private Button btnFeedNow, btnIncrease, btnDecrease;
     private LinearLayout feedProgressCard;  // <-- move to class level
     private ProgressBar progressFeed;
 
-
-    private FirebaseFirestore db;
-    private BluetoothSerial btSerial;
+    private BluetoothService.Binding btBinding;  // link lives in the service, not here
 
     private int feedAmount = 5;
     private static final int FEED_MAX = 10;
@@ -41,10 +34,8 @@ public class HomeActivity extends AppCompatActivity {
     private float currentWeight = 0.0f;
 
 
-    private enum ConnectionState {DISCONNECTED, CONNECTING, CONNECTED}
-    private ConnectionState connectionState = ConnectionState.DISCONNECTED;
+    private BluetoothSerial.State connectionState = BluetoothSerial.State.DISCONNECTED;
 
-    private final String ESP_MAC = "B4:88:08:B4:03:6A";  // ← Only ONE MAC address
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -53,41 +44,92 @@ public class HomeActivity extends AppCompatActivity {
         LinearLayout feedProgressCard = findViewById(R.id.feedProgressCard);
 
         initViews();
-        db = FirebaseFirestore.getInstance();
         requestBluetoothPermissions();
 
         // ------------------- Initialize Bluetooth -------------------
-        btSerial = new BluetoothSerial(this);
+        BluetoothService.start(this);
 
-        // Callbacks (only ONCE)
-        btSerial.setCallbacks(new BluetoothSerial.DataCallback() {
+        // Callbacks, attached while this screen is started
+        btBinding = new BluetoothService.Binding(new BluetoothSerial.DataCallback() {
             @Override
-            public void onDataReceived(byte[] rawData) {
-                String data = new String(rawData).trim();
-                Log.d("BT_RAW", "Received: " + data);
-                handleBluetoothData(data);
+            public void onTelemetry(TelemetryFrame frame) {   // main thread, latest only
+                switch (frame.type) {
+                    case TelemetryFrame.TYPE_READING:
+                        handleBluetoothData(frame);
+                        stripLive.dataChanged();
+                        break;
+                    case TelemetryFrame.TYPE_TEMPERATURE:
+                        stripLive.dataChanged();
+                        break;
+                    case TelemetryFrame.TYPE_PROGRESS:
+                        showFeedProgress(frame);
+                        break;
+                    case TelemetryFrame.TYPE_FEED_DONE:
+                        onFeedDone(frame);
+                        break;
+                }
             }
 
             @Override
             public void onConnectionFailed(Exception e) {
-                Log.e("BT_CONNECT", "Failed: " + e.getMessage());
-                Toast.makeText(HomeActivity.this, "Bluetooth Failed", Toast.LENGTH_SHORT).show();
-                setConnectionState(ConnectionState.DISCONNECTED);
+                Log.e("BT_CONNECT", "Attempt failed: " + e.getMessage());   // the service retries with backoff
             }
 
             @Override
             public void onDisconnected() {
                 Log.w("BT_CONNECT", "Disconnected");
-                Toast.makeText(HomeActivity.this, "Bluetooth Disconnected", Toast.LENGTH_SHORT).show();
-                setConnectionState(ConnectionState.DISCONNECTED);
+                runOnUiThread(() ->
+                        Toast.makeText(HomeActivity.this, "Bluetooth Disconnected", Toast.LENGTH_SHORT).show());
             }
-        });
+
+            @Override
+            public void onStateChanged(BluetoothSerial.State state) {
+                runOnUiThread(() -> setConnectionState(state));
+            }
+        }).setOnBound(this::onBluetoothServiceBound);
 
         setupButtons();
         setupBottomNavigation(findViewById(R.id.bottomNavigation));
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        btBinding.bind(this);
+    }
 
-        // ------------------- Start Connection -------------------
-        connectBluetoothWithRetry(ESP_MAC, 3);
+    @Override
+    protected void onStop() {
+        btBinding.unbind(this);
+        super.onStop();
+    }
+
+    // ------------------- Start Connection -------------------
+    // Coming back from another tab finds the link already up (or reconnecting): no new attempt.
+    // The service owns retries, backoff and the silence watchdog.
+    private void onBluetoothServiceBound() {
+        BluetoothService service = btBinding.getService();
+        if (service == null) return;
+
+        String mac = service.getDeviceAddress();
+        if (mac == null) mac = getIntent().getStringExtra("DEVICE_ADDRESS");
+        if (mac == null) mac = FeederIds.LEGACY_MAC;
+
+        service.connect(mac);
+        setConnectionState(service.getState());
+        LiveHistory.Series history = service.getLiveHistory().get(service.getDeviceId());
+        showLatestReading(history);
+        stripLive.setTrace(0, history.temperature, 0xFF0288D1);
+        stripLive.setTrace(1, history.weight, 0xFFFFA500);
+    }
+
+    // Coming back to Home shows the last reading at once instead of waiting for the next one
+    private void showLatestReading(LiveHistory.Series history) {
+        if (history.temperature.size() == 0) return;
+        txtTemperature.setText(history.temperature.latestValue() + " °C");
+        if (history.weight.size() == 0) return;
+        currentWeight = history.weight.latestValue();
+        txtFeedLevel.setText(currentWeight + " kg");
     }
 
     // ------------------------------------------------------------
@@ -100,6 +142,7 @@ public class HomeActivity extends AppCompatActivity {
         txtFeedAmount = findViewById(R.id.txtFeedAmount);
         txtDeviceName = findViewById(R.id.txtDeviceName);
         txtBtStatus = findViewById(R.id.txtBtStatus);
+        stripLive = findViewById(R.id.stripLive);
 
         // Assign to class-level variables, not local ones!
         feedProgressCard = findViewById(R.id.feedProgressCard);
@@ -131,61 +174,33 @@ public class HomeActivity extends AppCompatActivity {
         });
 
         btnFeedNow.setOnClickListener(v -> {
-            if (connectionState == ConnectionState.CONNECTED) {
-                String cmd = "FEED_NOW:" + feedAmount + "\n"; // send desired feed amount
-                Log.d("BT_SEND", "Sending: " + cmd);
-                btSerial.send(cmd.getBytes());
+            if (connectionState == BluetoothSerial.State.CONNECTED) {
+                BluetoothService service = btBinding.getService();
+                if (service == null) return;
+
+                int amount = feedAmount;
+                boolean sent = service.feedNow(amount, new CommandPipeline.Listener() {
+                    @Override
+                    public void onAcked(CommandPipeline.Command command, long roundTripMs) {
+                    }
 
-                // Show progress card and reset
+                    @Override
+                    public void onFailed(CommandPipeline.Command command) {
+                        runOnUiThread(() -> {
+                            feedProgressCard.setVisibility(View.GONE);
+                            Toast.makeText(HomeActivity.this, "Feeder did not confirm the command", Toast.LENGTH_LONG).show();
+                        });
+                    }
+                });
+                if (!sent) return;
+
+                // Show progress card; device progress frames fill it in
                 feedProgressCard.setVisibility(View.VISIBLE);
-                progressFeed.setMax(feedAmount);
+                progressFeed.setMax(amount * 1000);
                 progressFeed.setProgress(0);
 
                 Toast.makeText(this, "Feeding now…", Toast.LENGTH_SHORT).show();
 
-                // Save to Firestore feed logs
-                Map<String, Object> feedLog = new HashMap<>();
-                feedLog.put("feedAmount", feedAmount);
-                feedLog.put("timestamp", new Date());
-                feedLog.put("status", "Started");
-
-                db.collection("FeedFlow")
-                        .document("Device001")
-                        .collection("FeedLogs")
-                        .add(feedLog)
-                        .addOnSuccessListener(documentReference ->
-                                Log.d("FIRESTORE", "Feed log saved with ID: " + documentReference.getId()))
-                        .addOnFailureListener(e ->
-                                Log.e("FIRESTORE", "Error saving feed log", e));
-
-                // Optional: Simulated progress (replace with actual feed status from Bluetooth)
-                new Thread(() -> {
-                    for (int i = 1; i <= feedAmount; i++) {
-                        int progress = i;
-                        runOnUiThread(() -> progressFeed.setProgress(progress));
-                        try {
-                            Thread.sleep(500);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-
-                    // Hide progress card when done
-                    runOnUiThread(() -> feedProgressCard.setVisibility(View.GONE));
-
-                    // Update feed log status to 'Done' (optional)
-                    Map<String, Object> updateStatus = new HashMap<>();
-                    updateStatus.put("status", "Done");
-                    updateStatus.put("completedAt", new Date());
-
-                    db.collection("FeedFlow")
-                            .document("Device001")
-                            .collection("FeedLogs")
-                            .add(updateStatus)
-                            .addOnSuccessListener(doc -> Log.d("FIRESTORE", "Feed log updated to Done"))
-                            .addOnFailureListener(e -> Log.e("FIRESTORE", "Error updating feed log", e));
-                }).start();
-
             } else {
                 Toast.makeText(this, "ESP32 not connected!", Toast.LENGTH_SHORT).show();
             }
@@ -203,66 +218,10 @@ public class HomeActivity extends AppCompatActivity {
         }
     }
 
-    // ------------------------------------------------------------
-    // Connection
-    // ------------------------------------------------------------
-    private void connectBluetoothWithRetry(String mac, int retries) {
-        setConnectionState(ConnectionState.CONNECTING);
-
-        new Thread(() -> {
-            for (int i = 0; i < retries; i++) {
-                try {
-                    Log.d("BT_CONNECT", "Connecting to " + mac + " (Attempt " + (i + 1) + ")");
-                    btSerial.connect(mac);
-
-                    runOnUiThread(() -> {
-                        Log.d("BT_CONNECT", "Connected!");
-                        setConnectionState(ConnectionState.CONNECTED);
-                    });
-
-                    startBluetoothListener();
-                    return;
-
-                } catch (Exception e) {
-                    Log.e("BT_CONNECT", "Attempt " + (i + 1) + " failed: " + e.getMessage());
-                    try { Thread.sleep(1000); } catch (InterruptedException ignored) {}
-                }
-            }
-
-            runOnUiThread(() -> {
-                Log.e("BT_CONNECT", "All retries failed.");
-                setConnectionState(ConnectionState.DISCONNECTED);
-            });
-        }).start();
-    }
-
-    // ------------------------------------------------------------
-    // Listen for Bytes
-    // ------------------------------------------------------------
-    private void startBluetoothListener() {
-        new Thread(() -> {
-            try {
-                InputStream in = btSerial.getInputStream();
-                byte[] buffer = new byte[256];
-
-                while (connectionState == ConnectionState.CONNECTED) {
-                    if (in.available() > 0) {
-                        int len = in.read(buffer);
-                        String msg = new String(buffer, 0, len).trim();
-                        Log.d("BT_STREAM", "Stream Data: " + msg);
-                        handleBluetoothData(msg);
-                    }
-                }
-            } catch (Exception e) {
-                Log.e("BT_STREAM", "Listener error: " + e.getMessage());
-            }
-        }).start();
-    }
-
     // ------------------------------------------------------------
     // Update connection state UI
     // ------------------------------------------------------------
-    private void setConnectionState(ConnectionState state) {
+    private void setConnectionState(BluetoothSerial.State state) {
         connectionState = state;
         txtDeviceName.setText("ESP32: " + state.name());
 
@@ -275,6 +234,10 @@ public class HomeActivity extends AppCompatActivity {
                 txtBtStatus.setText("Connecting…");
                 txtBtStatus.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
                 break;
+            case RECONNECTING:
+                txtBtStatus.setText("Reconnecting…");
+                txtBtStatus.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+                break;
             case DISCONNECTED:
                 txtBtStatus.setText("Disconnected");
                 txtBtStatus.setTextColor(getResources().getColor(android.R.color.holo_red_dark));
@@ -285,51 +248,28 @@ public class HomeActivity extends AppCompatActivity {
     // ------------------------------------------------------------
     // Process incoming Bluetooth Data
     // ------------------------------------------------------------
-    private void handleBluetoothData(String received) {
-        if (received == null || received.isEmpty()) return;
+    // Persistence happens in the service's bus lane, this only updates the screen
+    private void handleBluetoothData(TelemetryFrame frame) {
+        currentWeight = frame.weight;
 
-        Log.d("BT_PARSE", "Raw packet: " + received);
-
-        String[] p = received.split(",");
+        txtTemperature.setText(frame.temperature + " °C");
+        txtFeedLevel.setText(frame.weight + " kg");
+        txtFeedLevelStatus.setText(frame.feeding ? "Feeding…" : "Idle");
+    }
 
-        if (p.length < 4) {
-            Log.e("BT_PARSE", "Invalid data: " + received);
-            return;
-        }
+    // Progress is in grams so small feeds still move the bar
+    private void showFeedProgress(TelemetryFrame frame) {
+        feedProgressCard.setVisibility(View.VISIBLE);
+        if (frame.target > 0) progressFeed.setMax(Math.round(frame.target * 1000));
+        progressFeed.setProgress(Math.round(frame.dispensed * 1000));
+        txtFeedLevelStatus.setText(frame.motor == TelemetryFrame.MOTOR_JAMMED ? "Motor jammed!" : "Feeding…");
+    }
 
-        try {
-            float temp = Float.parseFloat(p[0]);
-            float weight = Float.parseFloat(p[1]);
-            int servo = Integer.parseInt(p[2]);
-            boolean feeding = p[3].equals("1");
-
-            currentWeight = weight;
-
-            // UI Update
-            runOnUiThread(() -> {
-                txtTemperature.setText(temp + " °C");
-                txtFeedLevel.setText(weight + " kg");
-                txtFeedLevelStatus.setText(feeding ? "Feeding…" : "Idle");
-            });
-
-            // Firebase Save
-            Map<String, Object> data = new HashMap<>();
-            data.put("temperature", temp);
-            data.put("weight", weight);
-            data.put("servo", servo);
-            data.put("feedingActive", feeding);
-            data.put("timestamp", new Date());
-
-            db.collection("FeedFlow")
-                    .document("Device001")
-                    .collection("Readings")
-                    .add(data)
-                    .addOnSuccessListener(r -> Log.d("FIREBASE", "Saved"))
-                    .addOnFailureListener(e -> Log.e("FIREBASE", "Error: " + e));
-
-        } catch (Exception e) {
-            Log.e("BT_PARSE", "Error: " + e.getMessage());
-        }
+    private void onFeedDone(TelemetryFrame frame) {
+        progressFeed.setProgress(progressFeed.getMax());
+        feedProgressCard.setVisibility(View.GONE);
+        txtFeedLevelStatus.setText("Idle");
+        Toast.makeText(this, "Feeding done: " + frame.dispensed + " kg", Toast.LENGTH_SHORT).show();
     }
 
     // ------------------------------------------------------------
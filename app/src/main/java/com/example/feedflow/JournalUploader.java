@@ -0,0 +1,132 @@
+package com.example.feedflow;
+
+// Drains the TelemetryJournal in order into a Target (the Firestore recorder) on its
+// own thread, and acknowledges records back to the journal once the Target reports
+// them uploaded, which lets the journal delete old segments.
+//
+// Frames are decoded into a fixed set of reusable instances, so catching up on a
+// backlog of hours reads it from disk a batch at a time instead of loading it.
+// If the process dies before an ack, the records are replayed on the next start:
+// the Target must write them idempotently. A Target that lost writes since the
+// last ack (a failed commit, a dropped record) answers REPLAY instead; the journal
+// is then read again from the acked sequence into the reset Target, exactly as
+// after a restart.
+public class JournalUploader {
+
+    public static final long REPLAY = Long.MIN_VALUE;
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_WAIT_MS = 1000;
+    private static final long ACK_INTERVAL_MS = 2000;
+    private static final long UPLOAD_WAIT_MS = 5000;
+
+    public interface Target {
+        void onFrame(TelemetryFrame frame);
+
+        // Nothing left to read: a chance to close time buckets by the wall clock
+        void onIdle(long now);
+
+        // Everything up to processedSeq has been handed over. Returns the highest
+        // journal sequence that is safely uploaded, waiting up to timeoutMs, or
+        // REPLAY if anything handed over since the last ack was lost.
+        long uploadedThrough(long processedSeq, long timeoutMs) throws InterruptedException;
+
+        // Before a replay: drop all state built from records after the last ack
+        default void onReplay() {}
+    }
+
+    private final TelemetryJournal journal;
+    private final Target target;
+    private final TelemetryFrame[] frames = new TelemetryFrame[BATCH_SIZE];
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile Exception failure;
+
+    private long processedSeq;
+    private long uploadedCount = 0;
+    private long replayCount = 0;
+    private final LatencyHistogram catchUpLag = new LatencyHistogram();   // frame age when handed over
+
+    public JournalUploader(TelemetryJournal journal, Target target) {
+        this.journal = journal;
+        this.target = target;
+        this.processedSeq = journal.getAckedSeq();
+        for (int i = 0; i < frames.length; i++) frames[i] = new TelemetryFrame();
+
+        thread = new Thread(this::run, "journal-upload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Stops after the batch in progress; unacked records stay in the journal
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(UPLOAD_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long lastAckAt = System.currentTimeMillis();
+        try {
+            while (running) {
+                int count = journal.readBatch(frames);
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < count; i++) {
+                    catchUpLag.record(now - frames[i].timestamp);
+                    target.onFrame(frames[i]);
+                    processedSeq = frames[i].journalSeq;
+                }
+                uploadedCount += count;
+
+                boolean caughtUp = count < frames.length;
+                if (processedSeq > journal.getAckedSeq()
+                        && (caughtUp || now - lastAckAt >= ACK_INTERVAL_MS)) {
+                    long uploaded = target.uploadedThrough(processedSeq, UPLOAD_WAIT_MS);
+                    if (uploaded == REPLAY) {
+                        target.onReplay();
+                        journal.rewind();
+                        processedSeq = journal.getAckedSeq();
+                        replayCount++;
+                    } else if (uploaded > journal.getAckedSeq()) {
+                        journal.ackThrough(uploaded);
+                    }
+                    lastAckAt = System.currentTimeMillis();
+                }
+
+                if (count == 0) {
+                    target.onIdle(System.currentTimeMillis());
+                    journal.awaitData(IDLE_WAIT_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stop()
+        } catch (Exception e) {
+            // Journal I/O failed: leave the records for the next start
+            failure = e;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+    public long getUploadedCount() {
+        return uploadedCount;
+    }
+
+    public long getReplayCount() {
+        return replayCount;
+    }
+
+    // Why the upload thread ended early, null while it runs normally
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public LatencyHistogram getCatchUpLag() {
+        return catchUpLag;
+    }
+}
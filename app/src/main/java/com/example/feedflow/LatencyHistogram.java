@@ -0,0 +1,62 @@
+package com.example.feedflow;
+
+// Fixed-size latency histogram with power-of-two millisecond buckets
+// (bucket i holds values below 2^i ms). Recording is O(1) and allocation free.
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 24;   // last bucket: 2^22 ms and above (~70 min)
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public synchronized void record(long millis) {
+        if (millis < 0) millis = 0;
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        if (bucket >= BUCKETS) bucket = BUCKETS - 1;
+        counts[bucket]++;
+        count++;
+        sum += millis;
+        if (millis > max) max = millis;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        if (rank < 1) rank = 1;
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(i == 0 ? 0 : (1L << i) - 1, max);
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = 0;
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + count + " mean=" + Math.round(getMean()) + "ms p50=" + getPercentile(50)
+                + "ms p95=" + getPercentile(95) + "ms max=" + max + "ms";
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.feedflow;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Splits a byte stream into newline-terminated lines without allocating per line.
+// Bytes are read straight into one reusable buffer and every complete line is handed
+// to the listener as a (buffer, offset, length) slice, trimmed of whitespace and '\r'.
+// A slice is only valid for the duration of the callback.
+public class LineFramer {
+
+    public interface LineListener {
+        void onLine(byte[] buffer, int offset, int length);
+    }
+
+    private final byte[] buffer;
+    private final LineListener listener;
+
+    private int lineStart = 0;   // first byte of the line being assembled
+    private int end = 0;         // one past the last byte read
+    private boolean discarding = false;
+    private boolean stopped = false;
+    private long overflowCount = 0;
+
+    public LineFramer(int capacity, LineListener listener) {
+        this.buffer = new byte[capacity];
+        this.listener = listener;
+    }
+
+    // ------------------------------------------------------------
+    // Read one chunk from the stream and emit every complete line.
+    // Returns the number of bytes read, or -1 at end of stream.
+    // ------------------------------------------------------------
+    public int readFrom(InputStream in) throws IOException {
+        makeRoom();
+        int n = in.read(buffer, end, buffer.length - end);
+        if (n > 0) scan(n);
+        return n;
+    }
+
+    // Same as readFrom, for bytes that are already in memory
+    public void feed(byte[] src, int offset, int length) {
+        while (length > 0) {
+            makeRoom();
+            int n = Math.min(length, buffer.length - end);
+            System.arraycopy(src, offset, buffer, end, n);
+            scan(n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    public void reset() {
+        lineStart = 0;
+        end = 0;
+        discarding = false;
+        stopped = false;
+    }
+
+    // Stop framing after the current line (e.g. the link switches to binary).
+    // Bytes already read past that line are kept for drainTo().
+    public void stop() {
+        stopped = true;
+    }
+
+    // Hand the bytes left unscanned by stop() to another consumer, then reset
+    public void drainTo(LineListener sink) {
+        if (end > lineStart && sink != null) {
+            sink.onLine(buffer, lineStart, end - lineStart);
+        }
+        reset();
+    }
+
+    // Lines longer than the buffer are dropped and counted here
+    public long getOverflowCount() {
+        return overflowCount;
+    }
+
+    private void scan(int n) {
+        int from = end;
+        end += n;
+
+        for (int i = from; i < end; i++) {
+            if (buffer[i] != '\n') continue;
+
+            if (discarding) {
+                discarding = false;
+            } else {
+                emit(lineStart, i);
+            }
+            lineStart = i + 1;
+            if (stopped) return;
+        }
+
+        if (lineStart == end) {
+            // Nothing pending, rewind for free
+            lineStart = 0;
+            end = 0;
+        }
+    }
+
+    private void emit(int from, int to) {
+        while (from < to && (buffer[from] & 0xFF) <= ' ') from++;
+        while (to > from && (buffer[to - 1] & 0xFF) <= ' ') to--;
+        if (to > from && listener != null) {
+            listener.onLine(buffer, from, to - from);
+        }
+    }
+
+    // Shift the partial line to the front once the tail is full
+    private void makeRoom() {
+        if (end < buffer.length) return;
+
+        if (lineStart > 0) {
+            int pending = end - lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, pending);
+            lineStart = 0;
+            end = pending;
+        } else {
+            // A single line filled the whole buffer: drop it up to the next delimiter
+            if (!discarding) overflowCount++;
+            discarding = true;
+            lineStart = 0;
+            end = 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.feedflow;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory recent history per feeder: temperature and hopper weight in
+// SampleRingBuffers of CAPACITY samples (about an hour at 1 Hz). Owned by
+// BluetoothService and fed inline by the bus, so Home and the stats tabs can draw
+// the last hour at once, without the database or the network.
+// Each feeder's link has its own reader thread, so each buffer has one writer.
+public class LiveHistory implements TelemetryBus.Subscriber {
+
+    public static final int CAPACITY = 4096;
+
+    public static final class Series {
+        public final SampleRingBuffer temperature = new SampleRingBuffer(CAPACITY);
+        public final SampleRingBuffer weight = new SampleRingBuffer(CAPACITY);
+    }
+
+    private final Map<String, Series> devices = new ConcurrentHashMap<>();
+
+    @Override
+    public void onFrame(TelemetryFrame frame) {
+        boolean reading = frame.type == TelemetryFrame.TYPE_READING;
+        if (!reading && frame.type != TelemetryFrame.TYPE_TEMPERATURE) return;
+        Series series = get(frame.deviceId);
+        series.temperature.append(frame.timestamp, frame.temperature);
+        if (reading) series.weight.append(frame.timestamp, frame.weight);
+    }
+
+    // The feeder's series, empty until its first reading
+    public Series get(String deviceId) {
+        Series series = devices.get(deviceId);
+        if (series == null) {
+            Series created = new Series();
+            series = devices.putIfAbsent(deviceId, created);
+            if (series == null) series = created;
+        }
+        return series;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.feedflow;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// "store" lane of the TelemetryBus: folds samples into 1 min rollups and writes
+// them, with feed status frames, to the local TelemetryStore. Rows are committed
+// in one transaction every COMMIT_INTERVAL_MS or COMMIT_SIZE rows, whichever comes
+// first, instead of one disk sync per frame. Works the same with no network.
+public class LocalStoreWriter implements TelemetryBus.Subscriber {
+
+    private static final long COMMIT_INTERVAL_MS = 5000;
+    private static final int COMMIT_SIZE = 64;
+    private static final long PRUNE_INTERVAL_MS = RollupAggregator.HOUR_MS;
+
+    private final TelemetryStore store;
+    private final List<RollupAggregator.Rollup> minutes = new ArrayList<>();
+    private final RollupAggregator rollups = new RollupAggregator(minutes::add, RollupAggregator.MINUTE_MS);
+    private final List<TelemetryFrame> feedEvents = new ArrayList<>();
+    private long lastCommitAt = System.currentTimeMillis();
+    private long lastPruneAt = 0;
+
+    public LocalStoreWriter(TelemetryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public synchronized void onFrame(TelemetryFrame frame) {
+        long now = System.currentTimeMillis();
+        rollups.closeExpired(now);
+
+        if (frame.type == TelemetryFrame.TYPE_FEED) {
+            TelemetryFrame copy = new TelemetryFrame();
+            copy.copyFrom(frame);
+            feedEvents.add(copy);
+        } else {
+            rollups.add(frame);
+        }
+
+        if (minutes.size() + feedEvents.size() >= COMMIT_SIZE || now - lastCommitAt >= COMMIT_INTERVAL_MS) {
+            commit(now);
+        }
+    }
+
+    // Writes the open minute too; a later restart inside that minute merges into it
+    public synchronized void close() {
+        rollups.closeAll();
+        commit(System.currentTimeMillis());
+    }
+
+    private void commit(long now) {
+        lastCommitAt = now;
+        try {
+            if (!minutes.isEmpty() || !feedEvents.isEmpty()) store.write(minutes, feedEvents);
+            if (now - lastPruneAt >= PRUNE_INTERVAL_MS) {
+                store.prune(now - TelemetryStore.RETENTION_MS);
+                lastPruneAt = now;
+            }
+        } catch (RuntimeException e) {
+            Log.e("LOCAL_STORE", "Local store write failed", e);
+        }
+        minutes.clear();
+        feedEvents.clear();
+    }
+}
@@ -38,11 +38,14 @@ public class NoteDetailActivity extends AppCompatActivity {
         db.collection("notes").document(noteId).get()
                 .addOnSuccessListener(doc -> {
                     if (doc.exists()) {
-                        String detailText = "Dead Fish: " + doc.getString("deadFish") +
+                        String detailText = "Feeder: " + doc.getString("deviceId") +
+                                "\nDead Fish: " + doc.getString("deadFish") +
                                 "\nTemperature: " + doc.getString("temperature") + "°C" +
                                 "\nWeather: " + doc.getString("weather") +
                                 "\nFeeding: " + doc.getString("feedingTime") +
                                 "\nAmount: " + doc.getString("amount") + "kg" +
+                                "\nBiomass: " + doc.getString("biomass") + "kg" +
+                                "\nAvg Weight: " + doc.getString("avgWeight") + "g" +
                                 "\nBehaviour: " + doc.getString("behaviour") +
                                 "\nNotes: " + doc.getString("notes");
                         tvDetail.setText(detailText);
@@ -25,6 +25,7 @@ import java.util.Map;
 public class NotesActivity extends AppCompatActivity {
 
     private EditText editTextDeadFish, editTextTemp, editTextAmount, editTextNotes;
+    private EditText editTextBiomass, editTextAvgWeight;
     private Spinner spinnerWeather, spinnerFeedingTime, spinnerBehaviour;
     private Button btnRecord;
     private RecyclerView recyclerViewNotes;
@@ -34,6 +35,8 @@ public class NotesActivity extends AppCompatActivity {
 
     private FirebaseFirestore db;
     private CollectionReference notesRef;
+    // Notes belong to the primary feeder's cage, like its feeds
+    private final BluetoothService.Binding btBinding = new BluetoothService.Binding(frame -> {});
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,6 +51,8 @@ public class NotesActivity extends AppCompatActivity {
         editTextTemp = findViewById(R.id.editTextTemp);
         editTextAmount = findViewById(R.id.editTextAmount);
         editTextNotes = findViewById(R.id.editTextNotes);
+        editTextBiomass = findViewById(R.id.editTextBiomass);
+        editTextAvgWeight = findViewById(R.id.editTextAvgWeight);
         spinnerWeather = findViewById(R.id.spinnerWeather);
         spinnerFeedingTime = findViewById(R.id.spinnerFeedingTime);
         spinnerBehaviour = findViewById(R.id.spinnerBehaviour);
@@ -71,6 +76,18 @@ public class NotesActivity extends AppCompatActivity {
         setupBottomNavigation(bottomNav);
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        btBinding.bind(this);
+    }
+
+    @Override
+    protected void onStop() {
+        btBinding.unbind(this);
+        super.onStop();
+    }
+
     private void setupSpinners() {
         ArrayAdapter<CharSequence> weatherAdapter = ArrayAdapter.createFromResource(
                 this, R.array.weather_array, android.R.layout.simple_spinner_dropdown_item);
@@ -90,6 +107,8 @@ public class NotesActivity extends AppCompatActivity {
         String temp = editTextTemp.getText().toString().trim();
         String amount = editTextAmount.getText().toString().trim();
         String notes = editTextNotes.getText().toString().trim();
+        String biomass = editTextBiomass.getText().toString().trim();
+        String avgWeight = editTextAvgWeight.getText().toString().trim();
         String weather = spinnerWeather.getSelectedItem().toString();
         String feedingTime = spinnerFeedingTime.getSelectedItem().toString();
         String behaviour = spinnerBehaviour.getSelectedItem().toString();
@@ -102,6 +121,12 @@ public class NotesActivity extends AppCompatActivity {
         noteMap.put("amount", amount);
         noteMap.put("behaviour", behaviour);
         noteMap.put("notes", notes);
+        // Stock estimates and the note's time feed the FCR on the feeding stats screen
+        noteMap.put("biomass", biomass);
+        noteMap.put("avgWeight", avgWeight);
+        noteMap.put("timestamp", System.currentTimeMillis());
+        BluetoothService service = btBinding.getService();
+        noteMap.put("deviceId", service != null ? service.getDeviceId() : FeederIds.LEGACY_DOC_ID);
 
         notesRef.add(noteMap)
                 .addOnSuccessListener(docRef -> Toast.makeText(this, "Note saved", Toast.LENGTH_SHORT).show())
@@ -112,6 +137,8 @@ public class NotesActivity extends AppCompatActivity {
         editTextTemp.setText("");
         editTextAmount.setText("");
         editTextNotes.setText("");
+        editTextBiomass.setText("");
+        editTextAvgWeight.setText("");
         spinnerWeather.setSelection(0);
         spinnerFeedingTime.setSelection(0);
         spinnerBehaviour.setSelection(0);
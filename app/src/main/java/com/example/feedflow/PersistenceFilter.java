@@ -0,0 +1,134 @@
+package com.example.feedflow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Dead-band plus heartbeat filter in front of the raw-sample write (the chunks).
+//
+// A sample frame is passed on only if one of its channels moved by more than that
+// channel's threshold since the last persisted value, or that channel's heartbeat
+// interval has passed. Otherwise it is suppressed and counted. Holding the last
+// persisted value reconstructs each channel within its threshold, and the
+// heartbeat bounds how stale a reconstruction can get.
+//
+// Event frames (feed status, progress, completion) always pass. State is kept per
+// feeder and per hour: the first sample of a feeder in every hour passes, so what
+// an hour persists depends only on that hour's samples. A journal replay starts at
+// an hour boundary (TelemetryRecorder.uploadedThrough), so it persists the same
+// samples as the first pass and its chunks overwrite the same documents.
+// Only the raw samples are thinned: TelemetryRecorder asks accept() before
+// adding a sample to a chunk, while the journal, the rollups, the daily summaries
+// and the local store see every sample, so their counts and means are unbiased.
+// Called by the recorder under its lock, apart from the counters.
+public class PersistenceFilter {
+
+    public static final int TEMPERATURE = 0;
+    public static final int WEIGHT = 1;
+    public static final int SERVO = 2;
+    public static final int FEEDING = 3;
+    private static final int CHANNELS = 4;
+
+    private static final String[] NAMES = {"temperature", "weight", "servo", "feeding"};
+
+    private final float[] thresholds = {0.1f, 0.01f, 0.5f, 0.5f};   // °C, kg (10 g), degrees, on/off
+    private final long[] heartbeatsMs = {60_000, 60_000, 60_000, 60_000};
+    private final Map<String, float[]> lastValues = new HashMap<>();   // per feeder, per channel
+    private final Map<String, long[]> lastTimes = new HashMap<>();
+    private final Map<String, Long> hours = new HashMap<>();           // per feeder, hour of the state
+
+    private final float[] values = new float[CHANNELS];
+    private long passedCount = 0;
+    private long suppressedCount = 0;
+    private final long[] channelSuppressed = new long[CHANNELS];   // samples inside the band
+
+    // Forgets the last persisted values: the next sample of every feeder passes
+    public synchronized void reset() {
+        lastValues.clear();
+        lastTimes.clear();
+        hours.clear();
+    }
+
+    // A change larger than threshold, or heartbeatMs without one, persists the sample
+    public synchronized void setChannel(int channel, float threshold, long heartbeatMs) {
+        thresholds[channel] = threshold;
+        heartbeatsMs[channel] = heartbeatMs;
+    }
+
+    // Decides and, when the frame passes, records it as the last persisted value
+    public synchronized boolean accept(TelemetryFrame frame) {
+        int used;
+        if (frame.type == TelemetryFrame.TYPE_READING) {
+            values[TEMPERATURE] = frame.temperature;
+            values[WEIGHT] = frame.weight;
+            values[SERVO] = frame.servo;
+            values[FEEDING] = frame.feeding ? 1 : 0;
+            used = CHANNELS;
+        } else if (frame.type == TelemetryFrame.TYPE_TEMPERATURE) {
+            values[TEMPERATURE] = frame.temperature;
+            used = 1;
+        } else {
+            passedCount++;
+            return true;
+        }
+
+        float[] last = lastValues.get(frame.deviceId);
+        long[] times = lastTimes.get(frame.deviceId);
+        if (last == null) {
+            last = new float[CHANNELS];
+            times = new long[CHANNELS];
+            lastValues.put(frame.deviceId, last);
+            lastTimes.put(frame.deviceId, times);
+        }
+        long hour = frame.timestamp - Math.floorMod(frame.timestamp, RollupAggregator.HOUR_MS);
+        Long stateHour = hours.get(frame.deviceId);
+        if (stateHour == null || stateHour != hour) {
+            Arrays.fill(times, Long.MIN_VALUE);   // first sample of a feeder in an hour always passes
+            hours.put(frame.deviceId, hour);
+        }
+
+        boolean persist = false;
+        for (int i = 0; i < used; i++) {
+            boolean due = times[i] == Long.MIN_VALUE
+                    || Math.abs(values[i] - last[i]) > thresholds[i]
+                    || frame.timestamp - times[i] >= heartbeatsMs[i];
+            if (due) persist = true;
+            else channelSuppressed[i]++;
+        }
+
+        if (!persist) {
+            suppressedCount++;
+            return false;
+        }
+        for (int i = 0; i < used; i++) {
+            last[i] = values[i];
+            times[i] = frame.timestamp;
+        }
+        passedCount++;
+        return true;
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+    public synchronized long getPassedCount() {
+        return passedCount;
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    // Samples whose value for this channel was inside its band and heartbeat
+    public synchronized long getSuppressedCount(int channel) {
+        return channelSuppressed[channel];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder("passed=").append(passedCount)
+                .append(" suppressed=").append(suppressedCount);
+        for (int i = 0; i < CHANNELS; i++) sb.append(' ').append(NAMES[i]).append('=').append(channelSuppressed[i]);
+        return sb.toString();
+    }
+}
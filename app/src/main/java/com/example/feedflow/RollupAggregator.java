@@ -0,0 +1,166 @@
+package com.example.feedflow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Folds raw samples into fixed time buckets per feeder: 1 min, 15 min and 1 h,
+// each holding min / max / mean / count / last of temperature, weight and servo.
+// A bucket is handed to the Sink once it closes, either because a sample from a
+// later bucket arrived or because closeExpired() found its end in the past.
+//
+// Buckets are aligned to the epoch (UTC), so every feeder and every restart
+// agrees on bucket boundaries and a re-sent bucket overwrites the same document.
+// Not thread safe. Each instance has one owner that serializes access under its
+// own lock: TelemetryRecorder (journal uploader thread and idle ticks) and
+// LocalStoreWriter (store lane thread) each keep a separate aggregator.
+public class RollupAggregator {
+
+    public static final long MINUTE_MS = 60_000L;
+    public static final long QUARTER_MS = 15 * MINUTE_MS;
+    public static final long HOUR_MS = 60 * MINUTE_MS;
+
+    private static final long[] ALL_RESOLUTIONS = {MINUTE_MS, QUARTER_MS, HOUR_MS};
+
+    public interface Sink {
+        // The rollup is not reused, it may be kept
+        void onRollup(Rollup rollup);
+    }
+
+    public static final class Stat {
+        public float min = Float.NaN;
+        public float max = Float.NaN;
+        public double sum;
+        public int count;
+        public float last = Float.NaN;
+
+        void add(float value) {
+            if (count == 0 || value < min) min = value;
+            if (count == 0 || value > max) max = value;
+            sum += value;
+            count++;
+            last = value;
+        }
+
+        public double mean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+    }
+
+    public static final class Rollup {
+        public final String deviceId;
+        public final long resolutionMs;
+        public final long start;
+        public final Stat temperature = new Stat();
+        public final Stat weight = new Stat();
+        public final Stat servo = new Stat();
+        long firstJournalSeq = Long.MAX_VALUE;
+
+        Rollup(String deviceId, long resolutionMs, long start) {
+            this.deviceId = deviceId;
+            this.resolutionMs = resolutionMs;
+            this.start = start;
+        }
+
+        public long end() {
+            return start + resolutionMs;
+        }
+
+        // "1m", "15m", "1h"
+        public String resolutionName() {
+            return nameOf(resolutionMs);
+        }
+    }
+
+    private final Sink sink;
+    private final long[] resolutions;
+    private final Map<String, Rollup[]> open = new HashMap<>();   // deviceId -> one per resolution
+    private long lateCount = 0;
+
+    public RollupAggregator(Sink sink) {
+        this(sink, ALL_RESOLUTIONS);
+    }
+
+    // Only the given resolutions, finest first
+    public RollupAggregator(Sink sink, long... resolutions) {
+        this.sink = sink;
+        this.resolutions = resolutions;
+    }
+
+    public static String nameOf(long resolutionMs) {
+        return resolutionMs >= HOUR_MS ? (resolutionMs / HOUR_MS) + "h" : (resolutionMs / MINUTE_MS) + "m";
+    }
+
+    public void add(TelemetryFrame frame) {
+        boolean reading = frame.type == TelemetryFrame.TYPE_READING;
+        if (!reading && frame.type != TelemetryFrame.TYPE_TEMPERATURE) return;
+
+        Rollup[] buckets = open.get(frame.deviceId);
+        if (buckets == null) {
+            buckets = new Rollup[resolutions.length];
+            open.put(frame.deviceId, buckets);
+        }
+
+        for (int i = 0; i < resolutions.length; i++) {
+            long resolution = resolutions[i];
+            long start = frame.timestamp - Math.floorMod(frame.timestamp, resolution);
+
+            Rollup bucket = buckets[i];
+            if (bucket != null && start > bucket.start) {
+                sink.onRollup(bucket);
+                bucket = null;
+            } else if (bucket != null && start < bucket.start) {
+                lateCount++;   // clock stepped back: fold into the open bucket
+            }
+            if (bucket == null) {
+                bucket = new Rollup(frame.deviceId, resolution, start);
+                buckets[i] = bucket;
+            }
+
+            if (frame.journalSeq >= 0) bucket.firstJournalSeq = Math.min(bucket.firstJournalSeq, frame.journalSeq);
+            bucket.temperature.add(frame.temperature);
+            if (reading) {
+                bucket.weight.add(frame.weight);
+                bucket.servo.add(frame.servo);
+            }
+        }
+    }
+
+    // Closes buckets that ended at or before 'now', so a quiet feeder's last bucket is not held forever
+    public void closeExpired(long now) {
+        for (Rollup[] buckets : open.values()) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != null && buckets[i].end() <= now) {
+                    sink.onRollup(buckets[i]);
+                    buckets[i] = null;
+                }
+            }
+        }
+    }
+
+    // Emits every open bucket, closed or not (service shutdown)
+    public void closeAll() {
+        for (Rollup[] buckets : open.values()) {
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] != null) sink.onRollup(buckets[i]);
+                buckets[i] = null;
+            }
+        }
+    }
+
+    // Oldest journal record folded into a bucket that has not been emitted yet,
+    // Long.MAX_VALUE if none. The journal must keep records from here on to rebuild
+    // the open buckets after a restart.
+    public long getOldestOpenJournalSeq() {
+        long oldest = Long.MAX_VALUE;
+        for (Rollup[] buckets : open.values()) {
+            for (Rollup bucket : buckets) {
+                if (bucket != null) oldest = Math.min(oldest, bucket.firstJournalSeq);
+            }
+        }
+        return oldest;
+    }
+
+    public long getLateCount() {
+        return lateCount;
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.feedflow;
+
+// Streaming statistics of one series: count, mean, variance (Welford), min, max and
+// time spent inside / below / above a band. Every add() is O(1) (amortised for the
+// windowed min / max), with no boxing and no pass over the history.
+//
+// A sample's value is held until the next sample, at most MAX_HOLD_MS, so a gap in
+// the data counts as no time rather than as time at the last value. The last
+// sample's time is counted once the next one arrives.
+//
+// Windowed stats keep the last windowMs of samples (and at most 'capacity') in
+// primitive ring arrays and take the oldest back out as they expire; min / max come
+// from monotonic queues over the same ring. Not thread safe.
+public class RunningStats {
+
+    public static final long MAX_HOLD_MS = 2 * 60_000;
+
+    private final double bandLow;
+    private final double bandHigh;
+    private final long windowMs;
+
+    // Cumulative state
+    private long count;
+    private double mean;
+    private double m2;           // sum of squared distances from the mean
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private long msBelow, msInBand, msAbove;
+    private long lastTime;
+    private double lastValue;
+
+    // Window ring, null for cumulative stats. Samples are numbered; sample n is at n % capacity.
+    private final long[] times;
+    private final double[] values;
+    private final long[] held;   // ms each sample was held, once the next one arrived
+    private final long[] minQueue, maxQueue;   // sample numbers, values increasing / decreasing
+    private long first, next;
+    private long minHead, minTail, maxHead, maxTail;
+
+    // Cumulative, no band (every held ms counts as in band)
+    public RunningStats() {
+        this(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    public RunningStats(double bandLow, double bandHigh) {
+        this.bandLow = bandLow;
+        this.bandHigh = bandHigh;
+        this.windowMs = 0;
+        times = null;
+        values = null;
+        held = null;
+        minQueue = null;
+        maxQueue = null;
+    }
+
+    // Sliding window over the last windowMs, keeping at most 'capacity' samples
+    public RunningStats(double bandLow, double bandHigh, long windowMs, int capacity) {
+        if (windowMs <= 0 || capacity < 2) throw new IllegalArgumentException("window " + windowMs + " ms, capacity " + capacity);
+        this.bandLow = bandLow;
+        this.bandHigh = bandHigh;
+        this.windowMs = windowMs;
+        times = new long[capacity];
+        values = new double[capacity];
+        held = new long[capacity];
+        minQueue = new long[capacity];
+        maxQueue = new long[capacity];
+    }
+
+    public void add(long time, double value) {
+        if (Double.isNaN(value)) return;
+        if (count > 0) {
+            long ms = Math.min(time - lastTime, MAX_HOLD_MS);
+            if (ms > 0) {
+                hold(lastValue, ms);
+                if (times != null) held[slot(next - 1)] = ms;
+            }
+        }
+        lastTime = time;
+        lastValue = value;
+
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+
+        if (times == null) {
+            if (count == 1 || value < min) min = value;
+            if (count == 1 || value > max) max = value;
+            return;
+        }
+
+        if (next - first == times.length) evictOldest();
+        int i = slot(next);
+        times[i] = time;
+        values[i] = value;
+        held[i] = 0;
+        while (minTail > minHead && values[slot(minQueue[queueSlot(minTail - 1)])] >= value) minTail--;
+        minQueue[queueSlot(minTail++)] = next;
+        while (maxTail > maxHead && values[slot(maxQueue[queueSlot(maxTail - 1)])] <= value) maxTail--;
+        maxQueue[queueSlot(maxTail++)] = next;
+        next++;
+
+        while (times[slot(first)] < time - windowMs) evictOldest();
+    }
+
+    public void reset() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+        msBelow = msInBand = msAbove = 0;
+        first = next = 0;
+        minHead = minTail = maxHead = maxTail = 0;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    public double sum() {
+        return mean * count;
+    }
+
+    // Sample variance; 0 for a single sample
+    public double variance() {
+        if (count == 0) return Double.NaN;
+        return count == 1 ? 0 : m2 / (count - 1);
+    }
+
+    public double stdDev() {
+        return Math.sqrt(variance());
+    }
+
+    public double min() {
+        if (times == null || count == 0) return min;
+        return values[slot(minQueue[queueSlot(minHead)])];
+    }
+
+    public double max() {
+        if (times == null || count == 0) return max;
+        return values[slot(maxQueue[queueSlot(maxHead)])];
+    }
+
+    public double latest() {
+        return count == 0 ? Double.NaN : lastValue;
+    }
+
+    public long msInBand() {
+        return msInBand;
+    }
+
+    public long msBelow() {
+        return msBelow;
+    }
+
+    public long msAbove() {
+        return msAbove;
+    }
+
+    public long msTotal() {
+        return msBelow + msInBand + msAbove;
+    }
+
+    private void hold(double value, long ms) {
+        if (value < bandLow) msBelow += ms;
+        else if (value > bandHigh) msAbove += ms;
+        else msInBand += ms;
+    }
+
+    private void evictOldest() {
+        int i = slot(first);
+        double value = values[i];
+        hold(value, -held[i]);
+
+        if (count == 1) {
+            count = 0;
+            mean = 0;
+            m2 = 0;
+        } else {
+            double oldMean = mean;
+            mean -= (value - mean) / (count - 1);
+            m2 = Math.max(0, m2 - (value - mean) * (value - oldMean));
+            count--;
+        }
+
+        if (minTail > minHead && minQueue[queueSlot(minHead)] == first) minHead++;
+        if (maxTail > maxHead && maxQueue[queueSlot(maxHead)] == first) maxHead++;
+        first++;
+    }
+
+    private int slot(long sample) {
+        return (int) (sample % times.length);
+    }
+
+    private int queueSlot(long position) {
+        return (int) (position % minQueue.length);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.feedflow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Packs persisted samples into per-feeder, per-hour chunks: parallel arrays of
+// time offsets (ms from the hour start) and values, up to MAX_SAMPLES per chunk.
+// A chunk is handed to the Sink when its hour ends, it fills up, or flushOpen()
+// asks for a snapshot of the open ones.
+//
+// A chunk's id is its hour and its part number within the hour ("<hour>_<part>"),
+// counted per feeder, not a sample time: which samples reach the chunker is up to
+// the PersistenceFilter, and the id must not move when a journal replay of the
+// hour persists a different first sample. Every chunk carries its hour, so a time
+// range maps to the chunks of the hours it overlaps.
+// Only touched by the journal uploader thread.
+public class SampleChunker {
+
+    public static final int MAX_SAMPLES = 1000;   // ~30 KB of arrays, far below Firestore's 1 MiB
+
+    public interface Sink {
+        // complete is false for a snapshot of a chunk that is still being filled
+        void onChunk(Chunk chunk, boolean complete);
+    }
+
+    public static final class Chunk {
+        public final String deviceId;
+        public final long hour;           // start of the hour, epoch aligned
+        public final int part;            // 0 for the first chunk of the hour, 1 after MAX_SAMPLES, ...
+        public int size;
+        public final int[] offsets = new int[MAX_SAMPLES];
+        public final float[] temperature = new float[MAX_SAMPLES];
+        public final float[] weight = new float[MAX_SAMPLES];    // NaN for temperature-only samples
+        public final int[] servo = new int[MAX_SAMPLES];
+        long firstJournalSeq = Long.MAX_VALUE;
+
+        Chunk(String deviceId, long hour, int part) {
+            this.deviceId = deviceId;
+            this.hour = hour;
+            this.part = part;
+        }
+
+        public String id() {
+            return hour + "_" + part;
+        }
+
+        public long first() {
+            return hour + offsets[0];
+        }
+
+        public long last() {
+            return hour + offsets[size - 1];
+        }
+    }
+
+    private final Sink sink;
+    private final Map<String, Chunk> open = new HashMap<>();   // deviceId -> chunk being filled
+
+    public SampleChunker(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void add(TelemetryFrame frame) {
+        boolean reading = frame.type == TelemetryFrame.TYPE_READING;
+        if (!reading && frame.type != TelemetryFrame.TYPE_TEMPERATURE) return;
+
+        long hour = frame.timestamp - Math.floorMod(frame.timestamp, RollupAggregator.HOUR_MS);
+        Chunk chunk = open.get(frame.deviceId);
+        int part = 0;
+        if (chunk != null && (hour != chunk.hour || chunk.size == MAX_SAMPLES)) {
+            if (hour == chunk.hour) part = chunk.part + 1;
+            sink.onChunk(chunk, true);
+            chunk = null;
+        }
+        if (chunk == null) {
+            chunk = new Chunk(frame.deviceId, hour, part);
+            open.put(frame.deviceId, chunk);
+        }
+
+        int i = chunk.size++;
+        chunk.offsets[i] = (int) (frame.timestamp - hour);
+        chunk.temperature[i] = frame.temperature;
+        chunk.weight[i] = reading ? frame.weight : Float.NaN;
+        chunk.servo[i] = reading ? frame.servo : 0;
+        if (frame.journalSeq >= 0) chunk.firstJournalSeq = Math.min(chunk.firstJournalSeq, frame.journalSeq);
+    }
+
+    // Completes chunks whose hour ended at or before 'now'
+    public void closeExpired(long now) {
+        for (Chunk chunk : open.values().toArray(new Chunk[0])) {
+            if (chunk.hour + RollupAggregator.HOUR_MS <= now) {
+                open.remove(chunk.deviceId);
+                sink.onChunk(chunk, true);
+            }
+        }
+    }
+
+    // Snapshot of every open chunk, so recent samples are visible before the hour ends
+    public void flushOpen() {
+        for (Chunk chunk : open.values()) sink.onChunk(chunk, false);
+    }
+
+    public void closeAll() {
+        for (Chunk chunk : open.values()) sink.onChunk(chunk, true);
+        open.clear();
+    }
+
+    // Oldest journal record in a chunk that is still open, Long.MAX_VALUE if none
+    public long getOldestOpenJournalSeq() {
+        long oldest = Long.MAX_VALUE;
+        for (Chunk chunk : open.values()) oldest = Math.min(oldest, chunk.firstJournalSeq);
+        return oldest;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.feedflow;
+
+// Fixed-capacity history of one series: parallel long[] timestamps and float[]
+// values, overwritten oldest first. append() is O(1) and allocates nothing, so
+// memory stays at 12 bytes per slot however long the app runs.
+//
+// One writer thread, any number of readers. Samples are numbered; sample n lives
+// at n % capacity and 'end' (volatile) is published after the arrays are written.
+// A View is a range of sample numbers read straight from the arrays, no copy. A
+// reader that may be lapped by the writer checks isIntact() after reading.
+// Timestamps never go backwards: an older one is clamped to the last, so a time
+// window is a binary search.
+public class SampleRingBuffer {
+
+    private final long[] times;
+    private final float[] values;
+    private volatile long end;   // samples appended so far
+
+    public SampleRingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity " + capacity);
+        times = new long[capacity];
+        values = new float[capacity];
+    }
+
+    // Writer thread only
+    public void append(long time, float value) {
+        long n = end;
+        if (n > 0) time = Math.max(time, times[slot(n - 1)]);
+        int i = slot(n);
+        times[i] = time;
+        values[i] = value;
+        end = n + 1;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    public int size() {
+        return (int) Math.min(end, times.length);
+    }
+
+    public long appendedCount() {
+        return end;
+    }
+
+    // Time of the newest sample, Long.MIN_VALUE when empty
+    public long latestTime() {
+        long n = end;
+        return n == 0 ? Long.MIN_VALUE : times[slot(n - 1)];
+    }
+
+    public float latestValue() {
+        long n = end;
+        return n == 0 ? Float.NaN : values[slot(n - 1)];
+    }
+
+    // Samples with from <= time < to
+    public View window(long from, long to) {
+        return window(from, to, new View(this));
+    }
+
+    // Reuses 'view' (it must belong to this buffer) so a frame loop does not allocate
+    public View window(long from, long to, View view) {
+        long last = end;
+        long first = Math.max(0, last - times.length);
+        view.first = lowerBound(first, last, from);
+        view.end = Math.max(view.first, lowerBound(view.first, last, to));
+        return view;
+    }
+
+    // Samples numbered from 'from' on (see appendedCount), for a reader that takes
+    // every sample once; those already overwritten are skipped
+    public View since(long from, View view) {
+        long last = end;
+        view.first = Math.min(Math.max(from, Math.max(0, last - times.length)), last);
+        view.end = last;
+        return view;
+    }
+
+    // The newest 'count' samples
+    public View latest(int count) {
+        View view = new View(this);
+        view.end = end;
+        view.first = Math.max(Math.max(0, view.end - times.length), view.end - count);
+        return view;
+    }
+
+    // First sample number in [lo, hi) with time >= t, hi if none
+    private long lowerBound(long lo, long hi, long t) {
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (times[slot(mid)] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int slot(long sample) {
+        return (int) (sample % times.length);
+    }
+
+    // A window of the buffer; index 0 is its oldest sample
+    public static final class View {
+        private final SampleRingBuffer buffer;
+        long first, end;
+
+        public View(SampleRingBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        public int size() {
+            return (int) (end - first);
+        }
+
+        // Number of the sample after this view's newest
+        public long endSample() {
+            return end;
+        }
+
+        public long time(int index) {
+            return buffer.times[buffer.slot(first + index)];
+        }
+
+        public float value(int index) {
+            return buffer.values[buffer.slot(first + index)];
+        }
+
+        // False once the writer has overwritten the oldest sample of this view
+        public boolean isIntact() {
+            return buffer.end - buffer.times.length <= first;
+        }
+    }
+}
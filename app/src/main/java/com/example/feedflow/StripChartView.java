@@ -0,0 +1,171 @@
+package com.example.feedflow;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+// Lightweight live trace of up to MAX_TRACES series, drawn straight from the
+// service's SampleRingBuffers: the last windowMs, ending at the newest sample, each
+// trace scaled to its own min / max.
+//
+// Nothing is allocated per frame: the Path, Paints and ring-buffer views are
+// reused, and a pixel column holding several samples becomes one vertical stroke,
+// min to max, that the line leaves from the column's last sample.
+// dataChanged() asks for a redraw on the next vsync through the Choreographer, so
+// any number of samples between two frames cost one draw.
+public class StripChartView extends View implements Choreographer.FrameCallback {
+
+    public static final int MAX_TRACES = 2;
+    private static final long DEFAULT_WINDOW_MS = 5 * 60_000;
+    private static final int GRID_LINES = 4;
+
+    private final SampleRingBuffer[] buffers = new SampleRingBuffer[MAX_TRACES];
+    private final SampleRingBuffer.View[] windows = new SampleRingBuffer.View[MAX_TRACES];
+    private final Paint[] paints = new Paint[MAX_TRACES];
+    private final Paint gridPaint = new Paint();
+    private final Path path = new Path();
+    private long windowMs = DEFAULT_WINDOW_MS;
+    private boolean frameScheduled;
+
+    public StripChartView(Context context) {
+        this(context, null);
+    }
+
+    public StripChartView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public StripChartView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        float density = getResources().getDisplayMetrics().density;
+        for (int i = 0; i < MAX_TRACES; i++) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(2 * density);
+            paint.setStrokeJoin(Paint.Join.ROUND);
+            paints[i] = paint;
+        }
+        gridPaint.setColor(0x22000000);
+        gridPaint.setStrokeWidth(density);
+    }
+
+    // Shows 'buffer' as trace 'index' in 'color'; null removes the trace
+    public void setTrace(int index, @Nullable SampleRingBuffer buffer, int color) {
+        buffers[index] = buffer;
+        windows[index] = buffer != null ? new SampleRingBuffer.View(buffer) : null;
+        paints[index].setColor(color);
+        dataChanged();
+    }
+
+    public void setWindow(long windowMs) {
+        this.windowMs = windowMs;
+        dataChanged();
+    }
+
+    // New samples arrived (main thread); redraws once on the next frame
+    public void dataChanged() {
+        if (frameScheduled || !isAttachedToWindow()) return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        dataChanged();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        frameScheduled = false;
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft();
+        float top = getPaddingTop();
+        float width = getWidth() - left - getPaddingRight();
+        float height = getHeight() - top - getPaddingBottom();
+        if (width <= 0 || height <= 0) return;
+
+        for (int i = 0; i <= GRID_LINES; i++) {
+            float y = top + height * i / GRID_LINES;
+            canvas.drawLine(left, y, left + width, y, gridPaint);
+        }
+
+        long end = Long.MIN_VALUE;
+        for (SampleRingBuffer buffer : buffers) {
+            if (buffer != null) end = Math.max(end, buffer.latestTime());
+        }
+        if (end == Long.MIN_VALUE) return;
+        long start = end - windowMs;
+
+        for (int trace = 0; trace < MAX_TRACES; trace++) {
+            if (buffers[trace] == null) continue;
+            SampleRingBuffer.View window = buffers[trace].window(start, Long.MAX_VALUE, windows[trace]);
+            int n = window.size();
+            if (n == 0) continue;
+
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                float v = window.value(i);
+                if (v < min) min = v;
+                if (v > max) max = v;
+            }
+            float span = Math.max(max - min, 0.5f);
+            float low = (min + max) / 2 - span * 0.6f;
+            float scale = height / (span * 1.2f);
+
+            path.rewind();
+            int column = Integer.MIN_VALUE;
+            float columnX = 0, columnMin = 0, columnMax = 0, columnLast = 0;
+            for (int i = 0; i < n; i++) {
+                float x = left + (window.time(i) - start) * width / windowMs;
+                float y = top + height - (window.value(i) - low) * scale;
+                int c = (int) x;
+                if (c == column) {
+                    columnMin = Math.min(columnMin, y);
+                    columnMax = Math.max(columnMax, y);
+                    columnLast = y;
+                    continue;
+                }
+                if (column == Integer.MIN_VALUE) {
+                    path.moveTo(x, y);
+                } else {
+                    if (columnMin < columnMax) {
+                        path.lineTo(columnX, columnMin);
+                        path.lineTo(columnX, columnMax);
+                        path.lineTo(columnX, columnLast);   // the next segment leaves from the last sample
+                    }
+                    path.lineTo(x, y);
+                }
+                column = c;
+                columnX = x;
+                columnMin = y;
+                columnMax = y;
+                columnLast = y;
+            }
+            if (columnMin < columnMax) {
+                path.lineTo(columnX, columnMin);
+                path.lineTo(columnX, columnMax);
+                path.lineTo(columnX, columnLast);
+            }
+            canvas.drawPath(path, paints[trace]);
+        }
+    }
+}
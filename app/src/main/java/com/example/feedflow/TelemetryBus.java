@@ -0,0 +1,284 @@
+package com.example.feedflow;
+
+import android.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// Fans decoded frames out from the Bluetooth read threads. Every pooled feeder
+// link has its own reader, so publish() runs on several threads at once and every
+// channel must accept concurrent offers: LatestChannel and QueueChannel lock in
+// offer(), and DirectChannel subscribers must be safe to call concurrently for
+// different feeders.
+//
+// UI screens subscribe with a LatestChannel: it keeps only the newest frame of each
+// type and schedules at most one delivery at a time, so a slow screen skips stale
+// samples instead of queueing them.
+//
+// Persistence and alerting subscribe with a QueueChannel: a bounded ring of
+// preallocated frames drained in order by its own thread. If the consumer falls
+// behind and the ring fills up, new frames are counted as overflow, never blocking
+// the reader.
+//
+// Cheap in-memory consumers (the live history) subscribe with a DirectChannel,
+// called on the publishing thread; they must not block or do I/O.
+public class TelemetryBus {
+
+    public interface Subscriber {
+        // The frame is owned by the channel; copy what you keep
+        void onFrame(TelemetryFrame frame);
+    }
+
+    private static final int TYPE_SLOTS = 8;
+
+    private final CopyOnWriteArrayList<Channel> channels = new CopyOnWriteArrayList<>();
+
+    // Called by the reader thread of each link, possibly concurrently
+    public void publish(TelemetryFrame frame) {
+        for (Channel channel : channels) channel.offer(frame);
+    }
+
+    public LatestChannel subscribeLatest(Executor executor, Subscriber subscriber) {
+        LatestChannel channel = new LatestChannel(executor, subscriber);
+        channels.add(channel);
+        return channel;
+    }
+
+    public QueueChannel subscribeQueue(String name, int capacity, Subscriber subscriber) {
+        QueueChannel channel = new QueueChannel(name, capacity, subscriber);
+        channels.add(channel);
+        channel.start();
+        return channel;
+    }
+
+    public DirectChannel subscribeDirect(Subscriber subscriber) {
+        DirectChannel channel = new DirectChannel(subscriber);
+        channels.add(channel);
+        return channel;
+    }
+
+    public void unsubscribe(Channel channel) {
+        if (channels.remove(channel)) channel.close();
+    }
+
+    public void close() {
+        for (Channel channel : channels) unsubscribe(channel);
+    }
+
+    public abstract static class Channel {
+        abstract void offer(TelemetryFrame frame);
+
+        void close() {}
+    }
+
+    // ------------------------------------------------------------
+    // Inline delivery on the publishing reader thread (live history)
+    // ------------------------------------------------------------
+    public static class DirectChannel extends Channel {
+
+        private final Subscriber subscriber;
+        private volatile boolean closed;
+
+        DirectChannel(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        void offer(TelemetryFrame frame) {
+            if (!closed) subscriber.onFrame(frame);
+        }
+
+        @Override
+        void close() {
+            closed = true;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Conflating latest-value channel (UI)
+    // ------------------------------------------------------------
+    public static class LatestChannel extends Channel implements Runnable {
+
+        private final Executor executor;
+        private final Subscriber subscriber;
+        private final TelemetryFrame[] slots = new TelemetryFrame[TYPE_SLOTS];
+        private final boolean[] dirty = new boolean[TYPE_SLOTS];
+        private final TelemetryFrame delivery = new TelemetryFrame();
+        private boolean scheduled;
+        private volatile boolean closed;
+        private volatile String deviceFilter;   // null: every feeder
+
+        private long deliveredCount = 0;
+        private long conflatedCount = 0;
+
+        LatestChannel(Executor executor, Subscriber subscriber) {
+            this.executor = executor;
+            this.subscriber = subscriber;
+            for (int i = 0; i < TYPE_SLOTS; i++) slots[i] = new TelemetryFrame();
+        }
+
+        // Only frames from this feeder reach the subscriber; slots are per type, so
+        // filtering here keeps other feeders from conflating away this one's samples
+        public void setDeviceFilter(String deviceId) {
+            deviceFilter = deviceId;
+        }
+
+        @Override
+        void offer(TelemetryFrame frame) {
+            String filter = deviceFilter;
+            if (filter != null && !filter.equals(frame.deviceId)) return;
+
+            int slot = frame.type & (TYPE_SLOTS - 1);
+            boolean schedule;
+            synchronized (this) {
+                if (dirty[slot]) conflatedCount++;
+                slots[slot].copyFrom(frame);
+                dirty[slot] = true;
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) executor.execute(this);
+        }
+
+        // Delivery, on the subscriber's executor
+        @Override
+        public void run() {
+            for (int slot = 0; slot < TYPE_SLOTS; slot++) {
+                synchronized (this) {
+                    if (!dirty[slot]) continue;
+                    delivery.copyFrom(slots[slot]);
+                    dirty[slot] = false;
+                    deliveredCount++;
+                }
+                if (!closed) subscriber.onFrame(delivery);
+            }
+            boolean again = false;
+            synchronized (this) {
+                for (boolean d : dirty) {
+                    if (d) {
+                        again = true;
+                        break;
+                    }
+                }
+                scheduled = again;
+            }
+            if (again) executor.execute(this);
+        }
+
+        @Override
+        void close() {
+            closed = true;
+        }
+
+        public synchronized long getDeliveredCount() {
+            return deliveredCount;
+        }
+
+        public synchronized long getConflatedCount() {
+            return conflatedCount;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Bounded in-order queue with its own consumer thread (persistence, alerts)
+    // ------------------------------------------------------------
+    public static class QueueChannel extends Channel {
+
+        private final String name;
+        private final Subscriber subscriber;
+        private final TelemetryFrame[] ring;
+        private final TelemetryFrame delivery = new TelemetryFrame();
+        private int head = 0;   // next to take
+        private int size = 0;
+        private Thread worker;
+        private volatile boolean running;
+
+        private long deliveredCount = 0;
+        private long overflowCount = 0;
+        private long failureCount = 0;
+        private int highWaterMark = 0;
+
+        QueueChannel(String name, int capacity, Subscriber subscriber) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.ring = new TelemetryFrame[capacity];
+            for (int i = 0; i < capacity; i++) ring[i] = new TelemetryFrame();
+        }
+
+        void start() {
+            running = true;
+            worker = new Thread(this::drain, "bus-" + name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        @Override
+        synchronized void offer(TelemetryFrame frame) {
+            if (size == ring.length) {
+                overflowCount++;
+                return;
+            }
+            ring[(head + size) % ring.length].copyFrom(frame);
+            size++;
+            if (size > highWaterMark) highWaterMark = size;
+            notifyAll();
+        }
+
+        private void drain() {
+            while (running) {
+                synchronized (this) {
+                    while (running && size == 0) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (!running) return;
+                    delivery.copyFrom(ring[head]);
+                    head = (head + 1) % ring.length;
+                    size--;
+                    deliveredCount++;
+                }
+                try {
+                    subscriber.onFrame(delivery);
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        failureCount++;
+                    }
+                    Log.e("TELEMETRY_BUS", "Subscriber of " + name + " failed", e);
+                }
+            }
+        }
+
+        @Override
+        synchronized void close() {
+            running = false;
+            notifyAll();
+        }
+
+        public synchronized int getSize() {
+            return size;
+        }
+
+        public synchronized long getDeliveredCount() {
+            return deliveredCount;
+        }
+
+        public synchronized long getOverflowCount() {
+            return overflowCount;
+        }
+
+        public synchronized long getFailureCount() {
+            return failureCount;
+        }
+
+        public synchronized int getHighWaterMark() {
+            return highWaterMark;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
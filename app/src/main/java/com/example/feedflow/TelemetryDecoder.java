@@ -0,0 +1,286 @@
+package com.example.feedflow;
+
+// Parses the text lines sent by the ESP32 straight from the raw bytes into a
+// reusable TelemetryFrame. No Strings, no boxing, no exceptions: a bad line just
+// returns false and bumps the malformed counter.
+// Plain Java on purpose so it can be unit tested and benchmarked on the JVM.
+//
+// Text dialects understood:
+//   "27.4,3.5,90,1"          temp,weight,servo,feeding   -> TYPE_READING
+//   "temp:27.4" or "27.4"    water temperature only      -> TYPE_TEMPERATURE
+//   "FEED:1.5;REMAIN:72"     dispensed kg, remaining %   -> TYPE_FEED
+//   "PROG:1250;TARGET:5000;MOTOR:1;SEQ:12"
+//                            grams so far, of target     -> TYPE_PROGRESS
+//   "DONE:5000;SEQ:12"       grams dispensed in total    -> TYPE_FEED_DONE
+public class TelemetryDecoder {
+
+    private static final byte[] FEED_PREFIX = {'F', 'E', 'E', 'D', ':'};
+    private static final byte[] REMAIN_PREFIX = {'R', 'E', 'M', 'A', 'I', 'N', ':'};
+    private static final byte[] TEMP_PREFIX = {'T', 'E', 'M', 'P', ':'};
+    private static final byte[] PROG_PREFIX = {'P', 'R', 'O', 'G', ':'};
+    private static final byte[] DONE_PREFIX = {'D', 'O', 'N', 'E', ':'};
+    private static final byte[] TARGET_PREFIX = {'T', 'A', 'R', 'G', 'E', 'T', ':'};
+    private static final byte[] MOTOR_PREFIX = {'M', 'O', 'T', 'O', 'R', ':'};
+    private static final byte[] SEQ_PREFIX = {'S', 'E', 'Q', ':'};
+
+    private static final int MAX_DIGITS = 18;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    private long decodedCount = 0;
+    private long malformedCount = 0;
+
+    // Cursor shared by the field parsers; only touched by the calling thread
+    private int pos;
+    private int limit;
+
+    public boolean decode(byte[] buf, int offset, int length, TelemetryFrame out) {
+        pos = offset;
+        limit = offset + length;
+        skipSpaces(buf);
+
+        boolean ok;
+        if (startsWith(buf, FEED_PREFIX) || startsWith(buf, REMAIN_PREFIX)) {
+            ok = decodeFeed(buf, out);
+        } else if (startsWith(buf, PROG_PREFIX)) {
+            ok = decodeProgress(buf, out, TelemetryFrame.TYPE_PROGRESS, PROG_PREFIX);
+        } else if (startsWith(buf, DONE_PREFIX)) {
+            ok = decodeProgress(buf, out, TelemetryFrame.TYPE_FEED_DONE, DONE_PREFIX);
+        } else if (startsWith(buf, TEMP_PREFIX)) {
+            pos += TEMP_PREFIX.length;
+            ok = decodeTemperature(buf, out);
+        } else {
+            ok = decodeReading(buf, out);
+        }
+
+        if (!ok) return malformed();
+        out.seq = -1;
+        decodedCount++;
+        return true;
+    }
+
+    // ------------------------------------------------------------
+    // Dialects
+    // ------------------------------------------------------------
+
+    private boolean decodeReading(byte[] buf, TelemetryFrame out) {
+        float temp = parseFloat(buf);
+        if (Float.isNaN(temp)) return false;
+
+        // A lone number (optionally followed by ":...") is a temperature-only sample
+        if (pos == limit || buf[pos] == ':') {
+            out.type = TelemetryFrame.TYPE_TEMPERATURE;
+            out.temperature = temp;
+            return true;
+        }
+        if (!skipComma(buf)) return false;
+
+        float weight = parseFloat(buf);
+        if (Float.isNaN(weight) || !skipComma(buf)) return false;
+
+        long servo = parseInt(buf);
+        if (servo == Long.MIN_VALUE || !skipComma(buf)) return false;
+
+        // Feeding flag: "1" means active, anything else is idle (extra fields are ignored)
+        int flagStart = pos;
+        while (pos < limit && buf[pos] != ',') pos++;
+        boolean feeding = trimmedEquals(buf, flagStart, pos, (byte) '1');
+
+        out.type = TelemetryFrame.TYPE_READING;
+        out.temperature = temp;
+        out.weight = weight;
+        out.servo = (int) servo;
+        out.feeding = feeding;
+        return true;
+    }
+
+    private boolean decodeTemperature(byte[] buf, TelemetryFrame out) {
+        float temp = parseFloat(buf);
+        if (Float.isNaN(temp)) return false;
+
+        out.type = TelemetryFrame.TYPE_TEMPERATURE;
+        out.temperature = temp;
+        return true;
+    }
+
+    // "FEED:x;REMAIN:y" in any order; unknown keys are skipped, FEED is required
+    private boolean decodeFeed(byte[] buf, TelemetryFrame out) {
+        float dispensed = Float.NaN;
+        float remaining = 0f;
+
+        while (pos < limit) {
+            if (startsWith(buf, FEED_PREFIX)) {
+                pos += FEED_PREFIX.length;
+                dispensed = parseFloat(buf);
+                if (Float.isNaN(dispensed)) return false;
+            } else if (startsWith(buf, REMAIN_PREFIX)) {
+                pos += REMAIN_PREFIX.length;
+                remaining = parseFloat(buf);
+                if (Float.isNaN(remaining)) return false;
+            }
+
+            while (pos < limit && buf[pos] != ';') pos++;
+            pos++;
+            skipSpaces(buf);
+        }
+
+        if (Float.isNaN(dispensed)) return false;
+
+        out.type = TelemetryFrame.TYPE_FEED;
+        out.dispensed = dispensed;
+        out.remaining = remaining;
+        return true;
+    }
+
+    // "PROG:g;TARGET:g;MOTOR:m;SEQ:n" and "DONE:g;SEQ:n", grams on the wire, kg in the frame
+    private boolean decodeProgress(byte[] buf, TelemetryFrame out, int type, byte[] lead) {
+        float grams = Float.NaN;
+        float target = 0f;
+        long motor = type == TelemetryFrame.TYPE_PROGRESS ? TelemetryFrame.MOTOR_RUNNING : TelemetryFrame.MOTOR_STOPPED;
+        long seq = -1;
+
+        while (pos < limit) {
+            if (startsWith(buf, lead)) {
+                pos += lead.length;
+                grams = parseFloat(buf);
+                if (Float.isNaN(grams)) return false;
+            } else if (startsWith(buf, TARGET_PREFIX)) {
+                pos += TARGET_PREFIX.length;
+                target = parseFloat(buf);
+                if (Float.isNaN(target)) return false;
+            } else if (startsWith(buf, MOTOR_PREFIX)) {
+                pos += MOTOR_PREFIX.length;
+                motor = parseInt(buf);
+                if (motor == Long.MIN_VALUE) return false;
+            } else if (startsWith(buf, SEQ_PREFIX)) {
+                pos += SEQ_PREFIX.length;
+                seq = parseInt(buf);
+                if (seq == Long.MIN_VALUE) return false;
+            }
+
+            while (pos < limit && buf[pos] != ';') pos++;
+            pos++;
+            skipSpaces(buf);
+        }
+
+        if (Float.isNaN(grams)) return false;
+
+        out.type = type;
+        out.dispensed = grams / 1000f;
+        out.target = target / 1000f;
+        out.motor = (int) motor;
+        out.commandSeq = (int) seq;
+        return true;
+    }
+
+    public long getDecodedCount() {
+        return decodedCount;
+    }
+
+    public long getMalformedCount() {
+        return malformedCount;
+    }
+
+    private boolean malformed() {
+        malformedCount++;
+        return false;
+    }
+
+    // ------------------------------------------------------------
+    // Field parsers
+    // ------------------------------------------------------------
+
+    // Decimal number with optional sign and fraction; NaN when the field is not a number
+    private float parseFloat(byte[] buf) {
+        skipSpaces(buf);
+
+        boolean negative = false;
+        if (pos < limit && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDot = false;
+
+        while (pos < limit) {
+            byte b = buf[pos];
+            if (b >= '0' && b <= '9') {
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (seenDot) scale++;
+                } else if (!seenDot) {
+                    return Float.NaN; // out of range
+                }
+                digits++;
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+
+        if (digits == 0) return Float.NaN;
+        skipSpaces(buf);
+
+        double value = mantissa / POW10[scale];
+        return (float) (negative ? -value : value);
+    }
+
+    // Signed integer; Long.MIN_VALUE when the field is not an int
+    private long parseInt(byte[] buf) {
+        skipSpaces(buf);
+
+        boolean negative = false;
+        if (pos < limit && (buf[pos] == '-' || buf[pos] == '+')) {
+            negative = buf[pos] == '-';
+            pos++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (pos < limit && buf[pos] >= '0' && buf[pos] <= '9') {
+            value = value * 10 + (buf[pos] - '0');
+            if (++digits > 9) return Long.MIN_VALUE;
+            pos++;
+        }
+
+        if (digits == 0) return Long.MIN_VALUE;
+        skipSpaces(buf);
+        return negative ? -value : value;
+    }
+
+    private boolean skipComma(byte[] buf) {
+        if (pos < limit && buf[pos] == ',') {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces(byte[] buf) {
+        while (pos < limit && (buf[pos] & 0xFF) <= ' ') pos++;
+    }
+
+    // Case-insensitive ASCII match at the cursor; does not advance
+    private boolean startsWith(byte[] buf, byte[] prefix) {
+        if (limit - pos < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            int b = buf[pos + i];
+            if (b >= 'a' && b <= 'z') b -= 'a' - 'A';
+            if (b != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean trimmedEquals(byte[] buf, int from, int to, byte expected) {
+        while (from < to && (buf[from] & 0xFF) <= ' ') from++;
+        while (to > from && (buf[to - 1] & 0xFF) <= ' ') to--;
+        return to - from == 1 && buf[from] == expected;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.feedflow;
+
+// One decoded sample from the feeder. Instances are reused by the reader thread,
+// so copy the fields (or call copyFrom) before handing a frame to another thread.
+public class TelemetryFrame {
+
+    // Which fields are valid, one per firmware message
+    public static final int TYPE_READING = 1;      // temperature, weight, servo, feeding
+    public static final int TYPE_TEMPERATURE = 2;  // temperature only
+    public static final int TYPE_FEED = 3;         // dispensed (kg), remaining (%)
+    public static final int TYPE_PROGRESS = 4;     // dispensed, target (kg), motor while a feed runs
+    public static final int TYPE_FEED_DONE = 5;    // dispensed (kg) when the device finished a feed
+
+    public static final int MOTOR_STOPPED = 0;
+    public static final int MOTOR_RUNNING = 1;
+    public static final int MOTOR_JAMMED = 2;
+
+    public String deviceId = FeederIds.LEGACY_DOC_ID;   // Firestore doc of the feeder it came from
+    public int type = TYPE_READING;
+    public int seq = -1;   // binary protocol only
+
+    public float temperature;
+    public float weight;
+    public int servo;
+    public boolean feeding;
+
+    public float dispensed;
+    public float remaining;
+
+    public float target;
+    public int motor;
+    public int commandSeq = -1;   // FEED_NOW this progress belongs to, progress types only
+
+    public long timestamp;
+    public long journalSeq = -1;   // record in the TelemetryJournal, -1 if not journaled
+
+    public void copyFrom(TelemetryFrame other) {
+        deviceId = other.deviceId;
+        type = other.type;
+        seq = other.seq;
+        temperature = other.temperature;
+        weight = other.weight;
+        servo = other.servo;
+        feeding = other.feeding;
+        dispensed = other.dispensed;
+        remaining = other.remaining;
+        target = other.target;
+        motor = other.motor;
+        commandSeq = other.commandSeq;
+        timestamp = other.timestamp;
+        journalSeq = other.journalSeq;
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.feedflow;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Append-only, memory-mapped store-and-forward journal for decoded frames.
+//
+// Frames are appended to fixed-size segment files named after the sequence number
+// of their first record. Each record is
+//
+//   +--------+--------+-------------------------------+
+//   | LEN    | CRC32  | PAYLOAD (frame, LEN bytes)    |
+//   | i32 LE | i32 LE |                               |
+//   +--------+--------+-------------------------------+
+//
+// and a zero LEN marks the end of the written part of a segment. A record lives in
+// the page cache as soon as append() returns, so it survives the app being killed;
+// sync() forces it to the storage device.
+//
+// One reader (the uploader) walks the records in order. Once their data is safely
+// in Firestore it calls ackThrough(seq): the acked sequence is saved in a cursor
+// file and whole segments behind it are deleted. On open, the tail segment is
+// scanned to find the end of valid data (a torn last record fails its CRC) and
+// reading resumes after the acked sequence.
+//
+// The backlog stays on disk: readBatch() decodes into the caller's reusable frames.
+public class TelemetryJournal {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;   // ~17k frames
+    public static final int DEFAULT_MAX_SEGMENTS = 64;        // disk cap, oldest unacked segment dropped beyond
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_PAYLOAD = 128;
+    private static final int SYNC_EVERY = 256;                // records between forced writes
+    private static final String SEGMENT_PREFIX = "seg-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CURSOR_FILE = "acked";
+
+    private static final class Segment {
+        final long firstSeq;
+        final File file;
+        final MappedByteBuffer buffer;
+        int end;   // write position for the tail, valid data size for the others
+
+        Segment(long firstSeq, File file, MappedByteBuffer buffer) {
+            this.firstSeq = firstSeq;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();   // oldest first, last is the tail
+
+    private final byte[] scratch = new byte[MAX_PAYLOAD];
+    private final CRC32 crc = new CRC32();
+    private final Map<String, String> deviceIds = new HashMap<>();   // one String per feeder
+
+    private long nextSeq;          // sequence of the next appended record
+    private long ackedSeq;         // everything <= this has been uploaded
+    private int readSegment;       // reader position: index into segments
+    private int readOffset;
+    private int unsynced = 0;
+    private boolean closed;
+
+    private long appendedCount = 0;
+    private long corruptCount = 0;
+    private long droppedCount = 0;
+
+    public TelemetryJournal(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public TelemetryJournal(File dir, int segmentSize, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        recover();
+    }
+
+    // ------------------------------------------------------------
+    // Writing, from the persistence lane
+    // ------------------------------------------------------------
+
+    // Returns the record's sequence number, also stored in frame.journalSeq
+    public synchronized long append(TelemetryFrame frame) throws IOException {
+        if (closed) throw new IOException("Journal closed");
+
+        long seq = nextSeq;
+        int length = encode(frame, seq);
+        crc.reset();
+        crc.update(scratch, 0, length);
+
+        Segment tail = segments.get(segments.size() - 1);
+        if (tail.end + HEADER_SIZE + length + 4 > segmentSize) tail = roll(seq);
+
+        MappedByteBuffer buffer = tail.buffer;
+        buffer.position(tail.end + HEADER_SIZE);
+        buffer.put(scratch, 0, length);
+        buffer.putInt(tail.end + 4, (int) crc.getValue());
+        buffer.putInt(tail.end, length);   // length last: a torn record reads as the end
+        tail.end += HEADER_SIZE + length;
+
+        nextSeq++;
+        appendedCount++;
+        frame.journalSeq = seq;
+        if (++unsynced >= SYNC_EVERY) sync();
+        notifyAll();
+        return seq;
+    }
+
+    public synchronized void sync() {
+        if (segments.isEmpty()) return;
+        segments.get(segments.size() - 1).buffer.force();
+        unsynced = 0;
+    }
+
+    // ------------------------------------------------------------
+    // Reading, from the uploader
+    // ------------------------------------------------------------
+
+    // Decodes up to frames.length records after the reader position; returns how many
+    public synchronized int readBatch(TelemetryFrame[] frames) {
+        int count = 0;
+        while (count < frames.length && readSegment < segments.size()) {
+            Segment segment = segments.get(readSegment);
+            int length = readOffset + HEADER_SIZE <= segmentSize ? segment.buffer.getInt(readOffset) : 0;
+
+            if (length <= 0 || length > MAX_PAYLOAD || readOffset + HEADER_SIZE + length > segment.end) {
+                if (readSegment == segments.size() - 1) break;   // caught up with the writer
+                readSegment++;
+                readOffset = 0;
+                continue;
+            }
+
+            int expected = segment.buffer.getInt(readOffset + 4);
+            segment.buffer.position(readOffset + HEADER_SIZE);
+            segment.buffer.get(scratch, 0, length);
+            readOffset += HEADER_SIZE + length;
+
+            crc.reset();
+            crc.update(scratch, 0, length);
+            if ((int) crc.getValue() != expected || !decode(frames[count], length)) {
+                corruptCount++;
+                continue;
+            }
+            if (frames[count].journalSeq <= ackedSeq) continue;   // replayed before the ack
+            count++;
+        }
+        return count;
+    }
+
+    // Moves the reader back to the first record after the acked sequence, so records
+    // handed over but lost downstream are read again
+    public synchronized void rewind() {
+        readSegment = 0;
+        readOffset = 0;   // readBatch skips what is acked
+    }
+
+    // Blocks until a record is appended after the reader position, or the timeout
+    public synchronized void awaitData(long timeoutMs) throws InterruptedException {
+        if (hasUnread() || closed) return;
+        wait(timeoutMs);
+    }
+
+    private boolean hasUnread() {
+        if (readSegment < segments.size() - 1) return true;
+        Segment tail = segments.get(segments.size() - 1);
+        return readOffset < tail.end;
+    }
+
+    // Everything up to and including seq is uploaded: persist that and drop old segments
+    public synchronized void ackThrough(long seq) throws IOException {
+        if (seq <= ackedSeq) return;
+        ackedSeq = Math.min(seq, nextSeq - 1);
+        writeCursor();
+
+        while (segments.size() > 1 && segments.get(1).firstSeq <= ackedSeq + 1 && readSegment > 0) {
+            deleteOldest();
+        }
+    }
+
+    public synchronized void close() {
+        if (closed) return;
+        sync();
+        closed = true;
+        notifyAll();
+    }
+
+    // ------------------------------------------------------------
+    // Metrics
+    // ------------------------------------------------------------
+
+    // Appended but not yet acknowledged
+    public synchronized long getBacklog() {
+        return nextSeq - 1 - ackedSeq;
+    }
+
+    public synchronized long getAckedSeq() {
+        return ackedSeq;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    public synchronized long getCorruptCount() {
+        return corruptCount;
+    }
+
+    // Records lost because the disk cap forced out an unacked segment
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    // ------------------------------------------------------------
+    // Segments
+    // ------------------------------------------------------------
+    private void recover() throws IOException {
+        ackedSeq = readCursor();
+
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) files = new File[0];
+        Arrays.sort(files);   // zero-padded names sort by first sequence
+
+        for (File file : files) {
+            long firstSeq = Long.parseLong(file.getName().substring(
+                    SEGMENT_PREFIX.length(), file.getName().length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(firstSeq, file, map(file));
+            segment.end = scanEnd(segment);
+            segments.add(segment);
+        }
+
+        if (segments.isEmpty()) {
+            nextSeq = ackedSeq + 1;
+            segments.add(openSegment(nextSeq));
+        } else {
+            Segment tail = segments.get(segments.size() - 1);
+            nextSeq = tail.firstSeq + countRecords(tail);
+            if (nextSeq <= ackedSeq) nextSeq = ackedSeq + 1;
+        }
+
+        readSegment = 0;
+        readOffset = 0;
+        while (segments.size() > 1 && segments.get(1).firstSeq <= ackedSeq + 1) deleteOldest();
+    }
+
+    // End of the valid records of a segment; a bad CRC ends it (torn write)
+    private int scanEnd(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= segmentSize) {
+            int length = segment.buffer.getInt(offset);
+            if (length <= 0 || length > MAX_PAYLOAD || offset + HEADER_SIZE + length > segmentSize) break;
+
+            segment.buffer.position(offset + HEADER_SIZE);
+            segment.buffer.get(scratch, 0, length);
+            crc.reset();
+            crc.update(scratch, 0, length);
+            if ((int) crc.getValue() != segment.buffer.getInt(offset + 4)) break;
+
+            offset += HEADER_SIZE + length;
+        }
+        // Clear a torn tail so the next append starts from a clean end marker
+        if (offset + 4 <= segmentSize) segment.buffer.putInt(offset, 0);
+        return offset;
+    }
+
+    private int countRecords(Segment segment) {
+        int count = 0;
+        int offset = 0;
+        while (offset < segment.end) {
+            offset += HEADER_SIZE + segment.buffer.getInt(offset);
+            count++;
+        }
+        return count;
+    }
+
+    private Segment roll(long firstSeq) throws IOException {
+        segments.get(segments.size() - 1).buffer.force();
+        unsynced = 0;
+        Segment segment = openSegment(firstSeq);
+        segments.add(segment);
+
+        while (segments.size() > maxSegments) {
+            // Disk cap reached while offline: give up the oldest unacked records
+            Segment oldest = segments.get(0);
+            long lost = segments.get(1).firstSeq - Math.max(oldest.firstSeq, ackedSeq + 1);
+            if (lost > 0) droppedCount += lost;
+            ackedSeq = Math.max(ackedSeq, segments.get(1).firstSeq - 1);
+            writeCursor();
+            deleteOldest();
+        }
+        return segment;
+    }
+
+    private Segment openSegment(long firstSeq) throws IOException {
+        File file = new File(dir, String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        return new Segment(firstSeq, file, map(file));
+    }
+
+    private MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < segmentSize) raf.setLength(segmentSize);   // zero filled
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private void deleteOldest() {
+        Segment oldest = segments.remove(0);
+        if (readSegment > 0) {
+            readSegment--;
+        } else {
+            readOffset = 0;   // reader was still in it (dropped by the disk cap)
+        }
+        if (!oldest.file.delete()) oldest.file.deleteOnExit();
+    }
+
+    // ------------------------------------------------------------
+    // Cursor file: the acked sequence, written atomically via rename
+    // ------------------------------------------------------------
+    private long readCursor() {
+        File file = new File(dir, CURSOR_FILE);
+        if (!file.exists()) return 0;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readLong();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void writeCursor() throws IOException {
+        File tmp = new File(dir, CURSOR_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeLong(ackedSeq);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(dir, CURSOR_FILE))) throw new IOException("Cannot update journal cursor");
+    }
+
+    // ------------------------------------------------------------
+    // Frame payload
+    // ------------------------------------------------------------
+    private int encode(TelemetryFrame frame, long seq) {
+        int p = 0;
+        p = putLong(seq, p);
+        p = putLong(frame.timestamp, p);
+        scratch[p++] = (byte) frame.type;
+        scratch[p++] = (byte) (frame.feeding ? 1 : 0);
+        scratch[p++] = (byte) frame.motor;
+        p = putInt(frame.seq, p);
+        p = putInt(frame.servo, p);
+        p = putInt(frame.commandSeq, p);
+        p = putInt(Float.floatToIntBits(frame.temperature), p);
+        p = putInt(Float.floatToIntBits(frame.weight), p);
+        p = putInt(Float.floatToIntBits(frame.dispensed), p);
+        p = putInt(Float.floatToIntBits(frame.remaining), p);
+        p = putInt(Float.floatToIntBits(frame.target), p);
+
+        String deviceId = frame.deviceId != null ? frame.deviceId : "";
+        int n = Math.min(deviceId.length(), MAX_PAYLOAD - p - 1);
+        scratch[p++] = (byte) n;
+        for (int i = 0; i < n; i++) scratch[p++] = (byte) deviceId.charAt(i);
+        return p;
+    }
+
+    private boolean decode(TelemetryFrame frame, int length) {
+        if (length < 56) return false;
+        int p = 0;
+        frame.journalSeq = getLong(p);
+        frame.timestamp = getLong(p + 8);
+        p += 16;
+        frame.type = scratch[p++];
+        frame.feeding = scratch[p++] != 0;
+        frame.motor = scratch[p++];
+        frame.seq = getInt(p);
+        frame.servo = getInt(p + 4);
+        frame.commandSeq = getInt(p + 8);
+        frame.temperature = Float.intBitsToFloat(getInt(p + 12));
+        frame.weight = Float.intBitsToFloat(getInt(p + 16));
+        frame.dispensed = Float.intBitsToFloat(getInt(p + 20));
+        frame.remaining = Float.intBitsToFloat(getInt(p + 24));
+        frame.target = Float.intBitsToFloat(getInt(p + 28));
+        p += 32;
+
+        int n = scratch[p++] & 0xFF;
+        if (p + n > length) return false;
+        frame.deviceId = internDeviceId(p, n);
+        return true;
+    }
+
+    private String internDeviceId(int offset, int length) {
+        String id = new String(scratch, offset, length, StandardCharsets.US_ASCII);
+        String known = deviceIds.get(id);
+        if (known != null) return known;
+        deviceIds.put(id, id);
+        return id;
+    }
+
+    private int putLong(long v, int p) {
+        p = putInt((int) v, p);
+        return putInt((int) (v >>> 32), p);
+    }
+
+    private int putInt(int v, int p) {
+        scratch[p] = (byte) v;
+        scratch[p + 1] = (byte) (v >>> 8);
+        scratch[p + 2] = (byte) (v >>> 16);
+        scratch[p + 3] = (byte) (v >>> 24);
+        return p + 4;
+    }
+
+    private long getLong(int p) {
+        return (getInt(p) & 0xFFFFFFFFL) | ((long) getInt(p + 4) << 32);
+    }
+
+    private int getInt(int p) {
+        return (scratch[p] & 0xFF)
+                | (scratch[p + 1] & 0xFF) << 8
+                | (scratch[p + 2] & 0xFF) << 16
+                | (scratch[p + 3] & 0xFF) << 24;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.feedflow;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+// Firestore end of the persistence lane: fed in order by the JournalUploader (or by
+// the lane itself when there is no journal), whichever screen is open, and writes
+// under the document of the feeder each frame came from.
+// Temperature / weight / servo samples are folded into 1 min, 15 min and 1 h rollups,
+// one document per closed bucket at FeedFlow/<deviceId>/rollup_<resolution>/<bucket start>,
+// and packed into per-hour chunks of parallel arrays at FeedFlow/<deviceId>/chunks/<hour>_<part>,
+// so a day of samples is about 24 document reads (see queryChunks).
+// Rollups see every sample; chunks only those past the PersistenceFilter's dead-band
+// or heartbeat, which reconstruct each channel within its threshold.
+// 15 min buckets and finished feeds are also merged into per-day DailySummary documents.
+// Writes go through the batched writer. Every document id is derived from the data,
+// so frames replayed from the journal after a restart overwrite instead of duplicating.
+public class TelemetryRecorder implements TelemetryBus.Subscriber, JournalUploader.Target {
+
+    public static final String CHUNK_COLLECTION = "chunks";
+    private static final long CHUNK_SNAPSHOT_MS = 10 * RollupAggregator.MINUTE_MS;   // open chunks rewritten this often
+
+    private final FirebaseFirestore db;
+    private final FirestoreBatchWriter writer;
+    private RollupAggregator rollups = new RollupAggregator(this::saveRollup);
+    private SampleChunker chunker = new SampleChunker(this::saveChunk);
+    private final PersistenceFilter sampleFilter = new PersistenceFilter();   // chunks only
+    private DailySummary daily = new DailySummary();
+    private long lastSnapshotAt = 0;
+    private long lostBefore = 0;   // writer's failed + dropped writes when the journal was last read from its ack
+
+    public TelemetryRecorder(FirebaseFirestore db) {
+        this.db = db;
+        this.writer = new FirestoreBatchWriter(db);
+    }
+
+    // Writes the open (partial) buckets and commits what is still buffered.
+    // Called after the persistence lane has stopped.
+    public synchronized void close() {
+        rollups.closeAll();
+        chunker.closeAll();
+        writer.close();
+    }
+
+    public PersistenceFilter getSampleFilter() {
+        return sampleFilter;
+    }
+
+    public static String rollupCollection(long resolutionMs) {
+        return "rollup_" + RollupAggregator.nameOf(resolutionMs);
+    }
+
+    // The chunks of [from, to): every chunk of the hours the range overlaps, found by
+    // the single-field index on "hour". Callers drop the samples outside the range.
+    public static Query queryChunks(FirebaseFirestore db, String deviceId, long from, long to) {
+        long firstHour = from - Math.floorMod(from, RollupAggregator.HOUR_MS);
+        return db.collection("FeedFlow")
+                .document(deviceId)
+                .collection(CHUNK_COLLECTION)
+                .whereGreaterThanOrEqualTo("hour", firstHour)
+                .whereLessThan("hour", to)
+                .orderBy("hour", Query.Direction.ASCENDING);
+    }
+
+    @Override
+    public synchronized void onFrame(TelemetryFrame frame) {
+        // Data time, not wall time: a backlog being replayed still fills whole buckets
+        rollups.closeExpired(frame.timestamp);
+        chunker.closeExpired(frame.timestamp);
+
+        switch (frame.type) {
+            case TelemetryFrame.TYPE_READING:
+            case TelemetryFrame.TYPE_TEMPERATURE:
+                rollups.add(frame);
+                // Rollups take every sample; the raw chunks only the ones that moved
+                if (sampleFilter.accept(frame)) chunker.add(frame);
+                if (frame.timestamp - lastSnapshotAt >= CHUNK_SNAPSHOT_MS) {
+                    lastSnapshotAt = frame.timestamp;
+                    chunker.flushOpen();
+                }
+                break;
+            case TelemetryFrame.TYPE_FEED:
+                saveFeedStatus(frame);
+                break;
+            case TelemetryFrame.TYPE_PROGRESS:
+                FeedSessions.onProgress(db, frame);
+                break;
+            case TelemetryFrame.TYPE_FEED_DONE:
+                saveFeedDone(frame);
+                break;
+        }
+    }
+
+    @Override
+    public synchronized void onIdle(long now) {
+        rollups.closeExpired(now);
+        chunker.closeExpired(now);
+    }
+
+    // Uploaded once the writer has nothing pending, and only up to the first record of
+    // a still-open bucket: the journal keeps those to rebuild the bucket after a restart.
+    // A failed commit or a dropped write still leaves the writer idle, so any since
+    // the last replay mean the records after the ack are read again (REPLAY).
+    @Override
+    public long uploadedThrough(long processedSeq, long timeoutMs) throws InterruptedException {
+        long openFrom;
+        synchronized (this) {
+            openFrom = Math.min(rollups.getOldestOpenJournalSeq(), chunker.getOldestOpenJournalSeq());
+            writer.flush();
+        }
+        if (!writer.awaitIdle(timeoutMs)) return -1;
+        if (lostWrites() > lostBefore) return JournalUploader.REPLAY;
+        return Math.min(processedSeq, openFrom - 1);
+    }
+
+    // Starts over like after a restart: the journal hands over every record after
+    // the ack again, and document ids derived from the data make the rewrites
+    // overwrite what did get through
+    @Override
+    public synchronized void onReplay() {
+        lostBefore = lostWrites();
+        rollups = new RollupAggregator(this::saveRollup);
+        chunker = new SampleChunker(this::saveChunk);
+        sampleFilter.reset();   // the replay starts at an hour boundary, where it starts over anyway
+        daily = new DailySummary();
+        lastSnapshotAt = 0;
+    }
+
+    private long lostWrites() {
+        BatchingSink<?> sink = writer.getSink();
+        return sink.getFailedCount() + sink.getDroppedCount();
+    }
+
+    public static DocumentReference dailyDocument(FirebaseFirestore db, String deviceId, String dayId) {
+        return db.collection("FeedFlow")
+                .document(deviceId)
+                .collection(DailySummary.COLLECTION)
+                .document(dayId);
+    }
+
+    // The daily summaries of 'days' consecutive local days from firstDay, one document
+    // read each; a day without a document folds to an empty Day
+    public static Task<List<DailySummary.Day>> fetchDays(FirebaseFirestore db, String deviceId,
+                                                         long firstDay, int days) {
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>();
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(firstDay);
+        for (int i = 0; i < days; i++) {
+            reads.add(dailyDocument(db, deviceId, DailySummary.dayId(cal.getTimeInMillis(), cal.getTimeZone())).get());
+            cal.add(Calendar.DAY_OF_YEAR, 1);
+        }
+
+        return Tasks.whenAllSuccess(reads).continueWith(task -> {
+            List<DailySummary.Day> result = new ArrayList<>();
+            for (Object read : task.getResult()) {
+                Map<String, Object> data = ((DocumentSnapshot) read).getData();
+                result.add(data == null ? new DailySummary.Day() : DailySummary.fold(data));
+            }
+            return result;
+        });
+    }
+
+    private void saveRollup(RollupAggregator.Rollup rollup) {
+        if (rollup.resolutionMs == RollupAggregator.MINUTE_MS) daily.onMinute(rollup);
+        if (rollup.resolutionMs == RollupAggregator.QUARTER_MS) saveDailySlot(rollup);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("resolution", rollup.resolutionName());
+        data.put("start", rollup.start);
+        data.put("end", rollup.end());
+        data.put("temperature", toMap(rollup.temperature));
+        if (rollup.weight.count > 0) data.put("weight", toMap(rollup.weight));
+        if (rollup.servo.count > 0) data.put("servo", toMap(rollup.servo));
+
+        // Bucket start as the id: a bucket written twice overwrites itself
+        writer.set(db.collection("FeedFlow")
+                .document(rollup.deviceId)
+                .collection(rollupCollection(rollup.resolutionMs))
+                .document(String.valueOf(rollup.start)), data);
+    }
+
+    // Merges the closed 15 min bucket into its day's summary
+    private void saveDailySlot(RollupAggregator.Rollup quarter) {
+        if (quarter.temperature.count == 0) return;
+        String dayId = DailySummary.dayId(quarter.start, TimeZone.getDefault());
+        Map<String, Object> slots = new HashMap<>();
+        slots.put(String.valueOf(quarter.start), daily.slotEntry(quarter));
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("date", dayId);
+        data.put("slots", slots);
+        writer.merge(dailyDocument(db, quarter.deviceId, dayId), data);
+    }
+
+    // Arrays are copied, the chunk keeps filling after a snapshot
+    private void saveChunk(SampleChunker.Chunk chunk, boolean complete) {
+        List<Long> offsets = new ArrayList<>(chunk.size);
+        List<Double> temperature = new ArrayList<>(chunk.size);
+        List<Double> weight = new ArrayList<>(chunk.size);
+        List<Long> servo = new ArrayList<>(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            offsets.add((long) chunk.offsets[i]);
+            temperature.add((double) chunk.temperature[i]);
+            weight.add(Float.isNaN(chunk.weight[i]) ? null : (double) chunk.weight[i]);
+            servo.add((long) chunk.servo[i]);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("hour", chunk.hour);
+        data.put("first", chunk.first());
+        data.put("last", chunk.last());
+        data.put("count", chunk.size);
+        data.put("complete", complete);
+        data.put("t", offsets);   // ms after "hour"
+        data.put("temperature", temperature);
+        data.put("weight", weight);
+        data.put("servo", servo);
+
+        writer.set(db.collection("FeedFlow")
+                .document(chunk.deviceId)
+                .collection(CHUNK_COLLECTION)
+                .document(chunk.id()), data);
+    }
+
+    private static Map<String, Object> toMap(RollupAggregator.Stat stat) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("min", (double) stat.min);
+        data.put("max", (double) stat.max);
+        data.put("mean", stat.mean());
+        data.put("count", stat.count);
+        data.put("last", (double) stat.last);
+        return data;
+    }
+
+    private void saveFeedStatus(TelemetryFrame frame) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("dispensed", (double) frame.dispensed);
+        data.put("remaining", (double) frame.remaining);
+        data.put("timestamp", frame.timestamp);
+
+        writer.set(db.collection("FeedFlow")
+                .document(frame.deviceId)
+                .collection("weight")
+                .document(String.valueOf(frame.timestamp)), data);
+    }
+
+    // Written on the device's completion frame, never on a timer: closes the feed
+    // session and adds the feed to its day's summary
+    private void saveFeedDone(TelemetryFrame frame) {
+        FeedSessions.onDone(db, writer, frame);
+
+        String dayId = DailySummary.dayId(frame.timestamp, TimeZone.getDefault());
+        Map<String, Object> feeds = new HashMap<>();
+        feeds.put(String.valueOf(frame.timestamp), (double) frame.dispensed);
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("date", dayId);
+        summary.put("feeds", feeds);
+        writer.merge(dailyDocument(db, frame.deviceId, dayId), summary);
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.feedflow;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// On-device time-series store behind the stats screens, keyed by (device, time).
+//
+//   minutes      one row per feeder per 1 min rollup: temperature / weight / servo
+//                min, max, sum, count, last. 30 days of one feeder is 43k rows.
+//   feed_events  one row per FEED status frame: dispensed, remaining
+//
+// Both tables are clustered on their primary key (WITHOUT ROWID), so a time range
+// of one feeder is a single contiguous index scan. Range queries aggregate in SQL
+// and return one row per bucket. Written by LocalStoreWriter on its bus lane.
+public class TelemetryStore extends SQLiteOpenHelper {
+
+    private static final String NAME = "telemetry.db";
+    private static final int VERSION = 1;
+    public static final long RETENTION_MS = 90L * 24 * RollupAggregator.HOUR_MS;
+
+    private static TelemetryStore instance;
+
+    public static synchronized TelemetryStore get(Context context) {
+        if (instance == null) instance = new TelemetryStore(context.getApplicationContext());
+        return instance;
+    }
+
+    // Temperature over one bucket of a range query
+    public static final class Bucket {
+        public final long start;
+        public final float min;
+        public final float max;
+        public final double mean;
+        public final long samples;
+        public final int minutes;        // minutes with data
+        public final int minutesBelow;   // minute mean below the band
+        public final int minutesAbove;
+
+        Bucket(long start, float min, float max, double mean, long samples,
+               int minutes, int minutesBelow, int minutesAbove) {
+            this.start = start;
+            this.min = min;
+            this.max = max;
+            this.mean = mean;
+            this.samples = samples;
+            this.minutes = minutes;
+            this.minutesBelow = minutesBelow;
+            this.minutesAbove = minutesAbove;
+        }
+
+        public int minutesInBand() {
+            return minutes - minutesBelow - minutesAbove;
+        }
+    }
+
+    public static final class FeedEvent {
+        public final long timestamp;
+        public final float dispensed;
+        public final float remaining;
+
+        FeedEvent(long timestamp, float dispensed, float remaining) {
+            this.timestamp = timestamp;
+            this.dispensed = dispensed;
+            this.remaining = remaining;
+        }
+    }
+
+    private TelemetryStore(Context context) {
+        super(context, NAME, null, VERSION);
+        setWriteAheadLoggingEnabled(true);   // stats queries do not wait for the writer
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE minutes ("
+                + "device TEXT NOT NULL, start INTEGER NOT NULL,"
+                + " temp_min REAL, temp_max REAL, temp_sum REAL NOT NULL, temp_count INTEGER NOT NULL, temp_last REAL,"
+                + " weight_min REAL, weight_max REAL, weight_sum REAL NOT NULL, weight_count INTEGER NOT NULL, weight_last REAL,"
+                + " servo_max REAL,"
+                + " PRIMARY KEY (device, start)) WITHOUT ROWID");
+        db.execSQL("CREATE TABLE feed_events ("
+                + "device TEXT NOT NULL, timestamp INTEGER NOT NULL,"
+                + " dispensed REAL NOT NULL, remaining REAL NOT NULL,"
+                + " PRIMARY KEY (device, timestamp)) WITHOUT ROWID");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // First version, nothing to migrate
+    }
+
+    // ------------------------------------------------------------
+    // Writing, from LocalStoreWriter
+    // ------------------------------------------------------------
+
+    // One transaction for the whole batch. A minute that is already stored (the app
+    // restarted inside it) is merged, not replaced.
+    public void write(List<RollupAggregator.Rollup> minutes, List<TelemetryFrame> feedEvents) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO minutes VALUES"
+                    + " (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            SQLiteStatement merge = db.compileStatement("UPDATE minutes SET"
+                    + " temp_min = COALESCE(MIN(temp_min, ?3), temp_min, ?3),"
+                    + " temp_max = COALESCE(MAX(temp_max, ?4), temp_max, ?4),"
+                    + " temp_sum = temp_sum + ?5, temp_count = temp_count + ?6,"
+                    + " temp_last = COALESCE(?7, temp_last),"
+                    + " weight_min = COALESCE(MIN(weight_min, ?8), weight_min, ?8),"
+                    + " weight_max = COALESCE(MAX(weight_max, ?9), weight_max, ?9),"
+                    + " weight_sum = weight_sum + ?10, weight_count = weight_count + ?11,"
+                    + " weight_last = COALESCE(?12, weight_last),"
+                    + " servo_max = COALESCE(MAX(servo_max, ?13), servo_max, ?13)"
+                    + " WHERE device = ?1 AND start = ?2");
+            for (RollupAggregator.Rollup minute : minutes) {
+                bindMinute(insert, minute);
+                if (insert.executeInsert() == -1) {
+                    bindMinute(merge, minute);
+                    merge.executeUpdateDelete();
+                }
+            }
+
+            SQLiteStatement feed = db.compileStatement("INSERT OR REPLACE INTO feed_events VALUES (?, ?, ?, ?)");
+            for (TelemetryFrame frame : feedEvents) {
+                feed.bindString(1, frame.deviceId);
+                feed.bindLong(2, frame.timestamp);
+                feed.bindDouble(3, frame.dispensed);
+                feed.bindDouble(4, frame.remaining);
+                feed.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void bindMinute(SQLiteStatement statement, RollupAggregator.Rollup minute) {
+        statement.clearBindings();
+        statement.bindString(1, minute.deviceId);
+        statement.bindLong(2, minute.start);
+        bindStat(statement, 3, minute.temperature);
+        bindStat(statement, 8, minute.weight);
+        if (minute.servo.count > 0) statement.bindDouble(13, minute.servo.max);
+        else statement.bindNull(13);
+    }
+
+    // min, max, sum, count, last from index 'at'; NULL min / max / last when empty
+    private static void bindStat(SQLiteStatement statement, int at, RollupAggregator.Stat stat) {
+        if (stat.count > 0) {
+            statement.bindDouble(at, stat.min);
+            statement.bindDouble(at + 1, stat.max);
+        } else {
+            statement.bindNull(at);
+            statement.bindNull(at + 1);
+        }
+        statement.bindDouble(at + 2, stat.sum);
+        statement.bindLong(at + 3, stat.count);
+        if (stat.count > 0) statement.bindDouble(at + 4, stat.last);
+        else statement.bindNull(at + 4);
+    }
+
+    public void prune(long before) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = {String.valueOf(before)};
+        db.delete("minutes", "start < ?", args);
+        db.delete("feed_events", "timestamp < ?", args);
+    }
+
+    // ------------------------------------------------------------
+    // Range queries, off the main thread
+    // ------------------------------------------------------------
+
+    // Temperature of [from, to) in buckets of bucketMs starting at 'from'; buckets
+    // without data are left out. Minutes are classed against [bandLow, bandHigh].
+    public List<Bucket> temperature(String deviceId, long from, long to, long bucketMs,
+                                    double bandLow, double bandHigh) {
+        List<Bucket> buckets = new ArrayList<>();
+        String sql = "SELECT (start - CAST(? AS INTEGER)) / CAST(? AS INTEGER) AS bucket,"
+                + " MIN(temp_min), MAX(temp_max), SUM(temp_sum) / SUM(temp_count), SUM(temp_count), COUNT(*),"
+                + " SUM(temp_sum / temp_count < CAST(? AS REAL)), SUM(temp_sum / temp_count > CAST(? AS REAL))"
+                + " FROM minutes WHERE device = ? AND start >= ? AND start < ? AND temp_count > 0"
+                + " GROUP BY bucket ORDER BY bucket";
+        String[] args = {String.valueOf(from), String.valueOf(bucketMs),
+                String.valueOf(bandLow), String.valueOf(bandHigh),
+                deviceId, String.valueOf(from), String.valueOf(to)};
+
+        try (Cursor c = getReadableDatabase().rawQuery(sql, args)) {
+            while (c.moveToNext()) {
+                buckets.add(new Bucket(from + c.getLong(0) * bucketMs, c.getFloat(1), c.getFloat(2),
+                        c.getDouble(3), c.getLong(4), c.getInt(5), c.getInt(6), c.getInt(7)));
+            }
+        }
+        return buckets;
+    }
+
+    // Feed status frames of [from, to), newest first
+    public List<FeedEvent> feedEvents(String deviceId, long from, long to) {
+        List<FeedEvent> events = new ArrayList<>();
+        String[] args = {deviceId, String.valueOf(from), String.valueOf(to)};
+        try (Cursor c = getReadableDatabase().rawQuery("SELECT timestamp, dispensed, remaining FROM feed_events"
+                + " WHERE device = ? AND timestamp >= ? AND timestamp < ? ORDER BY timestamp DESC", args)) {
+            while (c.moveToNext()) {
+                events.add(new FeedEvent(c.getLong(0), c.getFloat(1), c.getFloat(2)));
+            }
+        }
+        return events;
+    }
+}
@@ -1,20 +1,17 @@
 package com.example.feedflow;
 
-import android.Manifest;
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothSocket;
-import android.content.pm.PackageManager;
+import android.app.Activity;
+import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.github.mikephil.charting.charts.LineChart;
@@ -24,36 +21,91 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QueryDocumentSnapshot;
 
+import android.widget.RadioGroup;
 import android.widget.TextView;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
-import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class TemperatureStatsFragment extends Fragment {
 
+    // Chart ranges, read from the local TelemetryStore
+    private static final int RANGE_DAY = 0;       // 1 min means
+    private static final int RANGE_WEEK = 1;      // 15 min means
+    private static final int RANGE_MONTH = 2;     // hourly means
+    private static final int RANGE_HOUR = 3;      // raw samples of the last hour, from the service's live history
+    private static final int RANGE_QUARTER = 4;   // hourly means, 90 days (the store's retention)
+
+    private static final long REDRAW_INTERVAL_MS = 250;   // live redraws and zoom re-decimation, at most 4 per second
+    private static final float HOUR_MINUTES = 60f;
+    private static final float EVICT_SLACK_MINUTES = 5f;  // live points are dropped in batches
+    private static final int DEFAULT_PIXELS = 400;        // chart width before layout
+    private static final int LAP_RETRIES = 3;             // reads of the live hour before waiting a frame
+
     private LineChart tempLineChart;
+    // One dataset for the fragment's lifetime; x is minutes since chartBase. It holds
+    // the visible window of chartSeries decimated to the chart's width.
+    private LineDataSet tempDataSet;
+    private final TimeAxisFormatter axisFormatter = new TimeAxisFormatter();
+    private final Description chartDescription = new Description();
+    private final Decimator decimator = new Decimator();
+    private RangeStats chartSeries;
+    private Decimator.Mode chartMode = Decimator.Mode.LTTB;
+    private int chartRange = -1;   // range the dataset holds
+    private long chartBase;
+    private boolean redrawPending, redecimatePending;
+    private long lastRedrawAt;
+    // Live samples fold into the dataset's last pixel column, the way MIN_MAX
+    // decimates it: the column's lowest and highest sample in time order
+    private float liveColumnMinutes = 1f;
+    private long liveColumn = Long.MIN_VALUE;
+    private int liveStart;   // first dataset entry of that column
+    private float liveMinX, liveMin, liveMaxX, liveMax;
+    // Older windows of a store range, loaded as the chart is panned back
+    private HistoryWindows<RangeStats> history;
     private FirebaseFirestore db;
-    private ArrayList<Double> tempHistory = new ArrayList<>();
-
-    private BluetoothAdapter bluetoothAdapter;
-    private BluetoothSocket bluetoothSocket;
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor();
+    private int range = RANGE_WEEK;
+    private int loadGeneration = 0;   // drops results of a range that is no longer selected
+    private String deviceId;          // feeder the chart shows: the service's primary, known once bound
+
+    // Live data comes from the shared connection in BluetoothService. The conflated
+    // frame only says that samples arrived; they are read from the live history.
+    private final BluetoothService.Binding btBinding = new BluetoothService.Binding(frame -> {
+        if (frame.type == TelemetryFrame.TYPE_READING || frame.type == TelemetryFrame.TYPE_TEMPERATURE) {
+            onLiveSamples();
+        }
+    }).setOnBound(this::onServiceBound).setOnPrimaryChanged(this::onServiceBound);
 
     private TextView tvTempCurrent, tvTempAverage, tvOptimalTime, tvBelowOptimal, tvAboveOptimal;
-
-    private static final UUID MY_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
-
-    private final double OPTIMAL_MIN = 25.0;
-    private final double OPTIMAL_MAX = 30.0;
+    private StripChartView stripTemperature;
+
+    private final double OPTIMAL_MIN = DailySummary.OPTIMAL_MIN;
+    private final double OPTIMAL_MAX = DailySummary.OPTIMAL_MAX;
+
+    // Totals of the loaded range plus live samples since it was loaded, so a live
+    // sample updates the average and band shares in O(1)
+    private double shownSum;
+    private long shownCount;
+    private long shownMsIn, shownMsBelow, shownMsAbove;
+    private final RunningStats liveStats = new RunningStats(OPTIMAL_MIN, OPTIMAL_MAX);
+    // The primary feeder's temperature history, which holds every live sample, and
+    // the number of the first one not yet in liveStats
+    private SampleRingBuffer liveTemperature;
+    private SampleRingBuffer.View liveView;
+    private long liveCursor;
 
     @Nullable
     @Override
@@ -68,8 +120,10 @@ public class TemperatureStatsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         tempLineChart = view.findViewById(R.id.tempLineChart);
+        setupChart();
 
         tvTempCurrent = view.findViewById(R.id.tvTempCurrent);
+        stripTemperature = view.findViewById(R.id.stripTemperature);
         tvTempAverage = view.findViewById(R.id.tvTempAverage);
         tvOptimalTime = view.findViewById(R.id.tvOptimalTime);
         tvBelowOptimal = view.findViewById(R.id.tvBelowOptimal);
@@ -77,181 +131,604 @@ public class TemperatureStatsFragment extends Fragment {
 
         db = FirebaseFirestore.getInstance();
 
-        fetchWeeklyTemperature();
-        connectToEsp32();
+        RadioGroup rgTempRange = view.findViewById(R.id.rgTempRange);
+        rgTempRange.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.rbRange1h) range = RANGE_HOUR;
+            else if (checkedId == R.id.rbRange24h) range = RANGE_DAY;
+            else if (checkedId == R.id.rbRange30d) range = RANGE_MONTH;
+            else if (checkedId == R.id.rbRange90d) range = RANGE_QUARTER;
+            else range = RANGE_WEEK;
+            loadRange();
+        });
+        // The first range loads once the service tells which feeder is primary
+    }
+
+    @Override
+    public void onDestroyView() {
+        tempLineChart.removeCallbacks(redraw);
+        tempLineChart.removeCallbacks(redecimate);
+        redrawPending = false;
+        redecimatePending = false;
+        deviceId = null;   // a new view loads again
+        super.onDestroyView();
+    }
+
+    @Override
+    public void onDestroy() {
+        queryExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        btBinding.bind(requireContext());
+    }
+
+    @Override
+    public void onStop() {
+        btBinding.unbind(requireContext());
+        super.onStop();
+    }
+
+    // Bound, or another feeder became primary: the live trace follows the primary
+    // feeder, and the range is loaded again when the feeder changed (or is the last
+    // hour, which is read from the service)
+    private void onServiceBound() {
+        BluetoothService service = btBinding.getService();
+        if (service == null || !isAdded()) return;
+        String primary = service.getDeviceId();
+        SampleRingBuffer temperature = service.getLiveHistory().get(primary).temperature;
+        stripTemperature.setTrace(0, temperature, 0xFF0288D1);
+        if (temperature != liveTemperature) {
+            liveTemperature = temperature;
+            liveView = new SampleRingBuffer.View(temperature);
+            liveCursor = temperature.appendedCount();
+        }
+        if (!primary.equals(deviceId) || range == RANGE_HOUR) {
+            deviceId = primary;
+            loadRange();
+        }
+    }
+
+    // Queries the selected range from the local store on a background thread, in
+    // buckets fine enough that the chart, not the bucket size, limits the detail
+    private void loadRange() {
+        int requested = range;
+        int generation = ++loadGeneration;
+        String device = deviceId;
+        if (device == null) return;   // not bound yet
+        if (requested == RANGE_HOUR) {
+            showLastHour(generation);
+            return;
+        }
+        Context context = requireContext().getApplicationContext();
+
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        long bucketMs;
+        long windowMs;   // one range length, the unit older history is loaded in
+        if (requested == RANGE_DAY) {
+            bucketMs = RollupAggregator.MINUTE_MS;
+            windowMs = 24 * RollupAggregator.HOUR_MS;
+            cal.add(Calendar.HOUR_OF_DAY, -23);
+        } else {
+            bucketMs = requested == RANGE_WEEK ? RollupAggregator.QUARTER_MS : RollupAggregator.HOUR_MS;
+            int days = requested == RANGE_QUARTER ? 90 : requested == RANGE_MONTH ? 30 : 7;
+            windowMs = days * 24 * RollupAggregator.HOUR_MS;
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.add(Calendar.DAY_OF_YEAR, -(days - 1));
+        }
+        long from = cal.getTimeInMillis();
+        long to = System.currentTimeMillis() + RollupAggregator.MINUTE_MS;
+
+        queryExecutor.execute(() -> {
+            RangeStats stats = queryRange(context, device, from, from, to, bucketMs);
+
+            Activity activity = getActivity();
+            if (activity == null) return;
+            activity.runOnUiThread(() -> {
+                if (!isAdded() || generation != loadGeneration) return;
+                // Nothing recorded on this phone yet
+                if (stats.minutes == 0 && requested == RANGE_WEEK) {
+                    fetchWeeklyTemperature(device, generation);
+                    return;
+                }
+                if (stats.minutes == 0 && requested == RANGE_DAY) {
+                    fetchDayFromChunks(device, from, generation);
+                    return;
+                }
+                showRange(requested, from, stats);
+                openHistory(context, device, from, windowMs, bucketMs, stats);
+            });
+        });
+    }
+
+    // Buckets of [from, to) with x in minutes since 'base' (query thread)
+    private RangeStats queryRange(Context context, String device, long base, long from, long to, long bucketMs) {
+        List<TelemetryStore.Bucket> buckets = TelemetryStore.get(context).temperature(
+                device, from, to, bucketMs, OPTIMAL_MIN, OPTIMAL_MAX);
+        RangeStats stats = new RangeStats();
+        for (TelemetryStore.Bucket bucket : buckets) stats.add(minutesSince(base, bucket.start), bucket);
+        return stats;
+    }
+
+    // Lets the shown store range be panned back as far as the store's retention:
+    // the viewport stays one range wide, and older ranges are queried a window at a
+    // time (one ahead of the pan) and dropped again once far off screen. The stats
+    // below the chart stay those of the range first shown.
+    private void openHistory(Context context, String device, long from, long windowMs, long bucketMs,
+                             RangeStats first) {
+        long earliest = System.currentTimeMillis() - TelemetryStore.RETENTION_MS;
+        history = new HistoryWindows<>(from + windowMs, windowMs, earliest,
+                (start, end, done) -> queryExecutor.execute(() -> {
+                    RangeStats window = queryRange(context, device, from, start, end, bucketMs);
+                    Activity activity = getActivity();
+                    if (activity != null) activity.runOnUiThread(() -> done.onLoaded(window));
+                }),
+                this::onHistoryChanged);
+        history.put(-1, first);
+
+        tempLineChart.getXAxis().setAxisMinimum(minutesSince(from, earliest));
+        tempLineChart.notifyDataSetChanged();
+        tempLineChart.setVisibleXRangeMaximum(windowMs / (float) RollupAggregator.MINUTE_MS);
+        tempLineChart.moveViewToX(0f);
+        history.show(from, System.currentTimeMillis());
     }
 
-    // Fetch last 7 days temperature from Firestore
-    private void fetchWeeklyTemperature() {
-        db.collection("FeedFlow")
-                .document("Device001")
-                .collection("readings")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(7)
+    // A window arrived or was evicted: the chart series becomes the loaded windows
+    // end to end, and the visible part is decimated again
+    private void onHistoryChanged() {
+        if (!isAdded() || history == null) return;
+        RangeStats series = new RangeStats();
+        for (RangeStats window : history.loaded()) series.append(window);
+        chartSeries = series;
+        decimateInto(tempLineChart.getLowestVisibleX(), tempLineChart.getHighestVisibleX());
+    }
+
+    // Chart points at full resolution (x = minutes since the range start, ascending)
+    // plus range totals, filled off the main thread
+    private static final class RangeStats implements Decimator.Source {
+        private float[] xs = new float[256];
+        private float[] ys = new float[256];
+        private int points;
+        double sum;
+        long count;
+        long minutes, below, above;
+        double latest = Double.NaN;
+
+        void point(float x, float y) {
+            if (points == xs.length) {
+                xs = Arrays.copyOf(xs, points * 2);
+                ys = Arrays.copyOf(ys, points * 2);
+            }
+            xs[points] = x;
+            ys[points] = y;
+            points++;
+        }
+
+        // Appends another window's points (all after this one's)
+        void append(RangeStats other) {
+            for (int i = 0; i < other.points; i++) point(other.xs[i], other.ys[i]);
+        }
+
+        // Drops the points before x, keeping the live hour bounded
+        void dropBefore(float x) {
+            int keep = 0;
+            while (keep < points && xs[keep] < x) keep++;
+            System.arraycopy(xs, keep, xs, 0, points - keep);
+            System.arraycopy(ys, keep, ys, 0, points - keep);
+            points -= keep;
+        }
+
+        void add(float x, TelemetryStore.Bucket bucket) {
+            point(x, (float) bucket.mean);
+            sum += bucket.mean * bucket.samples;
+            count += bucket.samples;
+            minutes += bucket.minutes;
+            below += bucket.minutesBelow;
+            above += bucket.minutesAbove;
+            latest = bucket.mean;   // buckets come oldest first
+        }
+
+        void add(float x, DailySummary.Day day) {
+            if (day.count == 0) return;
+            point(x, (float) day.mean());
+            sum += day.sum;
+            count += day.count;
+            minutes += day.minutes();
+            below += day.minutesBelow;
+            above += day.minutesAbove;
+            latest = day.mean();
+        }
+
+        @Override
+        public int size() {
+            return points;
+        }
+
+        @Override
+        public float x(int index) {
+            return xs[index];
+        }
+
+        @Override
+        public float y(int index) {
+            return ys[index];
+        }
+    }
+
+    private void showRange(int shown, long from, RangeStats stats) {
+        showSeries(shown, from, stats, Decimator.Mode.LTTB);
+
+        if (!Double.isNaN(stats.latest)) tvTempCurrent.setText(String.format("Current: %.2f°C", stats.latest));
+        // Shares of recorded minutes, not of chart points
+        long minuteMs = RollupAggregator.MINUTE_MS;
+        setShownTotals(stats.sum, stats.count, (stats.minutes - stats.below - stats.above) * minuteMs,
+                stats.below * minuteMs, stats.above * minuteMs);
+    }
+
+    private void setShownTotals(double sum, long count, long msIn, long msBelow, long msAbove) {
+        shownSum = sum;
+        shownCount = count;
+        shownMsIn = msIn;
+        shownMsBelow = msBelow;
+        shownMsAbove = msAbove;
+        liveStats.reset();
+        if (liveTemperature != null) liveCursor = liveTemperature.appendedCount();
+        updateStats();
+    }
+
+    // The last hour straight from the service's in-memory history, no query.
+    // Until the service is bound this waits for onBound. A read lapped by the
+    // writer is done again, and after LAP_RETRIES the read waits for the next frame.
+    private void showLastHour(int generation) {
+        BluetoothService service = btBinding.getService();
+        if (service == null || !isAdded() || generation != loadGeneration) return;
+        SampleRingBuffer temperature = service.getLiveHistory().get(service.getDeviceId()).temperature;
+
+        long from = 0;
+        RangeStats points = null;
+        RunningStats samples = null;
+        for (int attempt = 0; attempt < LAP_RETRIES; attempt++) {
+            long to = System.currentTimeMillis() + 1;
+            from = to - RollupAggregator.HOUR_MS;
+            from -= Math.floorMod(from, RollupAggregator.MINUTE_MS);
+            SampleRingBuffer.View window = temperature.window(from, to);
+
+            points = new RangeStats();
+            samples = new RunningStats(OPTIMAL_MIN, OPTIMAL_MAX);
+            for (int i = 0; i < window.size(); i++) {
+                long at = window.time(i);
+                float temp = window.value(i);
+                points.point(minutesSince(from, at), temp);
+                samples.add(at, temp);
+            }
+            if (window.isIntact()) break;
+            if (attempt == LAP_RETRIES - 1) {
+                tempLineChart.postOnAnimation(() -> showLastHour(generation));
+                return;
+            }
+        }
+
+        showSeries(RANGE_HOUR, from, points, Decimator.Mode.MIN_MAX);
+        if (samples.count() > 0) tvTempCurrent.setText(String.format("Current: %.2f°C", samples.latest()));
+        setShownTotals(samples.sum(), samples.count(),
+                samples.msInBand(), samples.msBelow(), samples.msAbove());
+    }
+
+    // Fallback for the week view on a phone without local history: the 7 daily
+    // summary documents, one read per day
+    private void fetchWeeklyTemperature(String device, int generation) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        cal.add(Calendar.DAY_OF_YEAR, -6);
+        long weekStart = cal.getTimeInMillis();
+
+        TelemetryRecorder.fetchDays(db, device, weekStart, 7)
+                .addOnSuccessListener(days -> {
+                    if (!isAdded() || generation != loadGeneration) return;
+                    RangeStats stats = new RangeStats();
+                    Calendar day = Calendar.getInstance();
+                    day.setTimeInMillis(weekStart);
+                    for (DailySummary.Day summary : days) {
+                        stats.add(minutesSince(weekStart, day.getTimeInMillis()), summary);
+                        day.add(Calendar.DAY_OF_YEAR, 1);
+                    }
+                    showRange(RANGE_WEEK, weekStart, stats);
+                })
+                .addOnFailureListener(e -> Log.e("FIRESTORE", "Failed to load chart", e));
+    }
+
+    // Fallback for the 24 h view: the raw samples of the last 24 hours' chunks
+    // (about 24 docs). Chunks hold dead-band filtered samples, so the average is
+    // over persisted samples; the band shares are time weighted and unaffected.
+    private void fetchDayFromChunks(String device, long from, int generation) {
+        long to = System.currentTimeMillis() + RollupAggregator.MINUTE_MS;
+        TelemetryRecorder.queryChunks(db, device, from, to)
                 .get()
                 .addOnSuccessListener(querySnapshots -> {
-                    ArrayList<Entry> entries = new ArrayList<>();
-                    tempHistory.clear();
-                    int index = 0;
-
-                    // Reverse to get oldest first
-                    ArrayList<QueryDocumentSnapshot> docs = new ArrayList<>();
-                    for (QueryDocumentSnapshot doc : querySnapshots) docs.add(0, doc);
-
-                    for (QueryDocumentSnapshot doc : docs) {
-                        Double temp = doc.getDouble("temperature");
-                        if (temp != null) {
-                            entries.add(new Entry(index, temp.floatValue()));
-                            tempHistory.add(temp);
-                            index++;
+                    if (!isAdded() || generation != loadGeneration) return;
+                    RangeStats points = new RangeStats();
+                    RunningStats samples = new RunningStats(OPTIMAL_MIN, OPTIMAL_MAX);
+
+                    for (QueryDocumentSnapshot doc : querySnapshots) {
+                        Long hour = doc.getLong("hour");
+                        List<?> offsets = (List<?>) doc.get("t");
+                        List<?> temps = (List<?>) doc.get("temperature");
+                        if (hour == null || offsets == null || temps == null) continue;
+
+                        for (int i = 0; i < offsets.size() && i < temps.size(); i++) {
+                            long at = hour + ((Number) offsets.get(i)).longValue();
+                            if (at < from || at >= to || temps.get(i) == null) continue;
+                            float temp = ((Number) temps.get(i)).floatValue();
+                            points.point(minutesSince(from, at), temp);   // chunks come in hour order
+                            samples.add(at, temp);
                         }
                     }
 
-                    updateLineChart(entries);
-                    updateStats(); // Update below chart stats
+                    showSeries(RANGE_DAY, from, points, Decimator.Mode.MIN_MAX);
+                    if (samples.count() > 0) {
+                        tvTempCurrent.setText(String.format("Current: %.2f°C", samples.latest()));
+                    }
+                    setShownTotals(samples.sum(), samples.count(),
+                            samples.msInBand(), samples.msBelow(), samples.msAbove());
                 })
-                .addOnFailureListener(e -> Log.e("FIRESTORE", "Failed to load chart", e));
+                .addOnFailureListener(e -> Log.e("FIRESTORE", "Failed to load chunks", e));
     }
 
-    // Update chart with weekly temperature
-    private void updateLineChart(ArrayList<Entry> entries) {
-        LineDataSet dataSet = new LineDataSet(entries, "Sea Water Temp (°C)");
-        dataSet.setColor(0xFF0288D1); // Blue line
-        dataSet.setLineWidth(2f);
-        dataSet.setCircleRadius(4f);
-        dataSet.setValueTextSize(10f);
+    // The one dataset, axis formatter and description, configured once. Zooming or
+    // panning re-decimates the visible window and, on a store range, loads the
+    // history windows it reaches.
+    private void setupChart() {
+        tempDataSet = new LineDataSet(new ArrayList<>(), "Sea Water Temp (°C)");
+        tempDataSet.setColor(0xFF0288D1); // Blue line
+        tempDataSet.setCircleColor(0xFF0288D1);
+        tempDataSet.setLineWidth(2f);
+        tempDataSet.setValueTextSize(10f);
+        chartRange = -1;   // set on the chart with the first range
+
+        XAxis xAxis = tempLineChart.getXAxis();
+        xAxis.setValueFormatter(axisFormatter);
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        tempLineChart.setDescription(chartDescription);
+
+        tempLineChart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                scheduleRedecimate();
+            }
 
-        LineData lineData = new LineData(dataSet);
-        tempLineChart.setData(lineData);
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                scheduleRedecimate();
+            }
 
-        // X-axis labels
-        ArrayList<String> labels = getLast7DaysLabels();
-        tempLineChart.getXAxis().setValueFormatter(new ValueFormatter() {
             @Override
-            public String getFormattedValue(float value) {
-                int index = Math.round(value);
-                if (index >= 0 && index < labels.size()) return labels.get(index);
-                else return "";
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                scheduleRedecimate();
             }
-        });
 
-        tempLineChart.getXAxis().setGranularity(1f);
-        tempLineChart.getXAxis().setPosition(XAxis.XAxisPosition.BOTTOM);
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {}
 
-        Description desc = new Description();
-        desc.setText("Sea Water Temperature (last 7 days)");
-        tempLineChart.setDescription(desc);
+            @Override
+            public void onChartLongPressed(MotionEvent me) {}
 
-        tempLineChart.invalidate();
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) {}
+
+            @Override
+            public void onChartSingleTapped(MotionEvent me) {}
+
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {}
+        });
     }
 
-    private ArrayList<String> getLast7DaysLabels() {
-        ArrayList<String> labels = new ArrayList<>();
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("EEE", Locale.getDefault());
-        Calendar cal = Calendar.getInstance();
+    // Shows a loaded range: the x axis spans the whole range, so zooming out is
+    // bounded by it, and the dataset gets the range decimated to the chart's width
+    private void showSeries(int shown, long from, RangeStats series, Decimator.Mode mode) {
+        chartRange = shown;
+        chartBase = from;
+        chartSeries = series;
+        chartMode = mode;
+        history = null;   // set again by openHistory for store ranges
+        axisFormatter.setRange(shown, from);
+        chartDescription.setText(rangeTitle(shown));
+
+        XAxis xAxis = tempLineChart.getXAxis();
+        float now = minutesSince(from, System.currentTimeMillis());
+        xAxis.setAxisMinimum(shown == RANGE_HOUR ? now - HOUR_MINUTES : 0f);
+        xAxis.setAxisMaximum(now);
+        xAxis.setGranularity(shown == RANGE_HOUR ? 10f : shown == RANGE_DAY ? HOUR_MINUTES : 24 * HOUR_MINUTES);
+
+        tempLineChart.getViewPortHandler().setMinimumScaleX(1f);
+        tempLineChart.fitScreen();
+        decimateInto(xAxis.getAxisMinimum(), xAxis.getAxisMaximum());
+    }
 
-        for (int i = 6; i >= 0; i--) {
-            cal.setTimeInMillis(System.currentTimeMillis());
-            cal.add(Calendar.DAY_OF_YEAR, -i);
-            labels.add(sdf.format(cal.getTime()));
-        }
-        return labels;
+    // Replaces the dataset with [fromX, toX] of the series, about 1-2 points per pixel
+    private void decimateInto(float fromX, float toX) {
+        if (chartSeries == null) return;
+        int pixels = (int) tempLineChart.getViewPortHandler().contentWidth();
+        if (pixels <= 0) pixels = DEFAULT_PIXELS;
+        int count = decimator.decimate(chartSeries, chartMode, fromX, toX, pixels);
+        liveColumnMinutes = Math.max(toX - fromX, 1f) / pixels;
+        liveColumn = Long.MIN_VALUE;
+
+        ArrayList<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) entries.add(new Entry(decimator.x(i), decimator.y(i)));
+        tempDataSet.setValues(entries);
+        tempDataSet.setCircleRadius(count > 10 ? 2f : 4f);
+        tempDataSet.setDrawCircles(count <= 100);
+        tempDataSet.setDrawValues(count <= 10);
+        if (tempLineChart.getData() == null) tempLineChart.setData(new LineData(tempDataSet));
+
+        tempLineChart.getData().notifyDataChanged();
+        tempLineChart.notifyDataSetChanged();
+        tempLineChart.invalidate();
     }
 
-    // Update stats below the chart
-    private void updateStats() {
-        if (tempHistory.isEmpty()) return;
+    private void scheduleRedecimate() {
+        if (redecimatePending || chartSeries == null) return;
+        redecimatePending = true;
+        long wait = Math.max(0, lastRedrawAt + REDRAW_INTERVAL_MS - SystemClock.uptimeMillis());
+        tempLineChart.postOnAnimationDelayed(redecimate, wait);
+    }
 
-        double sum = 0;
-        int optimal = 0, below = 0, above = 0;
+    private final Runnable redecimate = () -> {
+        redecimatePending = false;
+        lastRedrawAt = SystemClock.uptimeMillis();
+        float fromX = tempLineChart.getLowestVisibleX();
+        float toX = tempLineChart.getHighestVisibleX();
+        if (history != null) {
+            long minuteMs = RollupAggregator.MINUTE_MS;
+            history.show(chartBase + (long) (fromX * minuteMs), chartBase + (long) (toX * minuteMs));
+        }
+        decimateInto(fromX, toX);
+    };
+
+    // Appends one live sample to the last-hour chart: the hour slides by moving the
+    // axis bounds, so only the visible window is drawn, and the redraw is rate
+    // limited. The sample is folded into the last pixel column, which keeps at most
+    // two entries, and every few minutes the expired points are dropped and the
+    // hour is decimated again, so the dataset stays bounded by the chart's width.
+    private void appendLive(long at, float temp) {
+        float x = minutesSince(chartBase, at);
+        int count = tempDataSet.getEntryCount();
+        if (count > 0 && x < tempDataSet.getEntryForIndex(count - 1).getX()) return;
+
+        chartSeries.point(x, temp);
+        XAxis xAxis = tempLineChart.getXAxis();
+        xAxis.setAxisMinimum(x - HOUR_MINUTES);
+        xAxis.setAxisMaximum(x);
+
+        if (chartSeries.x(0) < x - HOUR_MINUTES - EVICT_SLACK_MINUTES) {
+            chartSeries.dropBefore(x - HOUR_MINUTES);
+            decimateInto(x - HOUR_MINUTES, x);
+            return;
+        }
+        foldLive(x, temp);
+        scheduleRedraw();
+    }
 
-        for (double t : tempHistory) {
-            sum += t;
-            if (t >= OPTIMAL_MIN && t <= OPTIMAL_MAX) optimal++;
-            else if (t < OPTIMAL_MIN) below++;
-            else above++;
+    private void foldLive(float x, float temp) {
+        long column = (long) Math.floor(x / liveColumnMinutes);
+        if (column != liveColumn) {
+            liveColumn = column;
+            liveStart = tempDataSet.getEntryCount();
+            liveMinX = liveMaxX = x;
+            liveMin = liveMax = temp;
+        } else if (temp < liveMin) {
+            liveMinX = x;
+            liveMin = temp;
+        } else if (temp > liveMax) {
+            liveMaxX = x;
+            liveMax = temp;
+        } else {
+            return;   // inside the column's range: nothing to draw
         }
 
-        double avg = sum / tempHistory.size();
+        while (tempDataSet.getEntryCount() > liveStart) tempDataSet.removeLast();
+        boolean minFirst = liveMinX <= liveMaxX;
+        tempDataSet.addEntry(minFirst ? new Entry(liveMinX, liveMin) : new Entry(liveMaxX, liveMax));
+        if (liveMinX != liveMaxX) {
+            tempDataSet.addEntry(minFirst ? new Entry(liveMaxX, liveMax) : new Entry(liveMinX, liveMin));
+        }
+    }
 
-        tvTempCurrent.setText(String.format("Current: %.2f°C", tempHistory.get(tempHistory.size() - 1)));
-        tvTempAverage.setText(String.format("Average: %.2f°C", avg));
-        tvOptimalTime.setText(String.format("Time in optimal: %.0f%%", optimal * 100.0 / tempHistory.size()));
-        tvBelowOptimal.setText(String.format("Time below optimal: %.0f%%", below * 100.0 / tempHistory.size()));
-        tvAboveOptimal.setText(String.format("Time above optimal: %.0f%%", above * 100.0 / tempHistory.size()));
+    private void scheduleRedraw() {
+        if (redrawPending) return;
+        redrawPending = true;
+        long wait = Math.max(0, lastRedrawAt + REDRAW_INTERVAL_MS - SystemClock.uptimeMillis());
+        tempLineChart.postOnAnimationDelayed(redraw, wait);
     }
 
-    // Bluetooth connection to ESP32 for live data
-    private void connectToEsp32() {
-        bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
-        if (bluetoothAdapter == null || !bluetoothAdapter.isEnabled()) return;
+    private final Runnable redraw = () -> {
+        redrawPending = false;
+        lastRedrawAt = SystemClock.uptimeMillis();
+        tempLineChart.getData().notifyDataChanged();   // folded entries may have lowered the y range
+        tempLineChart.notifyDataSetChanged();
+        tempLineChart.invalidate();
+    };
 
-        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.BLUETOOTH_CONNECT)
-                != PackageManager.PERMISSION_GRANTED) {
+    private static float minutesSince(long base, long time) {
+        return (time - base) / (float) RollupAggregator.MINUTE_MS;
+    }
 
-            ActivityCompat.requestPermissions(requireActivity(),
-                    new String[]{Manifest.permission.BLUETOOTH_CONNECT,
-                            Manifest.permission.BLUETOOTH_SCAN},
-                    1001);
-            return;
+    // Formats x (minutes since the range start) as a time of day or a day, with one
+    // cached SimpleDateFormat per range and a reused Date
+    private static final class TimeAxisFormatter extends ValueFormatter {
+        private final SimpleDateFormat[] formats = new SimpleDateFormat[5];
+        private final Date date = new Date();
+        private SimpleDateFormat format;
+        private long base;
+
+        void setRange(int shown, long base) {
+            this.base = base;
+            if (formats[shown] == null) {
+                String pattern = shown == RANGE_HOUR ? "HH:mm" : shown == RANGE_DAY ? "HH:00"
+                        : shown == RANGE_WEEK ? "EEE" : "d/M";
+                formats[shown] = new SimpleDateFormat(pattern, Locale.getDefault());
+            }
+            format = formats[shown];
         }
 
-        for (BluetoothDevice device : bluetoothAdapter.getBondedDevices()) {
-            if ("ESP32_Test".equals(device.getName())) {
-                try {
-                    bluetoothSocket = device.createRfcommSocketToServiceRecord(MY_UUID);
-                    bluetoothSocket.connect();
-                    startReadingBluetooth();
-                } catch (IOException e) {
-                    Log.e("BT", "Connection failed", e);
-                }
-            }
+        @Override
+        public String getFormattedValue(float value) {
+            if (format == null) return "";
+            date.setTime(base + Math.round(value * (double) RollupAggregator.MINUTE_MS));
+            return format.format(date);
         }
     }
 
-    private void startReadingBluetooth() {
-        new Thread(() -> {
-            try {
-                InputStream inputStream = bluetoothSocket.getInputStream();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-                String line;
-
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(":");
-                    if (parts.length >= 1) {
-                        try {
-                            double waterTemp = Double.parseDouble(parts[0]);
-
-                            requireActivity().runOnUiThread(() -> {
-                                // Add to history
-                                tempHistory.add(0, waterTemp);
-                                if (tempHistory.size() > 50) tempHistory.remove(tempHistory.size() - 1);
-
-                                // Take last 7 for chart
-                                ArrayList<Entry> entries = new ArrayList<>();
-                                for (int i = 0; i < tempHistory.size() && i < 7; i++)
-                                    entries.add(new Entry(i, tempHistory.get(tempHistory.size() - 1 - i).floatValue()));
-
-                                updateLineChart(entries);
-                                updateStats(); // Update stats below chart
-                                saveTemperature(waterTemp);
-                            });
-                        } catch (Exception ignored) {}
-                    }
-                }
-            } catch (IOException e) {
-                Log.e("BT", "Read failed", e);
-            }
-        }).start();
+    private static String rangeTitle(int shown) {
+        if (shown == RANGE_HOUR) return "Sea Water Temperature (last hour)";
+        if (shown == RANGE_DAY) return "Sea Water Temperature (last 24 hours)";
+        if (shown == RANGE_MONTH) return "Sea Water Temperature (last 30 days)";
+        if (shown == RANGE_QUARTER) return "Sea Water Temperature (last 90 days)";
+        return "Sea Water Temperature (last 7 days)";
     }
 
-    private void saveTemperature(double temp) {
-        db.collection("FeedFlow")
-                .document("Device001")
-                .collection("readings")
-                .add(new TempReading(temp, System.currentTimeMillis()))
-                .addOnSuccessListener(doc -> Log.d("FIRESTORE", "Saved"))
-                .addOnFailureListener(e -> Log.e("FIRESTORE", "Save failed", e));
+    // Update stats below the chart from the loaded range plus live samples
+    private void updateStats() {
+        long count = shownCount + liveStats.count();
+        if (count == 0) return;
+        tvTempAverage.setText(String.format("Average: %.2f°C", (shownSum + liveStats.sum()) / count));
+
+        double ms = shownMsIn + shownMsBelow + shownMsAbove + liveStats.msTotal();
+        if (ms == 0) return;
+        tvOptimalTime.setText(String.format("Time in optimal: %.0f%%", (shownMsIn + liveStats.msInBand()) * 100.0 / ms));
+        tvBelowOptimal.setText(String.format("Time below optimal: %.0f%%", (shownMsBelow + liveStats.msBelow()) * 100.0 / ms));
+        tvAboveOptimal.setText(String.format("Time above optimal: %.0f%%", (shownMsAbove + liveStats.msAbove()) * 100.0 / ms));
+    }
+
+    // New live samples (main thread). Saving is done by the service's persistence
+    // and store lanes; every sample since the last call, not only the latest the
+    // conflating channel delivered, is folded into the stats and, on the last-hour
+    // chart, appended to the trace.
+    private void onLiveSamples() {
+        if (!isAdded() || liveTemperature == null) return;
+        SampleRingBuffer.View samples = liveTemperature.since(liveCursor, liveView);
+        liveCursor = samples.endSample();
+        if (samples.size() == 0) return;
+
+        boolean chart = range == RANGE_HOUR && chartRange == RANGE_HOUR;
+        for (int i = 0; i < samples.size(); i++) {
+            long at = samples.time(i);
+            float temp = samples.value(i);
+            liveStats.add(at, temp);
+            if (chart) appendLive(at, temp);
+        }
+        tvTempCurrent.setText(String.format("Current: %.2f°C", samples.value(samples.size() - 1)));
+        stripTemperature.dataChanged();
+        updateStats();
     }
 
     public static class TempReading {
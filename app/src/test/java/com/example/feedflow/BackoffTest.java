@@ -0,0 +1,58 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BackoffTest {
+
+    @Test
+    public void delaysGrowWithinEqualJitterBounds() {
+        Backoff backoff = new Backoff(500, 30_000, new Random(42));
+
+        long cap = 500;
+        for (int i = 0; i < 12; i++) {
+            long delay = backoff.next();
+            assertTrue("attempt " + i + ": " + delay, delay >= cap / 2 && delay <= cap);
+            cap = Math.min(cap * 2, 30_000);
+        }
+        assertEquals(12, backoff.getAttempt());
+    }
+
+    @Test
+    public void resetStartsOverFromInitialDelay() {
+        Backoff backoff = new Backoff(500, 30_000, new Random(7));
+        for (int i = 0; i < 8; i++) backoff.next();
+
+        backoff.reset();
+
+        assertEquals(0, backoff.getAttempt());
+        assertTrue(backoff.next() <= 500);
+    }
+
+    @Test
+    public void manyAttemptsStayCapped() {
+        Backoff backoff = new Backoff(500, 30_000, new Random(1));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(backoff.next() <= 30_000);
+        }
+    }
+
+    @Test
+    public void histogramPercentilesUseBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) histogram.record(100);   // bucket [64, 127]
+        for (int i = 0; i < 10; i++) histogram.record(3000);  // bucket [2048, 4095]
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(127, histogram.getPercentile(50));
+        assertEquals(3000, histogram.getPercentile(99));      // clamped to the max seen
+        assertEquals(3000, histogram.getMax());
+        assertEquals(390.0, histogram.getMean(), 0.001);
+
+        histogram.reset();
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class BatchingSinkTest {
+
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    private final List<BatchingSink.Done> pending = new CopyOnWriteArrayList<>();
+
+    // Commits complete immediately
+    private final BatchingSink.Committer<Integer> instant = (batch, done) -> {
+        batches.add(new ArrayList<>(batch));
+        done.onComplete(true);
+    };
+
+    // Commits complete when the test says so
+    private final BatchingSink.Committer<Integer> held = (batch, done) -> {
+        batches.add(new ArrayList<>(batch));
+        pending.add(done);
+    };
+
+    @Test
+    public void flushesWhenBatchIsFull() {
+        BatchingSink<Integer> sink = new BatchingSink<>(instant, 3, 60_000, 100, 0);
+        for (int i = 0; i < 7; i++) assertTrue(sink.offer(i));
+
+        assertEquals(2, batches.size());
+        assertEquals(3, batches.get(0).size());
+        assertEquals(Integer.valueOf(5), batches.get(1).get(2));
+        assertEquals(1, sink.getPendingCount());
+        assertEquals(6, sink.getCommittedCount());
+        sink.close();
+    }
+
+    @Test
+    public void flushesAfterMaxDelay() throws Exception {
+        BatchingSink<Integer> sink = new BatchingSink<>(instant, 100, 50, 100, 0);
+        sink.offer(1);
+        sink.offer(2);
+        assertEquals(0, batches.size());
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (batches.isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(5);
+
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(1, sink.getRecordAge().getCount());
+        sink.close();
+    }
+
+    @Test
+    public void uncommittedBatchesCountAgainstCapacity() {
+        BatchingSink<Integer> sink = new BatchingSink<>(held, 2, 60_000, 4, 10);
+        for (int i = 0; i < 4; i++) assertTrue(sink.offer(i));
+
+        assertFalse(sink.offer(99));                  // two batches still committing
+        assertEquals(1, sink.getDroppedCount());
+
+        pending.get(0).onComplete(true);
+        assertTrue(sink.offer(4));
+        assertEquals(2, sink.getCommittedCount());
+        assertEquals(1, sink.getCommitLatency().getCount());
+        sink.close();
+    }
+
+    @Test
+    public void closeCommitsTheRestAndRefusesMore() {
+        BatchingSink<Integer> sink = new BatchingSink<>(instant, 10, 60_000, 100, 0);
+        sink.offer(1);
+        sink.close();
+
+        assertEquals(1, batches.size());
+        assertFalse(sink.offer(2));
+        assertEquals(0, sink.getPendingCount());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryFrameReaderTest {
+
+    private final List<TelemetryFrame> frames = new ArrayList<>();
+    private final BinaryFrameReader reader = new BinaryFrameReader(64, (type, seq, payload, offset, length) -> {
+        TelemetryFrame frame = new TelemetryFrame();
+        assertTrue(BinaryFrameCodec.decode(type, seq, payload, offset, length, frame));
+        frames.add(frame);
+    });
+
+    private static byte[] telemetry(int seq, float temp, float weight, int servo, boolean feeding) {
+        TelemetryFrame frame = new TelemetryFrame();
+        frame.temperature = temp;
+        frame.weight = weight;
+        frame.servo = servo;
+        frame.feeding = feeding;
+
+        byte[] payload = new byte[BinaryFrameCodec.TELEMETRY_SIZE];
+        BinaryFrameCodec.writeTelemetry(frame, payload, 0);
+
+        byte[] out = new byte[BinaryFrameCodec.MAX_FRAME_SIZE];
+        int size = BinaryFrameCodec.encode(BinaryFrameCodec.TYPE_TELEMETRY, seq, payload, 0, payload.length, out);
+        byte[] exact = new byte[size];
+        System.arraycopy(out, 0, exact, 0, size);
+        return exact;
+    }
+
+    @Test
+    public void crcMatchesReferenceValue() {
+        byte[] check = "123456789".getBytes();
+        assertEquals(0x29B1, BinaryFrameCodec.crc16(check, 0, check.length));
+    }
+
+    @Test
+    public void roundTripsTelemetryFrame() {
+        byte[] data = telemetry(7, 27.45f, 3.502f, 90, true);
+        reader.feed(data, 0, data.length);
+
+        assertEquals(1, frames.size());
+        TelemetryFrame frame = frames.get(0);
+        assertEquals(TelemetryFrame.TYPE_READING, frame.type);
+        assertEquals(7, frame.seq);
+        assertEquals(27.45f, frame.temperature, 0.001f);
+        assertEquals(3.502f, frame.weight, 0.0001f);
+        assertEquals(90, frame.servo);
+        assertTrue(frame.feeding);
+    }
+
+    @Test
+    public void handlesNegativeTemperatureAndByteAtATimeDelivery() {
+        byte[] data = telemetry(65535, -2.5f, 0f, 180, false);
+        for (int i = 0; i < data.length; i++) reader.feed(data, i, 1);
+
+        assertEquals(1, frames.size());
+        assertEquals(-2.5f, frames.get(0).temperature, 0.001f);
+        assertEquals(65535, frames.get(0).seq);
+        assertEquals(180, frames.get(0).servo);
+    }
+
+    @Test
+    public void dropsCorruptFrameAndResynchronises() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(0x00);
+        stream.write(0x42);
+        byte[] corrupt = telemetry(1, 20f, 1f, 0, false);
+        corrupt[6] ^= 0x10;
+        stream.write(corrupt, 0, corrupt.length);
+        byte[] good = telemetry(2, 21f, 1f, 0, false);
+        stream.write(good, 0, good.length);
+
+        byte[] data = stream.toByteArray();
+        reader.feed(data, 0, data.length);
+
+        assertEquals(1, frames.size());
+        assertEquals(2, frames.get(0).seq);
+        assertEquals(1, reader.getCrcErrorCount());
+    }
+
+    @Test
+    public void decodesProgressFrame() {
+        byte[] payload = new byte[BinaryFrameCodec.PROGRESS_SIZE];
+        BinaryFrameCodec.writeI32(payload, 0, 1250);
+        BinaryFrameCodec.writeI32(payload, 4, 5000);
+        payload[8] = (byte) TelemetryFrame.MOTOR_JAMMED;
+        BinaryFrameCodec.writeU16(payload, 9, 42);
+
+        byte[] out = new byte[BinaryFrameCodec.MAX_FRAME_SIZE];
+        int size = BinaryFrameCodec.encode(BinaryFrameCodec.TYPE_PROGRESS, 3, payload, 0, payload.length, out);
+        reader.feed(out, 0, size);
+
+        assertEquals(1, frames.size());
+        TelemetryFrame frame = frames.get(0);
+        assertEquals(TelemetryFrame.TYPE_PROGRESS, frame.type);
+        assertEquals(1.25f, frame.dispensed, 0.0001f);
+        assertEquals(5.0f, frame.target, 0.0001f);
+        assertEquals(TelemetryFrame.MOTOR_JAMMED, frame.motor);
+        assertEquals(42, frame.commandSeq);
+    }
+}
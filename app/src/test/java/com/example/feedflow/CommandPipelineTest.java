@@ -0,0 +1,160 @@
+package com.example.feedflow;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommandPipelineTest {
+
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private final CommandPipeline pipeline = new CommandPipeline(
+            (buffer, offset, length) -> written.add(new String(buffer, offset, length, "US-ASCII")),
+            100, 3, 1);
+
+    @After
+    public void tearDown() {
+        pipeline.stop();
+    }
+
+    private void awaitWrites(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (written.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertTrue("expected " + count + " writes, got " + written, written.size() >= count);
+    }
+
+    private static void ack(CommandPipeline pipeline, int seq) {
+        byte[] line = ("ACK:" + seq).getBytes();
+        assertTrue(pipeline.onLine(line, 0, line.length));
+    }
+
+    @Test
+    public void commandsCarrySequenceIdsAndWaitForAck() throws Exception {
+        CountDownLatch acked = new CountDownLatch(1);
+        pipeline.start();
+        pipeline.submit("FEED_NOW", "5", (command, rtt) -> acked.countDown());
+        pipeline.submit("FEED_NOW", "3", (command, rtt) -> {});
+
+        awaitWrites(1);
+        Thread.sleep(30);
+        assertEquals(1, written.size());                     // second waits behind the first
+        assertEquals("FEED_NOW:5;SEQ:1\n", written.get(0));
+
+        ack(pipeline, 1);
+        assertTrue(acked.await(1, TimeUnit.SECONDS));
+        awaitWrites(2);
+        assertEquals("FEED_NOW:3;SEQ:2\n", written.get(1));
+        assertEquals(1, pipeline.getRoundTrip().getCount());
+    }
+
+    @Test
+    public void unackedCommandIsRetriedWithSameIdThenFails() throws Exception {
+        CountDownLatch failed = new CountDownLatch(1);
+        pipeline.start();
+        CommandPipeline.Command command = pipeline.submit("FEED_NOW", "2", new CommandPipeline.Listener() {
+            @Override
+            public void onAcked(CommandPipeline.Command c, long rtt) {
+                fail("never acked");
+            }
+
+            @Override
+            public void onFailed(CommandPipeline.Command c) {
+                failed.countDown();
+            }
+        });
+
+        assertTrue(failed.await(2, TimeUnit.SECONDS));
+        assertEquals(3, written.size());
+        for (String line : written) assertEquals("FEED_NOW:2;SEQ:1\n", line);
+        assertEquals(CommandPipeline.Status.FAILED, command.getStatus());
+        assertEquals(2, pipeline.getRetryCount());
+    }
+
+    @Test
+    public void staleAckIsIgnored() throws Exception {
+        pipeline.start();
+        CommandPipeline.Command command = pipeline.submit("FEED_NOW", "1", (c, rtt) -> {});
+        awaitWrites(1);
+
+        ack(pipeline, 7);
+        assertEquals(CommandPipeline.Status.SENT, command.getStatus());
+        ack(pipeline, 1);
+        assertEquals(CommandPipeline.Status.ACKED, command.getStatus());
+    }
+
+    @Test
+    public void queuedSettingsCoalesce() throws Exception {
+        // Not started yet, so everything stays queued
+        CommandPipeline.Command first = pipeline.submitCoalescing("SET_RATE", "10", (c, rtt) -> {});
+        CommandPipeline.Command second = pipeline.submitCoalescing("SET_RATE", "20", (c, rtt) -> {});
+        pipeline.submit("FEED_NOW", "1", (c, rtt) -> {});
+        pipeline.submit("FEED_NOW", "1", (c, rtt) -> {});
+
+        assertSame(first, second);
+        assertEquals("20", first.getArgument());
+        assertEquals(1, pipeline.getCoalescedCount());
+        assertEquals(3, pipeline.getQueuedCount());
+
+        pipeline.start();
+        awaitWrites(1);
+        assertEquals("SET_RATE:20;SEQ:1\n", written.get(0));
+    }
+
+    @Test
+    public void postedTextIsWrittenWithoutId() throws Exception {
+        pipeline.start();
+        pipeline.post("PROTO?\n");
+        pipeline.post("LED_ON");
+
+        awaitWrites(2);
+        assertEquals("PROTO?\n", written.get(0));
+        assertEquals("LED_ON\n", written.get(1));
+    }
+
+    @Test
+    public void idsWrapPastU16AndDoNotStartAtOneByDefault() throws Exception {
+        CommandPipeline wrapping = new CommandPipeline(
+                (buffer, offset, length) -> written.add(new String(buffer, offset, length, "US-ASCII")),
+                100, 3, 0xFFFF);
+        try {
+            wrapping.start();
+            wrapping.submit("FEED_NOW", "1", null);
+            wrapping.submit("FEED_NOW", "2", null);
+            awaitWrites(1);
+            assertEquals("FEED_NOW:1;SEQ:65535\n", written.get(0));
+            ack(wrapping, 0xFFFF);
+            awaitWrites(2);
+            assertEquals("FEED_NOW:2;SEQ:1\n", written.get(1));
+        } finally {
+            wrapping.stop();
+        }
+
+        // A fresh link (or app start) picks a random first id
+        int ones = 0;
+        for (int i = 0; i < 20; i++) {
+            List<String> lines = new CopyOnWriteArrayList<>();
+            CommandPipeline fresh = new CommandPipeline(
+                    (buffer, offset, length) -> lines.add(new String(buffer, offset, length, "US-ASCII")), 100, 1);
+            fresh.start();
+            fresh.submit("FEED_NOW", "1", null);
+            long deadline = System.currentTimeMillis() + 2000;
+            while (lines.isEmpty() && System.currentTimeMillis() < deadline) Thread.sleep(1);
+            fresh.stop();
+            if (lines.get(0).endsWith(";SEQ:1\n")) ones++;
+        }
+        assertTrue(ones < 20);
+    }
+
+    @Test
+    public void nonAckLinesAreNotConsumed() {
+        byte[] line = "ACK:x".getBytes();
+        assertFalse(pipeline.onLine(line, 0, line.length));
+        line = "25.1,3.2,0,0".getBytes();
+        assertFalse(pipeline.onLine(line, 0, line.length));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class DailySummaryTest {
+
+    private final DailySummary daily = new DailySummary();
+    private final List<RollupAggregator.Rollup> quarters = new ArrayList<>();
+    private final RollupAggregator rollups = new RollupAggregator(r -> {
+        if (r.resolutionMs == RollupAggregator.MINUTE_MS) daily.onMinute(r);
+        if (r.resolutionMs == RollupAggregator.QUARTER_MS) quarters.add(r);
+    });
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private void reading(long timestamp, float temp) {
+        frame.deviceId = "D1";
+        frame.type = TelemetryFrame.TYPE_TEMPERATURE;
+        frame.timestamp = timestamp;
+        frame.temperature = temp;
+        rollups.add(frame);
+    }
+
+    @Test
+    public void slotCarriesBandMinutesOfItsQuarter() {
+        long t0 = 100 * RollupAggregator.HOUR_MS;
+        reading(t0, 24f);                                     // below
+        reading(t0 + RollupAggregator.MINUTE_MS, 27f);        // in band
+        reading(t0 + 2 * RollupAggregator.MINUTE_MS, 31f);    // above
+        reading(t0 + 3 * RollupAggregator.MINUTE_MS, 28f);    // in band
+        rollups.closeAll();
+
+        assertEquals(1, quarters.size());
+        Map<String, Object> slot = daily.slotEntry(quarters.get(0));
+        assertEquals(2L, slot.get("inBand"));
+        assertEquals(1L, slot.get("below"));
+        assertEquals(1L, slot.get("above"));
+        assertEquals(4L, slot.get("count"));
+        assertEquals(24.0, (Double) slot.get("min"), 1e-6);
+    }
+
+    @Test
+    public void foldsSlotsAndFeedsIntoTheDay() {
+        Map<String, Object> a = new HashMap<>();
+        a.put("min", 24.0);
+        a.put("max", 28.0);
+        a.put("sum", 260.0);
+        a.put("count", 10L);
+        a.put("inBand", 10L);
+        a.put("below", 5L);
+        a.put("above", 0L);
+        Map<String, Object> b = new HashMap<>();
+        b.put("min", 26.0);
+        b.put("max", 31.0);
+        b.put("sum", 300.0);
+        b.put("count", 10L);
+        b.put("inBand", 12L);
+        b.put("below", 0L);
+        b.put("above", 3L);
+        Map<String, Object> slots = new HashMap<>();
+        slots.put("1000", a);
+        slots.put("2000", b);
+        Map<String, Object> feeds = new HashMap<>();
+        feeds.put("1500", 1.5);
+        feeds.put("2500", 2L);
+
+        Map<String, Object> document = new HashMap<>();
+        document.put("slots", slots);
+        document.put("feeds", feeds);
+        DailySummary.Day day = DailySummary.fold(document);
+
+        assertEquals(24f, day.min, 0f);
+        assertEquals(31f, day.max, 0f);
+        assertEquals(28.0, day.mean(), 1e-9);
+        assertEquals(22, day.minutesInBand);
+        assertEquals(30, day.minutes());
+        assertEquals(3.5, day.kgDispensed, 1e-9);
+        assertEquals(2, day.feeds);
+    }
+
+    @Test
+    public void emptyDocumentFoldsToEmptyDay() {
+        DailySummary.Day day = DailySummary.fold(new HashMap<>());
+        assertEquals(0, day.count);
+        assertTrue(Double.isNaN(day.mean()));
+        assertEquals(0.0, day.kgDispensed, 0);
+    }
+
+    @Test
+    public void dayIdFollowsTheGivenZone() {
+        long t = 1_700_000_000_000L;   // 2023-11-14 22:13 UTC
+        assertEquals("2023-11-14", DailySummary.dayId(t, TimeZone.getTimeZone("UTC")));
+        assertEquals("2023-11-15", DailySummary.dayId(t, TimeZone.getTimeZone("Asia/Manila")));
+    }
+}
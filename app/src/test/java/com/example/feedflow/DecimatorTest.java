@@ -0,0 +1,88 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecimatorTest {
+
+    private static Decimator.Source series(float[] x, float[] y) {
+        return new Decimator.Source() {
+            @Override
+            public int size() {
+                return x.length;
+            }
+
+            @Override
+            public float x(int index) {
+                return x[index];
+            }
+
+            @Override
+            public float y(int index) {
+                return y[index];
+            }
+        };
+    }
+
+    // 10 000 points of a slow wave with one spike at 'spike'
+    private static Decimator.Source wave(int spike) {
+        float[] x = new float[10_000];
+        float[] y = new float[10_000];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = i;
+            y[i] = 27 + (float) Math.sin(i / 500.0);
+        }
+        y[spike] = 40;
+        return series(x, y);
+    }
+
+    @Test
+    public void minMaxKeepsSpikesWithinTwoPointsPerPixel() {
+        Decimator decimator = new Decimator();
+        int n = decimator.decimate(wave(4_321), Decimator.Mode.MIN_MAX, 0, 9_999, 200);
+
+        assertTrue(n <= 2 * 200 + 2);
+        boolean spike = false;
+        for (int i = 0; i < n; i++) {
+            if (decimator.y(i) == 40f) spike = true;
+            if (i > 0) assertTrue(decimator.x(i) > decimator.x(i - 1));
+        }
+        assertTrue(spike);
+        assertEquals(0f, decimator.x(0), 0f);
+        assertEquals(9_999f, decimator.x(n - 1), 0f);
+    }
+
+    @Test
+    public void lttbReturnsThresholdPointsWithEndsAndPeak() {
+        Decimator decimator = new Decimator();
+        int n = decimator.decimate(wave(7_000), Decimator.Mode.LTTB, 0, 9_999, 300);
+
+        assertEquals(300, n);
+        assertEquals(0f, decimator.x(0), 0f);
+        assertEquals(9_999f, decimator.x(n - 1), 0f);
+        boolean spike = false;
+        for (int i = 0; i < n; i++) if (decimator.y(i) == 40f) spike = true;
+        assertTrue(spike);
+    }
+
+    @Test
+    public void decimatesOnlyTheVisibleWindowPlusOneEachSide() {
+        Decimator decimator = new Decimator();
+        int n = decimator.decimate(wave(0), Decimator.Mode.LTTB, 1_000, 1_099, 500);
+
+        assertEquals(102, n);   // fewer points than pixels: passed through
+        assertEquals(999f, decimator.x(0), 0f);
+        assertEquals(1_100f, decimator.x(n - 1), 0f);
+    }
+
+    @Test
+    public void emptyOrOutsideWindowGivesNothing() {
+        Decimator decimator = new Decimator();
+        assertEquals(0, decimator.decimate(series(new float[0], new float[0]), Decimator.Mode.MIN_MAX, 0, 10, 100));
+        float[] x = {1, 2, 3};
+        float[] y = {5, 6, 7};
+        assertEquals(1, decimator.decimate(series(x, y), Decimator.Mode.MIN_MAX, 10, 20, 100));
+        assertEquals(3f, decimator.x(0), 0f);
+    }
+}
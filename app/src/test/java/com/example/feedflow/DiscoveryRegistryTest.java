@@ -0,0 +1,57 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DiscoveryRegistryTest {
+
+    private final DiscoveryRegistry registry = new DiscoveryRegistry();
+
+    @Test
+    public void mergesRepeatedSightingsByAddress() {
+        assertTrue(registry.onSighting("AA:00", "Phone", -70, false, 1));
+        assertFalse(registry.onSighting("AA:00", "Phone", -70, false, 2));
+
+        assertEquals(1, registry.size());
+        DiscoveryRegistry.Device device = registry.get("AA:00");
+        assertEquals(2, device.getSightings());
+        assertEquals(2, device.getLastSeen());
+    }
+
+    @Test
+    public void smoothsRssi() {
+        registry.onSighting("AA:00", "Phone", -80, false, 1);
+        registry.onSighting("AA:00", null, -60, false, 2);
+
+        assertEquals(-70, registry.get("AA:00").getRssi());
+        assertEquals("Phone", registry.get("AA:00").getName());
+    }
+
+    @Test
+    public void ranksFeedersThenSignalThenBonded() {
+        registry.onSighting("AA:01", "Headset", -40, false, 1);
+        registry.onSighting("AA:02", "ESP32-Pond2", -85, false, 1);
+        registry.onSighting("AA:03", "Laptop", DiscoveryRegistry.NO_RSSI, true, 1);
+        registry.onSighting("AA:04", "FeedFlow-1", -60, true, 1);
+        registry.onSighting("AA:05", "Speaker", -55, false, 1);
+
+        List<DiscoveryRegistry.Device> ranked = registry.snapshot();
+
+        assertEquals("AA:04", ranked.get(0).getAddress());
+        assertEquals("AA:02", ranked.get(1).getAddress());
+        assertEquals("AA:01", ranked.get(2).getAddress());
+        assertEquals("AA:05", ranked.get(3).getAddress());
+        assertEquals("AA:03", ranked.get(4).getAddress());   // no signal reading yet
+    }
+
+    @Test
+    public void feederNamesMatchCaseInsensitively() {
+        assertTrue(DiscoveryRegistry.isFeederName("esp32_feeder"));
+        assertTrue(DiscoveryRegistry.isFeederName("FEEDFLOW"));
+        assertFalse(DiscoveryRegistry.isFeederName("My ESP32"));
+        assertFalse(DiscoveryRegistry.isFeederName(null));
+    }
+}
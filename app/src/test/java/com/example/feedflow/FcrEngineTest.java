@@ -0,0 +1,119 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FcrEngineTest {
+
+    private static final long DAY = 24 * RollupAggregator.HOUR_MS;
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    public void fcrIsFeedOverBiomassGainBetweenEstimates() {
+        FcrEngine engine = new FcrEngine();
+        engine.putNote("start", T0, 0, 1_000, Double.NaN);
+        for (int day = 0; day < 10; day++) engine.addFeed("feed" + day, T0 + day * DAY + 1, 15);
+        engine.putNote("end", T0 + 10 * DAY, 0, 1_100, Double.NaN);
+
+        FcrEngine.Result result = engine.range(T0, T0 + 10 * DAY + 1);
+        assertEquals(150, result.feedKg, 1e-9);
+        assertEquals(100, result.gainKg, 1e-9);
+        assertEquals(1.5, result.fcr, 1e-9);
+        assertEquals(150 / (10 + 1.0 / DAY), result.feedPerDay, 1e-6);
+    }
+
+    @Test
+    public void deadFishCountAsGainAtTheLatestSampledWeight() {
+        FcrEngine engine = new FcrEngine();
+        engine.putNote("sample", T0, 0, 1_000, 250);
+        engine.addFeed("feed", T0 + DAY, 120);
+        engine.putNote("deaths", T0 + 2 * DAY, 40, Double.NaN, Double.NaN);
+        engine.putNote("end", T0 + 5 * DAY, 0, 1_070, Double.NaN);
+
+        FcrEngine.Result result = engine.range(T0, T0 + 6 * DAY);
+        assertEquals(40, result.deadFish, 1e-9);
+        assertEquals(10, result.deadKg, 1e-9);     // 40 fish at 250 g
+        assertEquals(1.5, result.fcr, 1e-9);       // 120 kg / (70 + 10) kg
+    }
+
+    @Test
+    public void feedsAreCountedOnceAndMayArriveOutOfOrder() {
+        FcrEngine engine = new FcrEngine();
+        assertTrue(engine.addFeed("b", T0 + 2 * DAY, 20));
+        assertTrue(engine.addFeed("a", T0 + DAY, 10));
+        assertFalse(engine.addFeed("b", T0 + 2 * DAY, 20));
+        assertTrue(engine.addFeed("c", T0 + 3 * DAY, 30));
+
+        assertEquals(3, engine.feedCount());
+        assertEquals(60, engine.range(T0, T0 + 4 * DAY).feedKg, 1e-9);
+        assertEquals(20, engine.range(T0 + DAY + 1, T0 + 3 * DAY).feedKg, 1e-9);   // [from, to)
+        assertEquals(0, engine.range(T0 + 4 * DAY, T0 + 5 * DAY).feedKg, 1e-9);
+    }
+
+    @Test
+    public void editedAndRemovedNotesUpdateTheRatio() {
+        FcrEngine engine = new FcrEngine();
+        engine.putNote("start", T0, 0, 500, Double.NaN);
+        engine.addFeed("feed", T0 + DAY, 60);
+        engine.putNote("end", T0 + 7 * DAY, 0, 540, Double.NaN);
+        assertEquals(1.5, engine.range(T0, T0 + 8 * DAY).fcr, 1e-9);
+
+        engine.putNote("end", T0 + 7 * DAY, 0, 550, Double.NaN);
+        assertEquals(1.2, engine.range(T0, T0 + 8 * DAY).fcr, 1e-9);
+        assertEquals(2, engine.noteCount());
+
+        engine.removeNote("end");
+        FcrEngine.Result result = engine.range(T0, T0 + 8 * DAY);
+        assertFalse(result.hasFcr());
+        assertTrue(Double.isNaN(result.gainKg));
+        assertEquals(60, result.feedKg, 1e-9);
+    }
+
+    @Test
+    public void deathsAreReweighedWhenAWeightIsAddedEditedOrRemoved() {
+        FcrEngine engine = new FcrEngine();
+        engine.putNote("early", T0, 0, Double.NaN, 200);
+        engine.putNote("deaths", T0 + 2 * DAY, 40, Double.NaN, Double.NaN);
+        engine.putNote("later", T0 + 4 * DAY, 20, Double.NaN, Double.NaN);
+        engine.putNote("next", T0 + 3 * DAY, 0, Double.NaN, 500);
+        assertEquals(8 + 10, engine.range(T0, T0 + 5 * DAY).deadKg, 1e-9);
+
+        engine.putNote("sample", T0 + DAY, 0, Double.NaN, 300);   // added before the deaths
+        assertEquals(12 + 10, engine.range(T0, T0 + 5 * DAY).deadKg, 1e-9);
+
+        engine.putNote("sample", T0 + DAY, 0, Double.NaN, 250);   // edited
+        assertEquals(10 + 10, engine.range(T0, T0 + 5 * DAY).deadKg, 1e-9);
+
+        engine.removeNote("sample");
+        assertEquals(8 + 10, engine.range(T0, T0 + 5 * DAY).deadKg, 1e-9);
+
+        engine.removeNote("early");
+        assertEquals(10, engine.range(T0, T0 + 5 * DAY).deadKg, 1e-9);   // 40 fish of unknown weight
+    }
+
+    @Test
+    public void anUpdatedFeedReplacesTheFirst() {
+        FcrEngine engine = new FcrEngine();
+        engine.putFeed("a", T0 + DAY, 4);
+        engine.putFeed("a", T0 + DAY, 5);
+        engine.putFeed("b", T0 + 2 * DAY, 3);
+        assertEquals(8, engine.range(T0, T0 + 3 * DAY).feedKg, 1e-9);
+        assertEquals(2, engine.feedCount());
+
+        engine.removeFeed("b");
+        assertEquals(5, engine.range(T0, T0 + 3 * DAY).feedKg, 1e-9);
+    }
+
+    @Test
+    public void noRatioWhenTheStockDidNotGain() {
+        FcrEngine engine = new FcrEngine();
+        engine.putNote("start", T0, 0, 800, Double.NaN);
+        engine.addFeed("feed", T0 + DAY, 50);
+        engine.putNote("end", T0 + 2 * DAY, 0, 780, Double.NaN);
+
+        FcrEngine.Result result = engine.range(T0, T0 + 3 * DAY);
+        assertEquals(-20, result.gainKg, 1e-9);
+        assertFalse(result.hasFcr());
+    }
+}
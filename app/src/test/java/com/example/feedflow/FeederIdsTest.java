@@ -0,0 +1,20 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FeederIdsTest {
+
+    @Test
+    public void legacyFeederKeepsItsDocumentId() {
+        assertEquals("Device001", FeederIds.docIdFor("b4:88:08:b4:03:6a"));
+        assertEquals("Device001", FeederIds.docIdFor(null));
+    }
+
+    @Test
+    public void otherFeedersGetOneDocumentPerMac() {
+        assertEquals("Device_B48808000001", FeederIds.docIdFor("b4:88:08:00:00:01"));
+        assertEquals(FeederIds.docIdFor("B4:88:08:00:00:01"), FeederIds.docIdFor("b4:88:08:00:00:01"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HistoryWindowsTest {
+
+    private static final long DAY = 24 * RollupAggregator.HOUR_MS;
+    private static final long ORIGIN = 1_000 * DAY;
+
+    // Loads are held until complete() so tests can see what is pending
+    private final List<HistoryWindows.Callback<String>> waiting = new ArrayList<>();
+    private final List<Long> requested = new ArrayList<>();
+    private int changes;
+    private final HistoryWindows<String> windows = new HistoryWindows<>(ORIGIN, DAY, ORIGIN - 10 * DAY,
+            (from, to, done) -> {
+                requested.add(from);
+                waiting.add(done);
+            },
+            () -> changes++);
+
+    private void completeAll() {
+        for (int i = 0; i < waiting.size(); i++) waiting.get(i).onLoaded("day@" + requested.get(i) / DAY);
+        waiting.clear();
+        requested.clear();
+    }
+
+    @Test
+    public void loadsTheVisibleWindowsAndPrefetchesOneBack() {
+        windows.put(-1, "today");
+        windows.show(ORIGIN - DAY, ORIGIN);
+
+        assertEquals(1, requested.size());
+        assertEquals(ORIGIN - 2 * DAY, (long) requested.get(0));   // prefetch
+        assertTrue(windows.isPending(-2));
+
+        windows.show(ORIGIN - DAY - DAY / 2, ORIGIN - DAY / 2);      // half a day back: -2 is already on its way
+        assertEquals(2, requested.size());
+        assertEquals(ORIGIN - 3 * DAY, (long) requested.get(1));
+        completeAll();
+        assertEquals(3, windows.loadedCount());
+        assertEquals(2, changes);
+    }
+
+    @Test
+    public void evictsWindowsFarFromTheViewport() {
+        windows.put(-1, "today");
+        windows.show(ORIGIN - DAY, ORIGIN);
+        completeAll();
+        assertTrue(windows.isLoaded(-2));
+
+        windows.show(ORIGIN - 6 * DAY, ORIGIN - 5 * DAY);           // window -6
+        assertFalse(windows.isLoaded(-1));
+        completeAll();
+        assertTrue(windows.isLoaded(-6));
+        assertTrue(windows.isLoaded(-7));
+        for (String day : windows.loaded()) assertFalse("today".equals(day));
+        assertTrue(windows.loadedCount() <= 2 * HistoryWindows.KEEP_MARGIN + 1);
+    }
+
+    @Test
+    public void dropsLoadsThatArriveAfterScrollingAway() {
+        windows.show(ORIGIN - DAY, ORIGIN);
+        assertEquals(2, waiting.size());
+        windows.show(ORIGIN - 9 * DAY, ORIGIN - 8 * DAY);
+        completeAll();
+        assertFalse(windows.isLoaded(-1));
+        assertFalse(windows.isLoaded(-2));
+        assertTrue(windows.isLoaded(-9));
+    }
+
+    @Test
+    public void requestsNothingBeforeTheEarliestTime() {
+        windows.show(ORIGIN - 10 * DAY, ORIGIN - 9 * DAY);
+        assertEquals(1, requested.size());                          // -10 only; -11 ends before 'earliest'
+        assertEquals(ORIGIN - 10 * DAY, (long) requested.get(0));
+        assertEquals(1, windows.getRequestCount());
+    }
+}
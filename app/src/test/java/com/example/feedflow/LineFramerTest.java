@@ -0,0 +1,57 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LineFramerTest {
+
+    private final List<String> lines = new ArrayList<>();
+    private final LineFramer framer = new LineFramer(16,
+            (buffer, offset, length) -> lines.add(new String(buffer, offset, length)));
+
+    @Test
+    public void splitsAndTrimsLines() {
+        byte[] data = "25.1,3.2,0,1\r\n\n 26.0,3.1,90,0 \n".getBytes();
+        framer.feed(data, 0, data.length);
+
+        assertEquals(2, lines.size());
+        assertEquals("25.1,3.2,0,1", lines.get(0));
+        assertEquals("26.0,3.1,90,0", lines.get(1));
+    }
+
+    @Test
+    public void joinsLinesAcrossChunks() {
+        byte[] data = "12.5,1.0,0,0\n13.5,2.0,0,1\n".getBytes();
+        for (int i = 0; i < data.length; i += 3) {
+            framer.feed(data, i, Math.min(3, data.length - i));
+        }
+
+        assertEquals(2, lines.size());
+        assertEquals("13.5,2.0,0,1", lines.get(1));
+    }
+
+    @Test
+    public void dropsOversizedLineAndRecovers() {
+        byte[] data = "0123456789abcdefghijklmnop\nok\n".getBytes();
+        framer.feed(data, 0, data.length);
+
+        assertEquals(1, lines.size());
+        assertEquals("ok", lines.get(0));
+        assertEquals(1, framer.getOverflowCount());
+    }
+
+    @Test
+    public void readsFromStream() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream("a\nbb\nccc".getBytes());
+        while (framer.readFrom(in) > 0) { }
+
+        assertEquals(2, lines.size());
+        assertEquals("bb", lines.get(1));
+    }
+}
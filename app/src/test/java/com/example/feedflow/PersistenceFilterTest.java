@@ -0,0 +1,94 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistenceFilterTest {
+
+    private final List<Float> persisted = new ArrayList<>();
+    private final PersistenceFilter filter = new PersistenceFilter();
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private void reading(String device, long timestamp, float temp, float weight) {
+        frame.deviceId = device;
+        frame.type = TelemetryFrame.TYPE_READING;
+        frame.timestamp = timestamp;
+        frame.temperature = temp;
+        frame.weight = weight;
+        frame.servo = 0;
+        frame.feeding = false;
+        if (filter.accept(frame)) persisted.add(temp);
+    }
+
+    @Test
+    public void suppressesSamplesInsideTheDeadBand() {
+        reading("D1", 0, 26.00f, 3.000f);
+        reading("D1", 1_000, 26.05f, 3.005f);   // inside both bands
+        reading("D1", 2_000, 26.09f, 2.995f);   // still within 0.1 °C of the persisted 26.00
+        reading("D1", 3_000, 26.15f, 3.000f);   // temperature moved
+
+        assertEquals(2, persisted.size());
+        assertEquals(26.15f, persisted.get(1), 0f);
+        assertEquals(2, filter.getSuppressedCount());
+        assertEquals(2, filter.getSuppressedCount(PersistenceFilter.TEMPERATURE));
+        assertEquals(3, filter.getSuppressedCount(PersistenceFilter.WEIGHT));
+    }
+
+    @Test
+    public void heartbeatPersistsASteadyChannel() {
+        filter.setChannel(PersistenceFilter.TEMPERATURE, 0.1f, 10_000);
+        filter.setChannel(PersistenceFilter.WEIGHT, 0.01f, 10_000);
+        for (long t = 0; t <= 30_000; t += 1_000) reading("D1", t, 26f, 3f);
+
+        assertEquals(4, persisted.size());            // t = 0, 10 s, 20 s, 30 s
+        assertEquals(27, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void weightChangeAlonePersists() {
+        reading("D1", 0, 26f, 3.000f);
+        reading("D1", 1_000, 26f, 2.980f);            // 20 g dispensed
+
+        assertEquals(2, persisted.size());
+    }
+
+    @Test
+    public void feedersAreFilteredSeparatelyAndEventsAlwaysPass() {
+        reading("D1", 0, 26f, 3f);
+        reading("D2", 0, 26f, 3f);                    // first sample of another feeder
+
+        frame.type = TelemetryFrame.TYPE_FEED;
+        assertTrue(filter.accept(frame));
+        assertTrue(filter.accept(frame));
+
+        assertEquals(2, persisted.size());
+        assertEquals(0, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void firstSampleOfEveryHourPasses() {
+        long hour = RollupAggregator.HOUR_MS;
+        reading("D1", hour - 2_000, 26.00f, 3.000f);
+        reading("D1", hour - 1_000, 26.01f, 3.000f);   // suppressed
+        reading("D1", hour, 26.02f, 3.000f);           // next hour starts over
+        reading("D1", hour + 1_000, 26.03f, 3.000f);   // suppressed
+
+        assertEquals(2, persisted.size());
+        assertEquals(26.02f, persisted.get(1), 0f);
+    }
+
+    @Test
+    public void resetLetsTheNextSampleOfEveryFeederPass() {
+        reading("D1", 10_000, 26.00f, 3.000f);
+        reading("D1", 11_000, 26.01f, 3.000f);   // suppressed
+        filter.reset();
+        reading("D1", 5_000, 26.01f, 3.000f);    // replayed from the journal, older
+
+        assertEquals(2, persisted.size());
+        assertEquals(26.01f, persisted.get(1), 0f);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RollupAggregatorTest {
+
+    private final List<RollupAggregator.Rollup> closed = new ArrayList<>();
+    private final RollupAggregator aggregator = new RollupAggregator(closed::add);
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private void reading(String device, long timestamp, float temp, float weight, int servo) {
+        frame.deviceId = device;
+        frame.type = TelemetryFrame.TYPE_READING;
+        frame.timestamp = timestamp;
+        frame.temperature = temp;
+        frame.weight = weight;
+        frame.servo = servo;
+        aggregator.add(frame);
+    }
+
+    private List<RollupAggregator.Rollup> closedAt(long resolution) {
+        List<RollupAggregator.Rollup> out = new ArrayList<>();
+        for (RollupAggregator.Rollup r : closed) if (r.resolutionMs == resolution) out.add(r);
+        return out;
+    }
+
+    @Test
+    public void foldsSamplesIntoMinuteBucket() {
+        long t0 = 10 * RollupAggregator.HOUR_MS;
+        reading("D1", t0 + 1_000, 26f, 3.0f, 0);
+        reading("D1", t0 + 20_000, 28f, 2.5f, 90);
+        reading("D1", t0 + 59_999, 27f, 2.0f, 0);
+        assertTrue(closed.isEmpty());
+
+        reading("D1", t0 + 60_000, 25f, 2.0f, 0);   // opens the next minute
+
+        List<RollupAggregator.Rollup> minutes = closedAt(RollupAggregator.MINUTE_MS);
+        assertEquals(1, minutes.size());
+        RollupAggregator.Rollup r = minutes.get(0);
+        assertEquals(t0, r.start);
+        assertEquals("1m", r.resolutionName());
+        assertEquals(3, r.temperature.count);
+        assertEquals(26f, r.temperature.min, 0f);
+        assertEquals(28f, r.temperature.max, 0f);
+        assertEquals(27.0, r.temperature.mean(), 1e-6);
+        assertEquals(27f, r.temperature.last, 0f);
+        assertEquals(2.0f, r.weight.min, 0f);
+        assertEquals(90f, r.servo.max, 0f);
+        assertTrue(closedAt(RollupAggregator.QUARTER_MS).isEmpty());
+    }
+
+    @Test
+    public void closesCoarserBucketsAtTheirOwnBoundaries() {
+        long t0 = 3 * RollupAggregator.HOUR_MS;
+        for (int minute = 0; minute <= 60; minute++) {
+            reading("D1", t0 + minute * RollupAggregator.MINUTE_MS, 20f + minute, 1f, 0);
+        }
+
+        assertEquals(60, closedAt(RollupAggregator.MINUTE_MS).size());
+        assertEquals(4, closedAt(RollupAggregator.QUARTER_MS).size());
+        List<RollupAggregator.Rollup> hours = closedAt(RollupAggregator.HOUR_MS);
+        assertEquals(1, hours.size());
+        assertEquals(60, hours.get(0).temperature.count);
+        assertEquals("1h", hours.get(0).resolutionName());
+    }
+
+    @Test
+    public void keepsFeedersApartAndClosesExpiredBuckets() {
+        long t0 = 5 * RollupAggregator.HOUR_MS;
+        reading("D1", t0, 20f, 1f, 0);
+        reading("D2", t0 + 1_000, 30f, 1f, 0);
+
+        aggregator.closeExpired(t0 + RollupAggregator.MINUTE_MS);
+
+        List<RollupAggregator.Rollup> minutes = closedAt(RollupAggregator.MINUTE_MS);
+        assertEquals(2, minutes.size());
+        for (RollupAggregator.Rollup r : minutes) {
+            assertEquals(1, r.temperature.count);
+            assertEquals(r.deviceId.equals("D1") ? 20f : 30f, r.temperature.last, 0f);
+        }
+        assertTrue(closedAt(RollupAggregator.HOUR_MS).isEmpty());
+    }
+
+    @Test
+    public void temperatureOnlySamplesLeaveWeightEmpty() {
+        frame.deviceId = "D1";
+        frame.type = TelemetryFrame.TYPE_TEMPERATURE;
+        frame.timestamp = RollupAggregator.HOUR_MS;
+        frame.temperature = 24f;
+        aggregator.add(frame);
+        aggregator.closeAll();
+
+        assertEquals(3, closed.size());
+        assertEquals(1, closed.get(0).temperature.count);
+        assertEquals(0, closed.get(0).weight.count);
+    }
+
+    @Test
+    public void tracksOldestJournalRecordOfOpenBuckets() {
+        long t0 = 7 * RollupAggregator.HOUR_MS;
+        assertEquals(Long.MAX_VALUE, aggregator.getOldestOpenJournalSeq());
+
+        frame.journalSeq = 10;
+        reading("D1", t0, 20f, 1f, 0);
+        frame.journalSeq = 11;
+        reading("D1", t0 + RollupAggregator.MINUTE_MS, 20f, 1f, 0);
+        assertEquals(10, aggregator.getOldestOpenJournalSeq());   // the hour is still open
+
+        aggregator.closeAll();
+        assertEquals(Long.MAX_VALUE, aggregator.getOldestOpenJournalSeq());
+    }
+
+    @Test
+    public void emitsOnlyTheRequestedResolutions() {
+        List<RollupAggregator.Rollup> minutes = new ArrayList<>();
+        RollupAggregator minuteOnly = new RollupAggregator(minutes::add, RollupAggregator.MINUTE_MS);
+        frame.deviceId = "D1";
+        frame.type = TelemetryFrame.TYPE_READING;
+        frame.timestamp = RollupAggregator.HOUR_MS;
+        minuteOnly.add(frame);
+        minuteOnly.closeAll();
+
+        assertEquals(1, minutes.size());
+        assertEquals(RollupAggregator.MINUTE_MS, minutes.get(0).resolutionMs);
+    }
+}
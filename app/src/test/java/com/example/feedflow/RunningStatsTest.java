@@ -0,0 +1,100 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RunningStatsTest {
+
+    @Test
+    public void tracksMomentsAndExtremes() {
+        RunningStats stats = new RunningStats();
+        double[] values = {26.5, 24.0, 31.25, 28.0, 27.5};
+        for (int i = 0; i < values.length; i++) stats.add(i * 1_000L, values[i]);
+
+        assertEquals(5, stats.count());
+        assertEquals(27.45, stats.mean(), 1e-9);
+        assertEquals(137.25, stats.sum(), 1e-9);
+        assertEquals(6.8875, stats.variance(), 1e-9);
+        assertEquals(24.0, stats.min(), 0);
+        assertEquals(31.25, stats.max(), 0);
+        assertEquals(27.5, stats.latest(), 0);
+    }
+
+    @Test
+    public void weighsBandTimeByHowLongEachValueHeld() {
+        RunningStats stats = new RunningStats(25, 30);
+        stats.add(0, 27);          // in band for 10 s
+        stats.add(10_000, 24);     // below for 30 s
+        stats.add(40_000, 31);     // above for 5 s
+        stats.add(45_000, 28);     // gap: held MAX_HOLD_MS only
+        stats.add(45_000 + 10 * RunningStats.MAX_HOLD_MS, 28);
+
+        assertEquals(10_000 + RunningStats.MAX_HOLD_MS, stats.msInBand());
+        assertEquals(30_000, stats.msBelow());
+        assertEquals(5_000, stats.msAbove());
+        assertTrue(Double.isNaN(new RunningStats().mean()));
+    }
+
+    @Test
+    public void windowDropsExpiredSamples() {
+        RunningStats stats = new RunningStats(25, 30, 60_000, 100);
+        stats.add(0, 40);          // above, expires
+        stats.add(30_000, 20);     // below
+        stats.add(60_000, 27);
+        stats.add(90_000, 26);     // window is now 30 s .. 90 s
+
+        assertEquals(3, stats.count());
+        assertEquals(24.333333333, stats.mean(), 1e-6);
+        assertEquals(20, stats.min(), 0);
+        assertEquals(27, stats.max(), 0);
+        assertEquals(30_000, stats.msBelow());
+        assertEquals(30_000, stats.msInBand());
+        assertEquals(0, stats.msAbove());
+    }
+
+    @Test
+    public void windowMatchesARecomputationOverRandomData() {
+        long windowMs = 50_000;
+        int capacity = 40;
+        RunningStats stats = new RunningStats(25, 30, windowMs, capacity);
+        Random random = new Random(7);
+        int n = 2_000;
+        long[] times = new long[n];
+        double[] values = new double[n];
+        long time = 0;
+
+        for (int k = 0; k < n; k++) {
+            time += 500 + random.nextInt(3_000);
+            times[k] = time;
+            values[k] = 20 + random.nextDouble() * 15;
+            stats.add(time, values[k]);
+
+            int from = Math.max(0, k - capacity + 1);
+            while (times[from] < time - windowMs) from++;
+            double sum = 0, min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+            for (int i = from; i <= k; i++) {
+                sum += values[i];
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            int count = k - from + 1;
+            double mean = sum / count;
+            double squares = 0;
+            long below = 0;
+            for (int i = from; i <= k; i++) {
+                squares += (values[i] - mean) * (values[i] - mean);
+                if (i < k && values[i] < 25) below += Math.min(times[i + 1] - times[i], RunningStats.MAX_HOLD_MS);
+            }
+
+            assertEquals(count, stats.count());
+            assertEquals(mean, stats.mean(), 1e-9);
+            assertEquals(count == 1 ? 0 : squares / (count - 1), stats.variance(), 1e-6);
+            assertEquals(min, stats.min(), 0);
+            assertEquals(max, stats.max(), 0);
+            assertEquals(below, stats.msBelow());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SampleChunkerTest {
+
+    private final List<SampleChunker.Chunk> complete = new ArrayList<>();
+    private final List<SampleChunker.Chunk> snapshots = new ArrayList<>();
+    private final SampleChunker chunker = new SampleChunker((chunk, done) -> (done ? complete : snapshots).add(chunk));
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private void reading(String device, long timestamp, float temp) {
+        frame.deviceId = device;
+        frame.type = TelemetryFrame.TYPE_READING;
+        frame.timestamp = timestamp;
+        frame.temperature = temp;
+        frame.weight = 2f;
+        frame.servo = 45;
+        chunker.add(frame);
+    }
+
+    @Test
+    public void packsAnHourIntoParallelArrays() {
+        long hour = 12 * RollupAggregator.HOUR_MS;
+        reading("D1", hour + 5_000, 26f);
+        reading("D1", hour + 65_000, 27f);
+        reading("D1", hour + RollupAggregator.HOUR_MS, 28f);   // next hour closes the first chunk
+
+        assertEquals(1, complete.size());
+        SampleChunker.Chunk chunk = complete.get(0);
+        assertEquals(hour, chunk.hour);
+        assertEquals(2, chunk.size);
+        assertEquals(65_000, chunk.offsets[1]);
+        assertEquals(27f, chunk.temperature[1], 0f);
+        assertEquals(2f, chunk.weight[0], 0f);
+        assertEquals(45, chunk.servo[0]);
+        assertEquals(hour + "_0", chunk.id());
+        assertEquals(hour + 65_000, chunk.last());
+    }
+
+    @Test
+    public void splitsAFullHourAtTheSizeCap() {
+        long hour = RollupAggregator.HOUR_MS;
+        for (int i = 0; i <= SampleChunker.MAX_SAMPLES; i++) reading("D1", hour + i * 1_000L, 20f);
+
+        assertEquals(1, complete.size());
+        assertEquals(SampleChunker.MAX_SAMPLES, complete.get(0).size);
+        chunker.closeAll();
+        assertEquals(2, complete.size());
+        assertEquals(1, complete.get(1).size);
+        assertEquals(hour, complete.get(1).hour);
+        assertEquals(hour + "_1", complete.get(1).id());
+    }
+
+    @Test
+    public void aReplayThroughAResetFilterWritesTheSameIds() {
+        long hour = 5 * RollupAggregator.HOUR_MS;
+        PersistenceFilter filter = new PersistenceFilter();   // 1 min heartbeats
+
+        List<String> ids = new ArrayList<>();
+        for (int pass = 0; pass < 2; pass++) {
+            filter.reset();
+            complete.clear();
+            SampleChunker replay = new SampleChunker((chunk, done) -> { if (done) complete.add(chunk); });
+            // Steady readings: the first pass carries filter state over from the previous hour
+            long start = pass == 0 ? hour - 30_000 : hour;
+            for (long t = start; t < hour + 2 * RollupAggregator.HOUR_MS; t += 1_000) {
+                frame.deviceId = "D1";
+                frame.type = TelemetryFrame.TYPE_READING;
+                frame.timestamp = t;
+                frame.temperature = 26f;
+                frame.weight = 2f;
+                frame.servo = 0;
+                frame.feeding = false;
+                if (filter.accept(frame)) replay.add(frame);
+            }
+            replay.closeAll();
+
+            List<String> passIds = new ArrayList<>();
+            for (SampleChunker.Chunk c : complete) if (c.hour >= hour) passIds.add(c.id() + "/" + c.size);
+            if (pass == 0) ids.addAll(passIds);
+            else assertEquals(ids, passIds);
+        }
+        assertEquals(hour + "_0/60", ids.get(0));
+    }
+
+    @Test
+    public void snapshotsOpenChunksAndClosesExpiredOnes() {
+        long hour = 3 * RollupAggregator.HOUR_MS;
+        reading("D1", hour, 20f);
+        frame.type = TelemetryFrame.TYPE_TEMPERATURE;
+        frame.deviceId = "D2";
+        frame.timestamp = hour + 1_000;
+        frame.journalSeq = 7;
+        chunker.add(frame);
+
+        chunker.flushOpen();
+        assertEquals(2, snapshots.size());
+        assertTrue(complete.isEmpty());
+        assertEquals(7, chunker.getOldestOpenJournalSeq());
+
+        chunker.closeExpired(hour + RollupAggregator.HOUR_MS);
+        assertEquals(2, complete.size());
+        for (SampleChunker.Chunk c : complete) {
+            if (c.deviceId.equals("D2")) assertTrue(Float.isNaN(c.weight[0]));
+        }
+        assertEquals(Long.MAX_VALUE, chunker.getOldestOpenJournalSeq());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleRingBufferTest {
+
+    @Test
+    public void windowSelectsSamplesByTime() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        for (int i = 0; i < 5; i++) buffer.append(1_000L * i, i);
+
+        SampleRingBuffer.View view = buffer.window(1_000, 3_000);
+        assertEquals(2, view.size());
+        assertEquals(1_000, view.time(0));
+        assertEquals(2f, view.value(1), 0f);
+        assertEquals(0, buffer.window(10_000, 20_000).size());
+        assertEquals(5, buffer.window(Long.MIN_VALUE, Long.MAX_VALUE).size());
+        assertEquals(4f, buffer.latestValue(), 0f);
+    }
+
+    @Test
+    public void overwritesTheOldestOnceFull() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        SampleRingBuffer.View early = buffer.window(0, 0);
+        for (int i = 0; i < 10; i++) buffer.append(100L * i, i);
+
+        assertEquals(4, buffer.size());
+        assertEquals(10, buffer.appendedCount());
+        SampleRingBuffer.View all = buffer.window(0, Long.MAX_VALUE);
+        assertEquals(4, all.size());
+        assertEquals(600, all.time(0));
+        assertEquals(9f, all.value(3), 0f);
+        assertTrue(all.isIntact());
+        assertFalse(early.isIntact());
+
+        buffer.append(1_000, 10);
+        assertFalse(all.isIntact());
+        SampleRingBuffer.View latest = buffer.latest(2);
+        assertEquals(2, latest.size());
+        assertEquals(9f, latest.value(0), 0f);
+    }
+
+    @Test
+    public void clampsTimestampsThatGoBackwards() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        buffer.append(5_000, 1);
+        buffer.append(4_000, 2);   // clock step back
+        assertEquals(5_000, buffer.latestTime());
+        assertEquals(2, buffer.window(5_000, 5_001).size());
+    }
+
+    @Test
+    public void reusedViewDoesNotAllocate() {
+        SampleRingBuffer buffer = new SampleRingBuffer(16);
+        SampleRingBuffer.View view = new SampleRingBuffer.View(buffer);
+        for (int i = 0; i < 16; i++) buffer.append(i, i);
+        assertSame(view, buffer.window(4, 8, view));
+        assertEquals(4, view.size());
+        assertEquals(7f, view.value(3), 0f);
+    }
+
+    @Test
+    public void sinceHandsEverySampleOverOnce() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        SampleRingBuffer.View view = new SampleRingBuffer.View(buffer);
+        long cursor = buffer.appendedCount();
+        buffer.append(1_000, 1);
+        buffer.append(2_000, 2);
+
+        buffer.since(cursor, view);
+        assertEquals(2, view.size());
+        assertEquals(1f, view.value(0), 0f);
+        cursor = view.endSample();
+        assertEquals(0, buffer.since(cursor, view).size());
+
+        for (int i = 3; i <= 8; i++) buffer.append(1_000L * i, i);   // laps the reader
+        buffer.since(cursor, view);
+        assertEquals(4, view.size());
+        assertEquals(5f, view.value(0), 0f);
+        assertEquals(8, view.endSample());
+    }
+}
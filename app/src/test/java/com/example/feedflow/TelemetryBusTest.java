@@ -0,0 +1,119 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TelemetryBusTest {
+
+    private final TelemetryBus bus = new TelemetryBus();
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private void publish(int type, float temperature) {
+        frame.type = type;
+        frame.temperature = temperature;
+        bus.publish(frame);
+    }
+
+    @Test
+    public void latestChannelConflatesPerType() {
+        List<Runnable> pending = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        TelemetryBus.LatestChannel channel = bus.subscribeLatest(pending::add,
+                f -> seen.add(f.type + ":" + f.temperature));
+
+        publish(TelemetryFrame.TYPE_READING, 20f);
+        publish(TelemetryFrame.TYPE_READING, 21f);
+        publish(TelemetryFrame.TYPE_FEED, 0f);
+        publish(TelemetryFrame.TYPE_READING, 22f);
+
+        assertEquals(1, pending.size());
+        pending.remove(0).run();
+
+        assertEquals(2, seen.size());
+        assertEquals(TelemetryFrame.TYPE_READING + ":22.0", seen.get(0));
+        assertEquals(2, channel.getConflatedCount());
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    public void queueChannelDeliversInOrderAndCountsOverflow() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(4);
+        List<Float> seen = new ArrayList<>();
+
+        TelemetryBus.QueueChannel channel = bus.subscribeQueue("test", 3, f -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            synchronized (seen) {
+                seen.add(f.temperature);
+            }
+            done.countDown();
+        });
+
+        publish(TelemetryFrame.TYPE_READING, 1f);   // taken by the worker, then blocks
+        Thread.sleep(100);
+        for (int i = 2; i <= 6; i++) publish(TelemetryFrame.TYPE_READING, i);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        bus.close();
+
+        assertEquals(2, channel.getOverflowCount());
+        assertEquals(3, channel.getHighWaterMark());
+        synchronized (seen) {
+            assertEquals(1f, seen.get(0), 0f);
+            assertEquals(4f, seen.get(3), 0f);
+        }
+    }
+
+    @Test
+    public void latestChannelFiltersByDeviceBeforeConflating() {
+        List<Runnable> pending = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        TelemetryBus.LatestChannel channel = bus.subscribeLatest(pending::add,
+                f -> seen.add(f.deviceId + ":" + f.temperature));
+        channel.setDeviceFilter("Device001");
+
+        frame.deviceId = "Device001";
+        publish(TelemetryFrame.TYPE_READING, 20f);
+        frame.deviceId = "Device_B48808000001";
+        publish(TelemetryFrame.TYPE_READING, 30f);
+
+        pending.remove(0).run();
+        assertEquals(1, seen.size());
+        assertEquals("Device001:20.0", seen.get(0));
+        assertEquals(0, channel.getConflatedCount());
+    }
+
+    @Test
+    public void directChannelFillsLiveHistoryInline() {
+        LiveHistory history = new LiveHistory();
+        TelemetryBus.DirectChannel channel = bus.subscribeDirect(history);
+
+        frame.deviceId = "Device001";
+        frame.timestamp = 1_000;
+        frame.weight = 3.5f;
+        publish(TelemetryFrame.TYPE_READING, 26f);
+        frame.timestamp = 2_000;
+        publish(TelemetryFrame.TYPE_TEMPERATURE, 27f);
+        publish(TelemetryFrame.TYPE_FEED, 0f);
+
+        LiveHistory.Series series = history.get("Device001");
+        assertEquals(2, series.temperature.size());
+        assertEquals(27f, series.temperature.latestValue(), 0f);
+        assertEquals(1, series.weight.size());
+        assertEquals(3.5f, series.weight.latestValue(), 0f);
+
+        bus.unsubscribe(channel);
+        publish(TelemetryFrame.TYPE_TEMPERATURE, 28f);
+        assertEquals(2, series.temperature.size());
+    }
+}
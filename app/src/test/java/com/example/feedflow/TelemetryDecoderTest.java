@@ -0,0 +1,96 @@
+package com.example.feedflow;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TelemetryDecoderTest {
+
+    private final TelemetryDecoder decoder = new TelemetryDecoder();
+    private final TelemetryFrame frame = new TelemetryFrame();
+
+    private boolean decode(String line) {
+        byte[] bytes = ("xx" + line + "yy").getBytes();
+        return decoder.decode(bytes, 2, bytes.length - 4, frame);
+    }
+
+    @Test
+    public void decodesAllFourFields() {
+        assertTrue(decode("27.45,3.5,90,1"));
+
+        assertEquals(27.45f, frame.temperature, 0.0001f);
+        assertEquals(3.5f, frame.weight, 0.0001f);
+        assertEquals(90, frame.servo);
+        assertTrue(frame.feeding);
+    }
+
+    @Test
+    public void acceptsSignsSpacesAndExtraFields() {
+        assertTrue(decode(" -1.5 , +12 ,-3, 0 ,extra\r"));
+
+        assertEquals(-1.5f, frame.temperature, 0.0001f);
+        assertEquals(12f, frame.weight, 0.0001f);
+        assertEquals(-3, frame.servo);
+        assertFalse(frame.feeding);
+    }
+
+    @Test
+    public void countsMalformedFramesWithoutThrowing() {
+        assertFalse(decode("27.4,3.5,90"));
+        assertFalse(decode("abc,3.5,90,1"));
+        assertFalse(decode("27.4,,90,1"));
+        assertFalse(decode("27.4,3.5,9.5,1"));
+        assertFalse(decode(""));
+
+        assertEquals(5, decoder.getMalformedCount());
+        assertEquals(0, decoder.getDecodedCount());
+    }
+
+    @Test
+    public void leavesFrameUntouchedOnError() {
+        assertTrue(decode("20.0,1.0,0,0"));
+        assertFalse(decode("21.0,oops,0,0"));
+
+        assertEquals(20.0f, frame.temperature, 0.0001f);
+    }
+
+    @Test
+    public void decodesTemperatureDialects() {
+        assertTrue(decode("temp:26.5"));
+        assertEquals(TelemetryFrame.TYPE_TEMPERATURE, frame.type);
+        assertEquals(26.5f, frame.temperature, 0.0001f);
+
+        assertTrue(decode("24.0:C"));
+        assertEquals(TelemetryFrame.TYPE_TEMPERATURE, frame.type);
+        assertEquals(24.0f, frame.temperature, 0.0001f);
+    }
+
+    @Test
+    public void decodesFeedDialect() {
+        assertTrue(decode("FEED:1.25;REMAIN:72.5"));
+        assertEquals(TelemetryFrame.TYPE_FEED, frame.type);
+        assertEquals(1.25f, frame.dispensed, 0.0001f);
+        assertEquals(72.5f, frame.remaining, 0.0001f);
+
+        assertFalse(decode("REMAIN:50"));
+        assertFalse(decode("FEED:x;REMAIN:50"));
+    }
+
+    @Test
+    public void decodesProgressAndCompletion() {
+        assertTrue(decode("PROG:1250;TARGET:5000;MOTOR:1;SEQ:12"));
+        assertEquals(TelemetryFrame.TYPE_PROGRESS, frame.type);
+        assertEquals(1.25f, frame.dispensed, 0.0001f);
+        assertEquals(5.0f, frame.target, 0.0001f);
+        assertEquals(TelemetryFrame.MOTOR_RUNNING, frame.motor);
+        assertEquals(12, frame.commandSeq);
+
+        assertTrue(decode("DONE:4980;SEQ:12"));
+        assertEquals(TelemetryFrame.TYPE_FEED_DONE, frame.type);
+        assertEquals(4.98f, frame.dispensed, 0.0001f);
+        assertEquals(TelemetryFrame.MOTOR_STOPPED, frame.motor);
+
+        assertFalse(decode("PROG:;TARGET:5000"));
+        assertFalse(decode("DONE:10;SEQ:x"));
+    }
+}
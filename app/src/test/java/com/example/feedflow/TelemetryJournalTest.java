@@ -0,0 +1,218 @@
+package com.example.feedflow;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class TelemetryJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;   // ~60 records
+
+    private File dir;
+    private final TelemetryFrame frame = new TelemetryFrame();
+    private final TelemetryFrame[] batch = new TelemetryFrame[32];
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal").toFile();
+        for (int i = 0; i < batch.length; i++) batch[i] = new TelemetryFrame();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    private long append(TelemetryJournal journal, long timestamp) throws Exception {
+        frame.deviceId = "Device_AABB";
+        frame.type = TelemetryFrame.TYPE_READING;
+        frame.timestamp = timestamp;
+        frame.temperature = 20f + timestamp;
+        frame.weight = 1.5f;
+        frame.servo = 90;
+        frame.feeding = true;
+        return journal.append(frame);
+    }
+
+    @Test
+    public void readsBackFramesInOrder() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        assertEquals(1, append(journal, 1));
+        assertEquals(2, append(journal, 2));
+
+        assertEquals(2, journal.readBatch(batch));
+        assertEquals(1, batch[0].journalSeq);
+        assertEquals(1, batch[0].timestamp);
+        assertEquals(21f, batch[0].temperature, 0f);
+        assertEquals(1.5f, batch[0].weight, 0f);
+        assertEquals(90, batch[0].servo);
+        assertTrue(batch[0].feeding);
+        assertEquals("Device_AABB", batch[0].deviceId);
+        assertSame(batch[0].deviceId, batch[1].deviceId);
+        assertEquals(2, batch[1].timestamp);
+
+        assertEquals(0, journal.readBatch(batch));
+        assertEquals(2, journal.getBacklog());
+        journal.close();
+    }
+
+    @Test
+    public void rollsSegmentsAndTrimsAcknowledgedOnes() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        for (int i = 1; i <= 200; i++) append(journal, i);
+        assertTrue(journal.getSegmentCount() > 2);
+
+        long last = 0;
+        int n;
+        while ((n = journal.readBatch(batch)) > 0) {
+            for (int i = 0; i < n; i++) assertEquals(++last, batch[i].timestamp);
+        }
+        assertEquals(200, last);
+
+        journal.ackThrough(200);
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(0, journal.getBacklog());
+        journal.close();
+    }
+
+    @Test
+    public void resumesAfterTheAckedRecordOnReopen() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        for (int i = 1; i <= 100; i++) append(journal, i);
+        journal.ackThrough(70);
+        journal.close();
+
+        TelemetryJournal reopened = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        assertEquals(30, reopened.getBacklog());
+        assertEquals(30, reopened.readBatch(batch));
+        assertEquals(71, batch[0].journalSeq);
+        assertEquals(100, batch[29].timestamp);
+        assertEquals(101, append(reopened, 101));
+        reopened.close();
+    }
+
+    @Test
+    public void dropsATornLastRecord() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        append(journal, 1);
+        append(journal, 2);
+        journal.close();
+
+        // Corrupt the payload of the second record, as a write cut short would
+        File segment = dir.listFiles((d, name) -> name.startsWith("seg-"))[0];
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            int firstLength = Integer.reverseBytes(raf.readInt());
+            raf.seek(8 + firstLength + 8 + 3);
+            raf.write(0x7F);
+        }
+
+        TelemetryJournal reopened = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        assertEquals(1, reopened.readBatch(batch));
+        assertEquals(2, append(reopened, 3));   // overwrites the torn record
+        assertEquals(1, reopened.readBatch(batch));
+        assertEquals(3, batch[0].timestamp);
+        reopened.close();
+    }
+
+    @Test
+    public void diskCapDropsOldestUnackedSegment() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 2);
+        for (int i = 1; i <= 200; i++) append(journal, i);
+
+        assertEquals(2, journal.getSegmentCount());
+        assertTrue(journal.getDroppedCount() > 0);
+        assertEquals(200 - journal.getDroppedCount(), journal.getBacklog());
+
+        assertTrue(journal.readBatch(batch) > 0);
+        assertEquals(journal.getDroppedCount() + 1, batch[0].journalSeq);
+        journal.close();
+    }
+
+    @Test
+    public void uploaderDrainsInOrderAndAcksWhatTheTargetConfirms() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        for (int i = 1; i <= 100; i++) append(journal, i);
+
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        JournalUploader uploader = new JournalUploader(journal, new JournalUploader.Target() {
+            @Override
+            public void onFrame(TelemetryFrame f) {
+                seen.add(f.timestamp);
+            }
+
+            @Override
+            public void onIdle(long now) {
+            }
+
+            @Override
+            public long uploadedThrough(long processedSeq, long timeoutMs) {
+                return Math.min(processedSeq, 90);   // the rest is still in an open bucket
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (journal.getAckedSeq() < 90 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        uploader.stop();
+
+        assertEquals(100, seen.size());
+        for (int i = 0; i < seen.size(); i++) assertEquals(i + 1, (long) seen.get(i));
+        assertEquals(90, journal.getAckedSeq());
+        assertEquals(10, journal.getBacklog());
+        assertNull(uploader.getFailure());
+        journal.close();
+    }
+
+    @Test
+    public void lostWritesAreReadAgainFromTheAck() throws Exception {
+        TelemetryJournal journal = new TelemetryJournal(dir, SEGMENT_SIZE, 8);
+        for (int i = 1; i <= 100; i++) append(journal, i);
+
+        List<Long> seen = new CopyOnWriteArrayList<>();
+        int[] replays = {0};
+        JournalUploader uploader = new JournalUploader(journal, new JournalUploader.Target() {
+            private boolean lost = true;   // the first commit failed
+
+            @Override
+            public void onFrame(TelemetryFrame f) {
+                seen.add(f.timestamp);
+            }
+
+            @Override
+            public void onIdle(long now) {
+            }
+
+            @Override
+            public long uploadedThrough(long processedSeq, long timeoutMs) {
+                return lost ? JournalUploader.REPLAY : processedSeq;
+            }
+
+            @Override
+            public void onReplay() {
+                lost = false;
+                replays[0]++;
+                seen.clear();
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (journal.getAckedSeq() < 100 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        uploader.stop();
+
+        assertEquals(1, replays[0]);
+        assertEquals(1, uploader.getReplayCount());
+        assertEquals(100, seen.size());
+        for (int i = 0; i < seen.size(); i++) assertEquals(i + 1, (long) seen.get(i));
+        assertEquals(100, journal.getAckedSeq());
+        journal.close();
+    }
+}